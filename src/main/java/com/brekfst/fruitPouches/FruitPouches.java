@@ -5,12 +5,20 @@ import com.brekfst.fruitPouches.commands.TabCompleter;
 import com.brekfst.fruitPouches.config.*;
 import com.brekfst.fruitPouches.data.DataManager;
 import com.brekfst.fruitPouches.data.PlayerDataManager;
+import com.brekfst.fruitPouches.data.SessionManager;
 import com.brekfst.fruitPouches.data.StatsManager;
 import com.brekfst.fruitPouches.events.ItemPickupListener;
 import com.brekfst.fruitPouches.events.PouchInteractListener;
 import com.brekfst.fruitPouches.events.PouchTradeListener;
 import com.brekfst.fruitPouches.gui.GuiManager;
 import com.brekfst.fruitPouches.listeners.PlayerJoinQuitListener;
+import com.brekfst.fruitPouches.pickup.ItemSpatialIndex;
+import com.brekfst.fruitPouches.pickup.PermissionCache;
+import com.brekfst.fruitPouches.pickup.PickupConditionCache;
+import com.brekfst.fruitPouches.pickup.PickupFeedback;
+import com.brekfst.fruitPouches.pickup.PickupRouter;
+import com.brekfst.fruitPouches.pickup.PickupScheduler;
+import com.brekfst.fruitPouches.pickup.PouchSlotCache;
 import com.brekfst.fruitPouches.utils.Debug;
 import com.brekfst.fruitPouches.utils.HeadDatabaseHook;
 import com.brekfst.fruitPouches.utils.MessageUtils;
@@ -21,6 +29,7 @@ import org.bukkit.plugin.java.JavaPlugin;
 import java.io.File;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class FruitPouches extends JavaPlugin {
 
@@ -31,6 +40,7 @@ public class FruitPouches extends JavaPlugin {
     private EnchantmentManager enchantmentManager;
     private SkinManager skinManager;
     private PlayerDataManager playerDataManager;
+    private SessionManager sessionManager;
     private StatsManager statsManager;
     private GuiManager guiManager;
     private DataManager dataManager;
@@ -40,6 +50,14 @@ public class FruitPouches extends JavaPlugin {
     private ExecutorService asyncExecutor;
     private Debug debug;
     private PriceManager priceManager; // New field for PriceManager
+    private ItemSpatialIndex itemSpatialIndex;
+    private PouchSlotCache pouchSlotCache;
+    private PickupConditionCache pickupConditionCache;
+    private PermissionCache permissionCache;
+    private PickupRouter pickupRouter;
+    private PickupFeedback pickupFeedback;
+    private ItemPickupListener itemPickupListener;
+    private PickupScheduler pickupScheduler;
 
     @Override
     public void onEnable() {
@@ -68,11 +86,18 @@ public class FruitPouches extends JavaPlugin {
         enchantmentManager = new EnchantmentManager(this);
         skinManager = new SkinManager(this);
         playerDataManager = new PlayerDataManager(this);
+        sessionManager = new SessionManager(this);
         statsManager = new StatsManager(this);
         dataManager = new DataManager(this);
         messageUtils = new MessageUtils(this);
         priceManager = new PriceManager(this); // Initialize the PriceManager
 
+        // Never run without the selected player storage
+        if (!playerDataManager.isStorageOpen()) {
+            getServer().getPluginManager().disablePlugin(this);
+            return;
+        }
+
         // Check for dependencies
         if (!setupDependencies()) {
             getServer().getPluginManager().disablePlugin(this);
@@ -91,9 +116,10 @@ public class FruitPouches extends JavaPlugin {
 
         // Schedule data saving task
         setupDataSavingTask();
+        playerDataManager.start();
 
         // Load all player data for online players (in case of reload)
-        Bukkit.getOnlinePlayers().forEach(player -> playerDataManager.loadPlayerData(player.getUniqueId()));
+        Bukkit.getOnlinePlayers().forEach(player -> sessionManager.handleJoin(player.getUniqueId()));
 
         debug.log("Plugin enabled successfully!");
     }
@@ -109,9 +135,20 @@ public class FruitPouches extends JavaPlugin {
             statsManager.saveAllStats();
         }
 
-        // Shutdown executor service
+        // Shutdown executor service, letting the final saves finish writing
         if (asyncExecutor != null) {
             asyncExecutor.shutdown();
+            try {
+                if (!asyncExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    getLogger().warning("Timed out waiting for player data to be written");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (playerDataManager != null) {
+            playerDataManager.close();
         }
 
         debug.log("Plugin disabled successfully!");
@@ -135,7 +172,24 @@ public class FruitPouches extends JavaPlugin {
     }
 
     private void registerEventListeners() {
-        getServer().getPluginManager().registerEvents(new ItemPickupListener(this), this);
+        // The item index must exist before the pickup listener starts querying it
+        itemSpatialIndex = new ItemSpatialIndex(this);
+        getServer().getPluginManager().registerEvents(itemSpatialIndex, this);
+        pouchSlotCache = new PouchSlotCache(this);
+        getServer().getPluginManager().registerEvents(pouchSlotCache, this);
+        pickupConditionCache = new PickupConditionCache(this);
+        permissionCache = new PermissionCache(this);
+        getServer().getPluginManager().registerEvents(permissionCache, this);
+        pickupRouter = new PickupRouter(this);
+        getServer().getPluginManager().registerEvents(pickupRouter, this);
+        pickupFeedback = new PickupFeedback(this);
+        getServer().getPluginManager().registerEvents(pickupFeedback, this);
+
+        itemPickupListener = new ItemPickupListener(this);
+        getServer().getPluginManager().registerEvents(itemPickupListener, this);
+        pickupScheduler = new PickupScheduler(this, itemPickupListener);
+        getServer().getPluginManager().registerEvents(pickupScheduler, this);
+        pickupScheduler.start();
         getServer().getPluginManager().registerEvents(new PouchInteractListener(this), this);
         getServer().getPluginManager().registerEvents(new PouchTradeListener(this), this);
         getServer().getPluginManager().registerEvents(new PlayerJoinQuitListener(this), this);
@@ -146,7 +200,9 @@ public class FruitPouches extends JavaPlugin {
         long backupInterval = getConfig().getLong("data.backup-interval", 3600); // Default: 1 hour
 
         // Regular saving task
-        Bukkit.getScheduler().runTaskTimerAsynchronously(this, () -> {
+        // Runs on the main thread: saving only snapshots the changed pouches and hands the
+        // writing to the async executor
+        Bukkit.getScheduler().runTaskTimer(this, () -> {
             debug.log("Running scheduled data save...");
             playerDataManager.saveAllPlayerData();
             statsManager.saveAllStats();
@@ -198,6 +254,10 @@ public class FruitPouches extends JavaPlugin {
         return playerDataManager;
     }
 
+    public SessionManager getSessionManager() {
+        return sessionManager;
+    }
+
     public StatsManager getStatsManager() {
         return statsManager;
     }
@@ -234,4 +294,36 @@ public class FruitPouches extends JavaPlugin {
     public PriceManager getPriceManager() {
         return priceManager;
     }
+
+    public ItemSpatialIndex getItemSpatialIndex() {
+        return itemSpatialIndex;
+    }
+
+    public PouchSlotCache getPouchSlotCache() {
+        return pouchSlotCache;
+    }
+
+    public PickupConditionCache getPickupConditionCache() {
+        return pickupConditionCache;
+    }
+
+    public PermissionCache getPermissionCache() {
+        return permissionCache;
+    }
+
+    public PickupRouter getPickupRouter() {
+        return pickupRouter;
+    }
+
+    public PickupFeedback getPickupFeedback() {
+        return pickupFeedback;
+    }
+
+    public ItemPickupListener getItemPickupListener() {
+        return itemPickupListener;
+    }
+
+    public PickupScheduler getPickupScheduler() {
+        return pickupScheduler;
+    }
 }
\ No newline at end of file
@@ -1,8 +1,21 @@
 package com.brekfst.fruitPouches.commands;
 
 import com.brekfst.fruitPouches.FruitPouches;
+import com.brekfst.fruitPouches.content.PrototypePool;
+import com.brekfst.fruitPouches.data.LogPlayerStorage;
+import com.brekfst.fruitPouches.data.PlayerDataManager;
+import com.brekfst.fruitPouches.data.SessionManager;
+import com.brekfst.fruitPouches.data.StorageBenchmark;
 import com.brekfst.fruitPouches.gui.SkinShopGUI;
 import com.brekfst.fruitPouches.gui.UpgradeGUI;
+import com.brekfst.fruitPouches.pickup.CooldownTable;
+import com.brekfst.fruitPouches.pickup.ItemSpatialIndex;
+import com.brekfst.fruitPouches.pickup.PermissionCache;
+import com.brekfst.fruitPouches.pickup.PickupConditionCache;
+import com.brekfst.fruitPouches.pickup.PickupFeedback;
+import com.brekfst.fruitPouches.pickup.PickupRouter;
+import com.brekfst.fruitPouches.pickup.PickupScheduler;
+import com.brekfst.fruitPouches.pickup.PouchSlotCache;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
@@ -51,6 +64,12 @@ public class FruitPouchCommand implements CommandExecutor {
                 return handleUpgrade(sender, args);
             case "enchant":
                 return handleEnchant(sender, args);
+            case "debug":
+                return handleDebug(sender);
+            case "migrate":
+                return handleMigrate(sender);
+            case "benchmark":
+                return handleBenchmark(sender, args);
             case "help":
                 showHelp(sender);
                 return true;
@@ -195,6 +214,9 @@ public class FruitPouchCommand implements CommandExecutor {
         plugin.getMessageUtils().loadMessages();
         plugin.getPriceManager().loadPrices(); // Reload prices
 
+        // Permission nodes may have changed with the pouch configuration
+        plugin.getPermissionCache().invalidateAll();
+
         // Refresh all player pouches with the updated configuration
         plugin.getPlayerDataManager().refreshAllPlayerPouches();
 
@@ -413,6 +435,186 @@ public class FruitPouchCommand implements CommandExecutor {
         return true;
     }
 
+    /**
+     * Handle the migrate command, which copies player data into the SQLite database
+     *
+     * @param sender The command sender
+     * @return true if the command was successful
+     */
+    private boolean handleMigrate(CommandSender sender) {
+        if (!sender.hasPermission("fruitpouch.admin")) {
+            plugin.getMessageUtils().sendMessage(sender, "general.no-permission");
+            return true;
+        }
+
+        plugin.getPlayerDataManager().migrateToSqlite(sender);
+        return true;
+    }
+
+    /**
+     * Handle the benchmark command, which compares the player storage formats
+     *
+     * @param sender The command sender
+     * @param args The command arguments
+     * @return true if the command was successful
+     */
+    private boolean handleBenchmark(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("fruitpouch.admin")) {
+            plugin.getMessageUtils().sendMessage(sender, "general.no-permission");
+            return true;
+        }
+
+        int iterations = 20;
+        if (args.length > 1) {
+            try {
+                iterations = Integer.parseInt(args[1]);
+
+                if (iterations < 1) {
+                    plugin.getMessageUtils().sendMessage(sender, "general.invalid-amount", "amount", args[1]);
+                    return true;
+                }
+            } catch (NumberFormatException e) {
+                plugin.getMessageUtils().sendMessage(sender, "general.invalid-amount", "amount", args[1]);
+                return true;
+            }
+        }
+
+        sender.sendMessage(ChatColor.YELLOW + "Running storage benchmark...");
+        new StorageBenchmark(plugin).run(sender, iterations);
+        return true;
+    }
+
+    /**
+     * Handle the debug command, which prints internal pickup and storage metrics
+     *
+     * @param sender The command sender
+     * @return true if the command was successful
+     */
+    private boolean handleDebug(CommandSender sender) {
+        if (!sender.hasPermission("fruitpouch.admin")) {
+            plugin.getMessageUtils().sendMessage(sender, "general.no-permission");
+            return true;
+        }
+
+        sender.sendMessage(ChatColor.GOLD + "==== FruitPouches Debug ====");
+
+        ItemSpatialIndex index = plugin.getItemSpatialIndex();
+        sender.sendMessage(ChatColor.YELLOW + "Item index: " + ChatColor.GRAY + index.getIndexedCount() + " items in " +
+                index.getCellCount() + " cells");
+        sender.sendMessage(ChatColor.YELLOW + "Index queries: " + ChatColor.GRAY + index.getQueries() +
+                " (cells visited: " + index.getCellsVisited() +
+                ", candidates: " + index.getCandidatesTouched() +
+                ", returned: " + index.getItemsReturned() +
+                ", relocated: " + index.getRelocations() + ")");
+        sender.sendMessage(ChatColor.YELLOW + "Candidates per query: " + ChatColor.GRAY +
+                String.format("%.2f", index.getAverageCandidatesPerQuery()));
+
+        PouchSlotCache slotCache = plugin.getPouchSlotCache();
+        sender.sendMessage(ChatColor.YELLOW + "Pouch slot cache: " + ChatColor.GRAY + slotCache.getCachedPlayers() + " players" +
+                " (hits: " + slotCache.getHits() +
+                ", rebuilds: " + slotCache.getRebuilds() +
+                ", invalidations: " + slotCache.getInvalidations() +
+                ", failed checks: " + slotCache.getVerifyFailures() + ")");
+
+        PickupScheduler scheduler = plugin.getPickupScheduler();
+        sender.sendMessage(ChatColor.YELLOW + "Pickup scheduler: " + ChatColor.GRAY + scheduler.getQueueSize() + " queued" +
+                " (max: " + scheduler.getMaxQueueSize() +
+                ", budget: " + scheduler.getMaxItemsPerTick() + " items / " + (scheduler.getMaxNanosPerTick() / 1000) + "us" +
+                ", every " + scheduler.getInterval() + " ticks)");
+        sender.sendMessage(ChatColor.YELLOW + "Pickup work: " + ChatColor.GRAY + scheduler.getPlayersVisited() + " players, " +
+                scheduler.getItemsProcessed() + " items in " + scheduler.getTicks() + " ticks" +
+                String.format(" (avg %.1fus, last %dus)", scheduler.getAverageTickNanos() / 1000.0, scheduler.getLastTickNanos() / 1000));
+        sender.sendMessage(ChatColor.YELLOW + "Deferred work: " + ChatColor.GRAY + scheduler.getBudgetExhaustedTicks() + " ticks over budget" +
+                " (carried over: " + scheduler.getDeferredPlayers() + " players, " + scheduler.getDeferredItems() + " items)");
+        sender.sendMessage(ChatColor.YELLOW + "Wakeups: " + ChatColor.GRAY + (scheduler.isDirtyMode() ? "dirty mode" : "polling") +
+                " (scanned: " + scheduler.getScannedPlayers() +
+                ", skipped: " + scheduler.getSkippedPlayers() +
+                String.format(", skipped/scanned: %.2f", scheduler.getSkipRatio()) +
+                ", marks: " + scheduler.getDirtyMarks() + ")");
+        sender.sendMessage(ChatColor.YELLOW + "Spawn queue: " + ChatColor.GRAY + scheduler.getPendingSpawns() + " pending" +
+                " (queued: " + scheduler.getSpawnsQueued() +
+                ", batches: " + scheduler.getSpawnBatches() +
+                ", chunk groups: " + scheduler.getSpawnChunks() +
+                ", player checks: " + scheduler.getSpawnPlayerChecks() + ")");
+        sender.sendMessage(ChatColor.YELLOW + "Pickup batches: " + ChatColor.GRAY + scheduler.getBatchCommits() + " commits" +
+                " (" + scheduler.getBatchedItems() + " items)");
+
+        PickupRouter router = plugin.getPickupRouter();
+        sender.sendMessage(ChatColor.YELLOW + "Routing tables: " + ChatColor.GRAY + router.getTableCount() + " players" +
+                " (builds: " + router.getBuilds() +
+                ", reuses: " + router.getReuses() + ")");
+
+        PickupConditionCache conditionCache = plugin.getPickupConditionCache();
+        sender.sendMessage(ChatColor.YELLOW + "Condition cache: " + ChatColor.GRAY + conditionCache.getEvaluations() + " evaluations" +
+                " (hits: " + conditionCache.getHits() + ")");
+
+        PermissionCache permissionCache = plugin.getPermissionCache();
+        sender.sendMessage(ChatColor.YELLOW + "Permission cache: " + ChatColor.GRAY + permissionCache.getCachedPlayers() + " players" +
+                " (hits: " + permissionCache.getHits() +
+                ", backend lookups: " + permissionCache.getLookups() +
+                ", invalidations: " + permissionCache.getInvalidations() + ")");
+
+        PickupFeedback feedback = plugin.getPickupFeedback();
+        sender.sendMessage(ChatColor.YELLOW + "Pickup feedback: " + ChatColor.GRAY + feedback.getOpenWindows() + " open windows" +
+                " (" + feedback.getPickupsRecorded() + " pickups, " + feedback.getOverflowsRecorded() + " overflows -> " +
+                feedback.getSummariesSent() + " messages, " + feedback.getEffectsPlayed() + " effects" +
+                ", window: " + feedback.getWindowTicks() + " ticks)");
+
+        CooldownTable itemCooldowns = plugin.getItemPickupListener().getItemCooldowns();
+        CooldownTable playerCooldowns = plugin.getItemPickupListener().getPlayerCooldowns();
+        sender.sendMessage(ChatColor.YELLOW + "Item cooldowns: " + ChatColor.GRAY + itemCooldowns.size() + " entries" +
+                " (capacity: " + itemCooldowns.getCapacity() +
+                ", evicted: " + itemCooldowns.getEvictions() +
+                ", rotations: " + itemCooldowns.getRotations() + ")");
+        sender.sendMessage(ChatColor.YELLOW + "Player cooldowns: " + ChatColor.GRAY + playerCooldowns.size() + " entries" +
+                " (capacity: " + playerCooldowns.getCapacity() +
+                ", evicted: " + playerCooldowns.getEvictions() +
+                ", rotations: " + playerCooldowns.getRotations() + ")");
+
+        PlayerDataManager playerData = plugin.getPlayerDataManager();
+        sender.sendMessage(ChatColor.YELLOW + "Save queue: " + ChatColor.GRAY + playerData.getDirtyPlayers() + " dirty players" +
+                " (marks: " + playerData.getDirtyMarks() +
+                ", coalesced: " + playerData.getCoalescedWrites() +
+                ", flushes: " + playerData.getFlushes() +
+                ", every " + playerData.getFlushInterval() + " ticks)");
+        sender.sendMessage(ChatColor.YELLOW + "Save latency: " + ChatColor.GRAY +
+                String.format("avg %.1fms, last %.1fms, max %.1fms", playerData.getAverageFlushNanos() / 1_000_000.0,
+                        playerData.getLastFlushNanos() / 1_000_000.0, playerData.getMaxFlushNanos() / 1_000_000.0));
+        sender.sendMessage(ChatColor.YELLOW + "Player saves: " + ChatColor.GRAY + playerData.getStorageWrites() + " writes to " + playerData.getStorage().getType() +
+                " (skipped: " + playerData.getSavesSkipped() +
+                ", pouches full: " + playerData.getFullPouchWrites() +
+                ", pouches delta: " + playerData.getDeltaPouchWrites() +
+                ", entries: " + playerData.getEntriesWritten() +
+                ", pouches unchanged: " + playerData.getPouchesSkipped() + ")");
+        sender.sendMessage(ChatColor.YELLOW + "Pouch loading: " + ChatColor.GRAY + playerData.getPouchesDeferred() + " deferred" +
+                " (built on use: " + playerData.getPouchesMaterialized() + ")");
+        SessionManager sessions = plugin.getSessionManager();
+        sender.sendMessage(ChatColor.YELLOW + "Sessions: " + ChatColor.GRAY + playerData.getResidentPlayers() + " resident" +
+                " (online: " + sessions.getSessionCount(SessionManager.State.ONLINE) +
+                ", grace: " + sessions.getSessionCount(SessionManager.State.GRACE) +
+                ", cached: " + sessions.getSessionCount(SessionManager.State.CACHED) + "/" + sessions.getOfflineCacheSize() +
+                ", evicting: " + sessions.getSessionCount(SessionManager.State.EVICTING) +
+                ", reconnects: " + sessions.getReconnects() +
+                ", cache hits: " + sessions.getCacheHits() +
+                ", evicted: " + sessions.getEvictions() +
+                ", eviction retries: " + sessions.getFailedEvictions() + ")");
+        if (playerData.getStorage() instanceof LogPlayerStorage) {
+            LogPlayerStorage log = (LogPlayerStorage) playerData.getStorage();
+            sender.sendMessage(ChatColor.YELLOW + "Player log: " + ChatColor.GRAY + log.getRecordsAppended() + " records" +
+                    " (" + log.getBytesAppended() / 1024 + " KB, syncs: " + log.getSyncs() +
+                    ", segments: " + log.getSegmentCount() +
+                    ", compactions: " + log.getCompactions() +
+                    String.format(", last compaction: %.1fms)", log.getLastCompactionNanos() / 1_000_000.0));
+        }
+
+        PrototypePool prototypePool = PrototypePool.shared();
+        sender.sendMessage(ChatColor.YELLOW + "Item prototypes: " + ChatColor.GRAY + prototypePool.getSize() + " shared" +
+                " (reused: " + prototypePool.getHits() +
+                ", created: " + prototypePool.getMisses() + ")");
+
+        return true;
+    }
+
     /**
      * Show the help message
      *
@@ -450,6 +652,12 @@ public class FruitPouchCommand implements CommandExecutor {
             sender.sendMessage("§e/fruitpouch enchant <pouch> <enchantment> <level> §7- Apply an enchantment to a pouch");
         }
 
+        if (sender.hasPermission("fruitpouch.admin")) {
+            sender.sendMessage("§e/fruitpouch debug §7- Show pickup and storage metrics");
+            sender.sendMessage("§e/fruitpouch migrate §7- Copy player data into the SQLite database");
+            sender.sendMessage("§e/fruitpouch benchmark [iterations] §7- Compare player storage formats");
+        }
+
         sender.sendMessage("§e/fruitpouch help §7- Show this help message");
     }
 }
\ No newline at end of file
@@ -64,6 +64,12 @@ public class TabCompleter implements org.bukkit.command.TabCompleter {
                 commands.add("enchant");
             }
 
+            if (sender.hasPermission("fruitpouch.admin")) {
+                commands.add("debug");
+                commands.add("migrate");
+                commands.add("benchmark");
+            }
+
             commands.add("help");
 
             return filterCompletions(commands, args[0]);
@@ -11,6 +11,7 @@ import org.bukkit.inventory.ItemStack;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -120,17 +121,8 @@ public class EnchantmentManager {
         }
 
         // Find the pouch in the player's inventory
-        ItemStack pouchItem = null;
-        int pouchSlot = -1;
-
-        for (int i = 0; i < player.getInventory().getSize(); i++) {
-            ItemStack item = player.getInventory().getItem(i);
-            if (item != null && Pouch.isPouchOfType(plugin, item, pouchId)) {
-                pouchItem = item;
-                pouchSlot = i;
-                break;
-            }
-        }
+        int pouchSlot = plugin.getPouchSlotCache().findPouchSlot(player, pouchId);
+        ItemStack pouchItem = pouchSlot >= 0 ? player.getInventory().getItem(pouchSlot) : null;
 
         if (pouchItem == null) {
             plugin.getMessageUtils().sendMessage(player, "pouches.invalid-pouch", "pouch", pouchId);
@@ -154,8 +146,11 @@ public class EnchantmentManager {
                 }
 
                 // Update the enchantment level
-                pouch.getEnchantments().remove(enchantment);
-                pouch.getEnchantments().add(new PouchEnchantment(enchantmentType, level));
+                // getEnchantments() returns a copy, so set the changed list back on the pouch
+                List<PouchEnchantment> enchantments = pouch.getEnchantments();
+                enchantments.remove(enchantment);
+                enchantments.add(new PouchEnchantment(enchantmentType, level));
+                pouch.setEnchantments(enchantments);
 
                 // Save the pouch data
                 plugin.getPlayerDataManager().savePlayerPouch(player.getUniqueId(), pouch);
@@ -192,7 +187,9 @@ public class EnchantmentManager {
         }
 
         // Add the enchantment
-        pouch.getEnchantments().add(new PouchEnchantment(enchantmentType, level));
+        List<PouchEnchantment> enchantments = pouch.getEnchantments();
+        enchantments.add(new PouchEnchantment(enchantmentType, level));
+        pouch.setEnchantments(enchantments);
 
         // Save the pouch data
         plugin.getPlayerDataManager().savePlayerPouch(player.getUniqueId(), pouch);
@@ -22,6 +22,9 @@ public class PouchManager {
     private final FruitPouches plugin;
     private final Map<String, Pouch> pouches;
 
+    // Bumped on every (re)load so compiled per-pouch state can tell it is out of date
+    private int configVersion;
+
     /**
      * Create a new pouch manager
      *
@@ -41,6 +44,7 @@ public class PouchManager {
     public void loadPouches() {
         // Clear existing pouches first
         pouches.clear();
+        configVersion++;
         plugin.getDebug().log("Cleared existing pouch configurations");
 
         // Load from configuration
@@ -54,6 +58,9 @@ public class PouchManager {
                     try {
                         Pouch pouch = new Pouch(id, pouchSection);
                         pouches.put(id, pouch);
+
+                        // Compile the pickup filter up front; player pouches of this type share it
+                        pouch.compilePickupFilter(plugin, configVersion);
                         plugin.getDebug().log("Loaded pouch configuration: " + id);
                     } catch (Exception e) {
                         plugin.getDebug().logException(e, "Failed to load pouch: " + id);
@@ -75,6 +82,15 @@ public class PouchManager {
         return pouches.get(id);
     }
 
+    /**
+     * Get the pouch configuration version, which changes on every reload
+     *
+     * @return The configuration version
+     */
+    public int getConfigVersion() {
+        return configVersion;
+    }
+
     /**
      * Get all pouches
      *
@@ -122,6 +138,7 @@ public class PouchManager {
         pouchItem.setAmount(amount);
 
         HashMap<Integer, ItemStack> notAdded = player.getInventory().addItem(pouchItem);
+        plugin.getPouchSlotCache().invalidate(player.getUniqueId());
 
         if (!notAdded.isEmpty()) {
             plugin.getMessageUtils().sendMessage(player, "pouches.full-inventory");
@@ -146,17 +163,8 @@ public class PouchManager {
      */
     public boolean upgradePouch(Player player, String pouchId) {
         // Find the pouch in the player's inventory
-        ItemStack pouchItem = null;
-        int pouchSlot = -1;
-
-        for (int i = 0; i < player.getInventory().getSize(); i++) {
-            ItemStack item = player.getInventory().getItem(i);
-            if (item != null && Pouch.isPouchOfType(plugin, item, pouchId)) {
-                pouchItem = item;
-                pouchSlot = i;
-                break;
-            }
-        }
+        int pouchSlot = plugin.getPouchSlotCache().findPouchSlot(player, pouchId);
+        ItemStack pouchItem = pouchSlot >= 0 ? player.getInventory().getItem(pouchSlot) : null;
 
         if (pouchItem == null) {
             plugin.getMessageUtils().sendMessage(player, "pouches.invalid-pouch", "pouch", pouchId);
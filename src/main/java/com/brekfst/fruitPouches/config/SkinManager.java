@@ -110,17 +110,8 @@ public class SkinManager {
         }
 
         // Find the pouch in the player's inventory
-        ItemStack pouchItem = null;
-        int pouchSlot = -1;
-
-        for (int i = 0; i < player.getInventory().getSize(); i++) {
-            ItemStack item = player.getInventory().getItem(i);
-            if (item != null && Pouch.isPouchOfType(plugin, item, pouchId)) {
-                pouchItem = item;
-                pouchSlot = i;
-                break;
-            }
-        }
+        int pouchSlot = plugin.getPouchSlotCache().findPouchSlot(player, pouchId);
+        ItemStack pouchItem = pouchSlot >= 0 ? player.getInventory().getItem(pouchSlot) : null;
 
         if (pouchItem == null) {
             plugin.getMessageUtils().sendMessage(player, "pouches.invalid-pouch", "pouch", pouchId);
@@ -231,6 +222,15 @@ public class SkinManager {
         playerSkins.put(playerId, new HashMap<>(skins));
     }
 
+    /**
+     * Forget the skins owned by a player whose data is no longer in memory
+     *
+     * @param playerId The player UUID
+     */
+    public void removePlayerSkins(UUID playerId) {
+        playerSkins.remove(playerId);
+    }
+
     /**
      * Check if a player has enough items
      *
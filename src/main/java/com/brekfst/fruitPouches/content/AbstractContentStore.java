@@ -0,0 +1,141 @@
+package com.brekfst.fruitPouches.content;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Shared slot bookkeeping for content stores: parallel prototype and amount arrays, the used
+ * slot set, and copy-on-write snapshots. Subclasses call {@link #beforeWrite()} before
+ * changing anything, which copies the arrays if a snapshot still shares them, and report each
+ * slot they touch to the pouch's {@link ChangeJournal} through {@link #record(int, ChangeJournal.Change)}.
+ */
+public abstract class AbstractContentStore implements ContentStore {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    protected ItemPrototype[] prototypes;
+    protected long[] amounts;
+    protected final BitSet used;
+    protected int count;
+    protected long total;
+    protected final ChangeJournal journal;
+
+    private long version;
+    private boolean shared;
+    private ContentSnapshot snapshot;
+
+    /**
+     * Create a new empty store
+     *
+     * @param journal The journal to record changes in, or null to not record them
+     */
+    protected AbstractContentStore(ChangeJournal journal) {
+        this.journal = journal;
+        this.prototypes = new ItemPrototype[INITIAL_CAPACITY];
+        this.amounts = new long[INITIAL_CAPACITY];
+        this.used = new BitSet();
+    }
+
+    /**
+     * Prepare for a change: bump the version and take back ownership of the arrays
+     */
+    protected void beforeWrite() {
+        version++;
+        if (shared) {
+            prototypes = prototypes.clone();
+            amounts = amounts.clone();
+            shared = false;
+        }
+    }
+
+    /**
+     * Record a change to a slot in the journal, if there is one
+     *
+     * @param slot The slot
+     * @param change The change
+     */
+    protected void record(int slot, ChangeJournal.Change change) {
+        if (journal != null) {
+            journal.recordSlot(slot, change);
+        }
+    }
+
+    /**
+     * Make room for a slot
+     *
+     * @param slot The slot
+     */
+    protected void ensureCapacity(int slot) {
+        if (slot >= prototypes.length) {
+            int length = Math.max(slot + 1, prototypes.length * 2);
+            prototypes = Arrays.copyOf(prototypes, length);
+            amounts = Arrays.copyOf(amounts, length);
+        }
+    }
+
+    @Override
+    public ContentSnapshot snapshot() {
+        if (snapshot == null || snapshot.getVersion() != version) {
+            snapshot = new ContentSnapshot(prototypes, amounts, count, total, version);
+            shared = true;
+        }
+        return snapshot;
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public ItemStack get(int slot) {
+        ItemPrototype prototype = getPrototype(slot);
+        return prototype != null ? prototype.toItemStack((int) Math.min(amounts[slot], Integer.MAX_VALUE)) : null;
+    }
+
+    @Override
+    public ItemPrototype getPrototype(int slot) {
+        return slot >= 0 && slot < prototypes.length ? prototypes[slot] : null;
+    }
+
+    @Override
+    public long getAmount(int slot) {
+        return getPrototype(slot) != null ? amounts[slot] : 0;
+    }
+
+    @Override
+    public int nextSlot(int from) {
+        return used.nextSetBit(Math.max(from, 0));
+    }
+
+    @Override
+    public int getStackCount() {
+        return count;
+    }
+
+    @Override
+    public long getTotalAmount() {
+        return total;
+    }
+
+    @Override
+    public void clear() {
+        beforeWrite();
+        prototypes = new ItemPrototype[INITIAL_CAPACITY];
+        amounts = new long[INITIAL_CAPACITY];
+        used.clear();
+        count = 0;
+        total = 0;
+        clearIndex();
+        if (journal != null) {
+            journal.recordClear();
+        }
+    }
+
+    /**
+     * Drop the subclass's lookup index after {@link #clear()}
+     */
+    protected abstract void clearIndex();
+}
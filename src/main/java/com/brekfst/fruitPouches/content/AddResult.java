@@ -0,0 +1,78 @@
+package com.brekfst.fruitPouches.content;
+
+/**
+ * Outcome of adding several items to a pouch at once: how much of each item was accepted
+ * and how much overflowed, in the order the items were passed in.
+ */
+public class AddResult {
+
+    private final int[] accepted;
+    private final int[] overflow;
+    private long totalAccepted;
+    private long totalOverflow;
+
+    /**
+     * Create a new result for a batch of items
+     *
+     * @param size The number of items in the batch
+     */
+    public AddResult(int size) {
+        this.accepted = new int[size];
+        this.overflow = new int[size];
+    }
+
+    /**
+     * Record the outcome of one item
+     *
+     * @param index The item's position in the batch
+     * @param accepted The amount that went into the pouch
+     * @param overflow The amount that didn't fit
+     */
+    void set(int index, int accepted, int overflow) {
+        this.accepted[index] = accepted;
+        this.overflow[index] = overflow;
+        this.totalAccepted += accepted;
+        this.totalOverflow += overflow;
+    }
+
+    /**
+     * Get the amount of an item that went into the pouch
+     *
+     * @param index The item's position in the batch
+     * @return The accepted amount
+     */
+    public int getAccepted(int index) {
+        return accepted[index];
+    }
+
+    /**
+     * Get the amount of an item that didn't fit
+     *
+     * @param index The item's position in the batch
+     * @return The overflow amount
+     */
+    public int getOverflow(int index) {
+        return overflow[index];
+    }
+
+    public int size() {
+        return accepted.length;
+    }
+
+    public long getTotalAccepted() {
+        return totalAccepted;
+    }
+
+    public long getTotalOverflow() {
+        return totalOverflow;
+    }
+
+    /**
+     * Check if everything fit
+     *
+     * @return true if nothing overflowed
+     */
+    public boolean isComplete() {
+        return totalOverflow == 0;
+    }
+}
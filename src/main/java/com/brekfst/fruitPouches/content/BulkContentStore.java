@@ -0,0 +1,186 @@
+package com.brekfst.fruitPouches.content;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Content store for bulk pouches: one slot per distinct item, holding its shared prototype and
+ * a long count instead of max-stack-sized ItemStacks. Capacity is the number of item types
+ * (the pouch's slots) and optionally a total item count.
+ */
+public class BulkContentStore extends AbstractContentStore {
+
+    // Prototypes are interned, so identity is enough
+    private final Map<ItemPrototype, Integer> index;
+    private long maxItems;
+
+    /**
+     * Create a new empty bulk content store
+     *
+     * @param maxItems The maximum total amount of items, or 0 for no limit
+     */
+    public BulkContentStore(long maxItems) {
+        this(maxItems, null);
+    }
+
+    /**
+     * Create a new empty bulk content store
+     *
+     * @param maxItems The maximum total amount of items, or 0 for no limit
+     * @param journal The journal to record changes in, or null to not record them
+     */
+    public BulkContentStore(long maxItems, ChangeJournal journal) {
+        super(journal);
+        this.index = new IdentityHashMap<>();
+        this.maxItems = maxItems;
+    }
+
+    @Override
+    public long add(ItemPrototype prototype, long amount, int maxStacks) {
+        if (amount <= 0) {
+            return 0;
+        }
+
+        long space = maxItems > 0 ? maxItems - total : Long.MAX_VALUE;
+        long added = Math.min(amount, Math.max(space, 0));
+        if (added == 0) {
+            return amount;
+        }
+
+        Integer slot = index.get(prototype);
+        if (slot == null && count >= maxStacks) {
+            return amount;
+        }
+
+        beforeWrite();
+        if (slot == null) {
+            slot = newSlot(used.nextClearBit(0), prototype);
+        }
+
+        amounts[slot] += added;
+        total += added;
+        record(slot, ChangeJournal.Change.AMOUNT_CHANGED);
+        return amount - added;
+    }
+
+    @Override
+    public int append(ItemPrototype prototype, long amount) {
+        if (amount <= 0) {
+            return -1;
+        }
+
+        beforeWrite();
+        Integer slot = index.get(prototype);
+        if (slot == null) {
+            slot = newSlot(used.nextClearBit(0), prototype);
+        }
+
+        amounts[slot] += amount;
+        total += amount;
+        record(slot, ChangeJournal.Change.AMOUNT_CHANGED);
+        return slot;
+    }
+
+    @Override
+    public void put(int slot, ItemStack item) {
+        if (slot < 0) {
+            throw new IllegalArgumentException("Negative slot: " + slot);
+        }
+
+        remove(slot);
+        if (item == null) {
+            return;
+        }
+
+        // Similar items always share one slot, so merge into it if the item is already stored
+        beforeWrite();
+        ItemPrototype prototype = ItemPrototype.of(item);
+        Integer existing = index.get(prototype);
+        int target = existing != null ? existing : newSlot(slot, prototype);
+
+        amounts[target] += item.getAmount();
+        total += item.getAmount();
+        record(target, ChangeJournal.Change.AMOUNT_CHANGED);
+    }
+
+    /**
+     * Open an empty slot for a new item type
+     *
+     * @param slot The slot
+     * @param prototype The item
+     * @return The slot
+     */
+    private int newSlot(int slot, ItemPrototype prototype) {
+        ensureCapacity(slot);
+
+        prototypes[slot] = prototype;
+        amounts[slot] = 0;
+        used.set(slot);
+        count++;
+        index.put(prototype, slot);
+        record(slot, ChangeJournal.Change.SLOT_ADDED);
+        return slot;
+    }
+
+    @Override
+    public long removeAmount(int slot, long amount) {
+        if (getPrototype(slot) == null || amount <= 0) {
+            return 0;
+        }
+
+        long taken = Math.min(amount, amounts[slot]);
+        if (taken >= amounts[slot]) {
+            remove(slot);
+        } else {
+            beforeWrite();
+            amounts[slot] -= taken;
+            total -= taken;
+            record(slot, ChangeJournal.Change.AMOUNT_CHANGED);
+        }
+
+        return taken;
+    }
+
+    @Override
+    public ItemStack remove(int slot) {
+        ItemStack stack = get(slot);
+        if (stack == null) {
+            return null;
+        }
+
+        beforeWrite();
+        index.remove(prototypes[slot]);
+        total -= amounts[slot];
+        prototypes[slot] = null;
+        amounts[slot] = 0;
+        used.clear(slot);
+        count--;
+        record(slot, ChangeJournal.Change.SLOT_REMOVED);
+        return stack;
+    }
+
+    @Override
+    protected void clearIndex() {
+        index.clear();
+    }
+
+    /**
+     * Get the maximum total amount of items
+     *
+     * @return The limit, or 0 for no limit
+     */
+    public long getMaxItems() {
+        return maxItems;
+    }
+
+    /**
+     * Set the maximum total amount of items. Items already stored are kept.
+     *
+     * @param maxItems The limit, or 0 for no limit
+     */
+    public void setMaxItems(long maxItems) {
+        this.maxItems = maxItems;
+    }
+}
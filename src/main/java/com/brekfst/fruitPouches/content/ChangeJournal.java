@@ -0,0 +1,194 @@
+package com.brekfst.fruitPouches.content;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Records what changed in a pouch since it was last saved, so the saver only rewrites the
+ * entries that moved. Slot changes are compacted per slot (only the net change is kept), and
+ * every change bumps a version number that never goes down.
+ */
+public final class ChangeJournal {
+
+    /**
+     * Kinds of change a journal records
+     */
+    public enum Change {
+        SLOT_ADDED,
+        AMOUNT_CHANGED,
+        SLOT_REMOVED,
+        // Removed and refilled, possibly with a different item
+        SLOT_REPLACED,
+        LEVEL,
+        SKIN,
+        ENCHANTMENTS,
+        STATS
+    }
+
+    private final Map<Integer, Change> slots;
+    private final EnumSet<Change> pouchChanges;
+    private boolean cleared;
+    private long version;
+
+    /**
+     * Create a new empty change journal
+     */
+    public ChangeJournal() {
+        this.slots = new TreeMap<>();
+        this.pouchChanges = EnumSet.noneOf(Change.class);
+    }
+
+    /**
+     * Record a change to a content slot
+     *
+     * @param slot The slot
+     * @param change {@link Change#SLOT_ADDED}, {@link Change#AMOUNT_CHANGED} or {@link Change#SLOT_REMOVED}
+     *               (stores never record {@link Change#SLOT_REPLACED} themselves)
+     */
+    public void recordSlot(int slot, Change change) {
+        version++;
+        if (cleared) {
+            // All contents are rewritten anyway
+            return;
+        }
+
+        Change previous = slots.get(slot);
+        if (previous == null || change == Change.SLOT_REMOVED && previous != Change.SLOT_ADDED) {
+            slots.put(slot, change);
+        } else if (change == Change.SLOT_REMOVED) {
+            // The slot was empty at the last save and is empty again
+            slots.remove(slot);
+        } else if (previous == Change.SLOT_REMOVED) {
+            slots.put(slot, Change.SLOT_REPLACED);
+        } else if (previous == Change.AMOUNT_CHANGED) {
+            slots.put(slot, change);
+        }
+        // An amount change after an add or replace is part of writing the whole entry
+    }
+
+    /**
+     * Record a change to the pouch itself (level, skin, enchantments or stats)
+     *
+     * @param change The change
+     */
+    public void record(Change change) {
+        version++;
+        pouchChanges.add(change);
+    }
+
+    /**
+     * Record that all contents were replaced
+     */
+    public void recordClear() {
+        version++;
+        cleared = true;
+        slots.clear();
+    }
+
+    /**
+     * Get the version, which goes up with every recorded change
+     *
+     * @return The version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Check if anything changed since the last {@link #drain()}
+     *
+     * @return true if there is nothing to save
+     */
+    public boolean isEmpty() {
+        return !cleared && slots.isEmpty() && pouchChanges.isEmpty();
+    }
+
+    /**
+     * Take the changes recorded so far and start a new, empty journal at the same version
+     *
+     * @return The changes
+     */
+    public Delta drain() {
+        Delta delta = new Delta(this);
+        slots.clear();
+        pouchChanges.clear();
+        cleared = false;
+        return delta;
+    }
+
+    /**
+     * The changes recorded between two drains
+     */
+    public static final class Delta {
+
+        private final int[] slots;
+        private final Change[] changes;
+        private final Set<Change> pouchChanges;
+        private final boolean cleared;
+        private final long version;
+
+        private Delta(ChangeJournal journal) {
+            this.slots = new int[journal.slots.size()];
+            this.changes = new Change[slots.length];
+            int i = 0;
+            for (Map.Entry<Integer, Change> entry : journal.slots.entrySet()) {
+                slots[i] = entry.getKey();
+                changes[i] = entry.getValue();
+                i++;
+            }
+
+            this.pouchChanges = Collections.unmodifiableSet(journal.pouchChanges.clone());
+            this.cleared = journal.cleared;
+            this.version = journal.version;
+        }
+
+        /**
+         * Get the number of changed slots
+         *
+         * @return The number of changed slots
+         */
+        public int getSlotCount() {
+            return slots.length;
+        }
+
+        public int getSlot(int index) {
+            return slots[index];
+        }
+
+        public Change getChange(int index) {
+            return changes[index];
+        }
+
+        /**
+         * Check if a pouch-level change was recorded
+         *
+         * @param change The change
+         * @return true if it was recorded
+         */
+        public boolean contains(Change change) {
+            return pouchChanges.contains(change);
+        }
+
+        /**
+         * Check if all contents were replaced, in which case the slot changes are empty and the
+         * whole contents need to be written
+         *
+         * @return true if the contents were replaced
+         */
+        public boolean isCleared() {
+            return cleared;
+        }
+
+        /**
+         * Get the journal version this delta brings the saved data up to
+         *
+         * @return The version
+         */
+        public long getVersion() {
+            return version;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.brekfst.fruitPouches.content;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Live map view of a content store keyed by slot number as a string, for code that works
+ * with pouch contents as a map (GUI, actions, saving). Iterates in slot order. Putting a key
+ * that isn't a slot number stores the stack in the next free slot.
+ */
+public class ContentMapView extends AbstractMap<String, ItemStack> {
+
+    private final ContentStore store;
+    private final EntrySet entrySet;
+
+    /**
+     * Create a new map view
+     *
+     * @param store The content store to view
+     */
+    public ContentMapView(ContentStore store) {
+        this.store = store;
+        this.entrySet = new EntrySet();
+    }
+
+    /**
+     * Parse a map key into a slot
+     *
+     * @param key The key
+     * @return The slot, or -1 if the key isn't a slot number
+     */
+    public static int toSlot(Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+
+        String string = (String) key;
+        if (string.isEmpty() || string.length() > 9) {
+            return -1;
+        }
+
+        int slot = 0;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            slot = slot * 10 + (c - '0');
+        }
+
+        return slot;
+    }
+
+    @Override
+    public ItemStack get(Object key) {
+        int slot = toSlot(key);
+        return slot >= 0 ? store.get(slot) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public ItemStack put(String key, ItemStack value) {
+        if (value == null) {
+            return remove(key);
+        }
+
+        int slot = toSlot(key);
+        if (slot < 0) {
+            store.append(value);
+            return null;
+        }
+
+        ItemStack previous = store.get(slot);
+        store.put(slot, value);
+        return previous;
+    }
+
+    @Override
+    public ItemStack remove(Object key) {
+        int slot = toSlot(key);
+        return slot >= 0 ? store.remove(slot) : null;
+    }
+
+    @Override
+    public int size() {
+        return store.getStackCount();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return store.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        store.clear();
+    }
+
+    @Override
+    public Set<Entry<String, ItemStack>> entrySet() {
+        return entrySet;
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<String, ItemStack>> {
+
+        @Override
+        public Iterator<Entry<String, ItemStack>> iterator() {
+            return new Iterator<>() {
+                private int next = store.nextSlot(0);
+                private int last = -1;
+
+                @Override
+                public boolean hasNext() {
+                    return next >= 0;
+                }
+
+                @Override
+                public Entry<String, ItemStack> next() {
+                    if (next < 0) {
+                        throw new NoSuchElementException();
+                    }
+
+                    last = next;
+                    next = store.nextSlot(last + 1);
+                    return new SlotEntry(last);
+                }
+
+                @Override
+                public void remove() {
+                    if (last < 0) {
+                        throw new IllegalStateException();
+                    }
+
+                    store.remove(last);
+                    last = -1;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return store.getStackCount();
+        }
+    }
+
+    private final class SlotEntry implements Map.Entry<String, ItemStack> {
+        private final int slot;
+        private final ItemStack value;
+
+        private SlotEntry(int slot) {
+            this.slot = slot;
+            this.value = store.get(slot);
+        }
+
+        @Override
+        public String getKey() {
+            return String.valueOf(slot);
+        }
+
+        @Override
+        public ItemStack getValue() {
+            return value;
+        }
+
+        @Override
+        public ItemStack setValue(ItemStack value) {
+            ItemStack previous = store.get(slot);
+            store.put(slot, value);
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) other;
+            return getKey().equals(entry.getKey()) && Objects.equals(value, entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.brekfst.fruitPouches.content;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable view of a pouch's contents at one version. Taking a snapshot shares the store's
+ * arrays instead of copying them; the store copies them the next time it is written to, so a
+ * snapshot can be read from any thread (e.g. the async saver) while the pouch keeps changing.
+ */
+public final class ContentSnapshot {
+
+    private final ItemPrototype[] prototypes;
+    private final long[] amounts;
+    private final int size;
+    private final long totalAmount;
+    private final long version;
+
+    /**
+     * Create a new snapshot. The arrays must not be written to afterwards.
+     *
+     * @param prototypes The prototype of each slot (null for empty slots)
+     * @param amounts The amount of each slot
+     * @param size The number of used slots
+     * @param totalAmount The total amount over all slots
+     * @param version The store version this snapshot shows
+     */
+    ContentSnapshot(ItemPrototype[] prototypes, long[] amounts, int size, long totalAmount, long version) {
+        this.prototypes = prototypes;
+        this.amounts = amounts;
+        this.size = size;
+        this.totalAmount = totalAmount;
+        this.version = version;
+    }
+
+    /**
+     * Get the first used slot at or after the given slot
+     *
+     * @param from The slot to start at
+     * @return The slot, or -1 if there are no more entries
+     */
+    public int nextSlot(int from) {
+        for (int slot = Math.max(from, 0); slot < prototypes.length; slot++) {
+            if (prototypes[slot] != null) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the item in a slot
+     *
+     * @param slot The slot
+     * @return The shared prototype, or null if the slot is empty
+     */
+    public ItemPrototype getPrototype(int slot) {
+        return slot >= 0 && slot < prototypes.length ? prototypes[slot] : null;
+    }
+
+    /**
+     * Get the amount in a slot
+     *
+     * @param slot The slot
+     * @return The amount, or 0 if the slot is empty
+     */
+    public long getAmount(int slot) {
+        return getPrototype(slot) != null ? amounts[slot] : 0;
+    }
+
+    /**
+     * Build an item stack of the entry in a slot
+     *
+     * @param slot The slot
+     * @return A new stack, or null if the slot is empty
+     */
+    public ItemStack get(int slot) {
+        ItemPrototype prototype = getPrototype(slot);
+        return prototype != null ? prototype.toItemStack((int) Math.min(amounts[slot], Integer.MAX_VALUE)) : null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getTotalAmount() {
+        return totalAmount;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get a read-only map of this snapshot, keyed like {@link ContentMapView}
+     *
+     * @return The map
+     */
+    public Map<String, ItemStack> asMap() {
+        return new SnapshotMap();
+    }
+
+    private final class SnapshotMap extends AbstractMap<String, ItemStack> {
+
+        @Override
+        public ItemStack get(Object key) {
+            return ContentSnapshot.this.get(ContentMapView.toSlot(key));
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return getPrototype(ContentMapView.toSlot(key)) != null;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Set<Entry<String, ItemStack>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, ItemStack>> iterator() {
+                    return new Iterator<>() {
+                        private int next = nextSlot(0);
+
+                        @Override
+                        public boolean hasNext() {
+                            return next >= 0;
+                        }
+
+                        @Override
+                        public Entry<String, ItemStack> next() {
+                            if (next < 0) {
+                                throw new NoSuchElementException();
+                            }
+
+                            int slot = next;
+                            next = nextSlot(slot + 1);
+                            return new SimpleImmutableEntry<>(String.valueOf(slot), ContentSnapshot.this.get(slot));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+    }
+}
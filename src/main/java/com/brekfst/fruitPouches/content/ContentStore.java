@@ -0,0 +1,201 @@
+package com.brekfst.fruitPouches.content;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storage for the items inside a pouch. Each numbered slot holds a shared {@link ItemPrototype}
+ * and an amount; slot numbers stay the same until the entry is removed or the store is rebuilt.
+ * ItemStacks handed out are new copies, so changing them doesn't change the pouch.
+ */
+public interface ContentStore {
+
+    /**
+     * Add an amount of an item, merging into similar entries before starting new ones
+     *
+     * @param prototype The item
+     * @param amount The amount to add
+     * @param maxStacks The maximum number of entries the store may hold
+     * @return The amount that didn't fit
+     */
+    long add(ItemPrototype prototype, long amount, int maxStacks);
+
+    /**
+     * Add items, merging into similar entries before starting new ones
+     *
+     * @param item The items to add (not modified or kept)
+     * @param maxStacks The maximum number of entries the store may hold
+     * @return The amount that didn't fit
+     */
+    default int add(ItemStack item, int maxStacks) {
+        if (item.getAmount() <= 0) {
+            return 0;
+        }
+        return (int) add(ItemPrototype.of(item), item.getAmount(), maxStacks);
+    }
+
+    /**
+     * Add several items at once. Items are merged by prototype first, so each distinct item
+     * touches the store once; what fit is handed back to the items in order.
+     *
+     * @param items The items to add (not modified or kept)
+     * @param maxStacks The maximum number of entries the store may hold
+     * @return The accepted and overflowing amount of each item
+     */
+    default AddResult addAll(List<ItemStack> items, int maxStacks) {
+        AddResult result = new AddResult(items.size());
+        ItemPrototype[] prototypes = new ItemPrototype[items.size()];
+        Map<ItemPrototype, long[]> merged = new LinkedHashMap<>();
+
+        for (int i = 0; i < items.size(); i++) {
+            ItemStack item = items.get(i);
+            if (item != null && item.getAmount() > 0) {
+                prototypes[i] = ItemPrototype.of(item);
+                merged.computeIfAbsent(prototypes[i], k -> new long[1])[0] += item.getAmount();
+            }
+        }
+
+        // Replace each requested total with the accepted total
+        for (Map.Entry<ItemPrototype, long[]> entry : merged.entrySet()) {
+            long requested = entry.getValue()[0];
+            entry.getValue()[0] = requested - add(entry.getKey(), requested, maxStacks);
+        }
+
+        for (int i = 0; i < items.size(); i++) {
+            if (prototypes[i] == null) {
+                continue;
+            }
+
+            long[] accepted = merged.get(prototypes[i]);
+            int amount = items.get(i).getAmount();
+            int taken = (int) Math.min(amount, accepted[0]);
+            accepted[0] -= taken;
+            result.set(i, taken, amount - taken);
+        }
+
+        return result;
+    }
+
+    /**
+     * Store an amount of an item without capacity checks, used when loading or rebuilding contents
+     *
+     * @param prototype The item
+     * @param amount The amount to store
+     * @return The (first) slot it was stored in
+     */
+    int append(ItemPrototype prototype, long amount);
+
+    /**
+     * Store an item stack without capacity checks
+     *
+     * @param item The stack (not kept)
+     * @return The (first) slot it was stored in
+     */
+    default int append(ItemStack item) {
+        return append(ItemPrototype.of(item), item.getAmount());
+    }
+
+    /**
+     * Replace the stack in a slot
+     *
+     * @param slot The slot
+     * @param item The new stack (not kept), or null to clear the slot
+     */
+    void put(int slot, ItemStack item);
+
+    /**
+     * Build an item stack of the entry in a slot
+     *
+     * @param slot The slot
+     * @return A new stack with the slot's amount, or null if the slot is empty
+     */
+    ItemStack get(int slot);
+
+    /**
+     * Get the item in a slot without building a stack
+     *
+     * @param slot The slot
+     * @return The shared prototype, or null if the slot is empty
+     */
+    ItemPrototype getPrototype(int slot);
+
+    /**
+     * Get the amount in a slot
+     *
+     * @param slot The slot
+     * @return The amount, or 0 if the slot is empty
+     */
+    long getAmount(int slot);
+
+    /**
+     * Take up to the given amount out of a slot, clearing it when it runs out
+     *
+     * @param slot The slot
+     * @param amount The amount to take
+     * @return The amount actually taken
+     */
+    long removeAmount(int slot, long amount);
+
+    /**
+     * Clear a slot
+     *
+     * @param slot The slot
+     * @return A stack of what was in the slot, or null
+     */
+    ItemStack remove(int slot);
+
+    /**
+     * Get the first used slot at or after the given slot
+     *
+     * @param from The slot to start at
+     * @return The slot, or -1 if there are no more stacks
+     */
+    int nextSlot(int from);
+
+    /**
+     * Get the number of stacks
+     *
+     * @return The stack count
+     */
+    int getStackCount();
+
+    /**
+     * Get the total amount of items over all slots
+     *
+     * @return The item count
+     */
+    long getTotalAmount();
+
+    /**
+     * Check if the store holds no stacks
+     *
+     * @return true if empty
+     */
+    default boolean isEmpty() {
+        return getStackCount() == 0;
+    }
+
+    /**
+     * Remove every stack
+     */
+    void clear();
+
+    /**
+     * Get an immutable snapshot of the current contents. Cheap: the snapshot shares the
+     * store's data until the next change. Must be taken on the thread that writes to the
+     * store (the main thread); the snapshot itself can then be read anywhere.
+     *
+     * @return The snapshot
+     */
+    ContentSnapshot snapshot();
+
+    /**
+     * Get the version of the contents, bumped on every change
+     *
+     * @return The version
+     */
+    long getVersion();
+}
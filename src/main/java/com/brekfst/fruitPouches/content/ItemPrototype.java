@@ -0,0 +1,114 @@
+package com.brekfst.fruitPouches.content;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Map;
+
+/**
+ * Immutable description of an item without an amount: material plus metadata. Prototypes are
+ * interned through the {@link PrototypePool}, so every pouch holding the same item points at
+ * the same instance and real ItemStacks are only built when they leave the store.
+ */
+public final class ItemPrototype {
+
+    private final ItemStack item;
+    private final int hash;
+
+    private ItemPrototype(ItemStack item, int hash) {
+        this.item = item;
+        this.hash = hash;
+    }
+
+    /**
+     * Wrap an item for a pool lookup without copying it
+     *
+     * @param item The item
+     * @return A prototype that must not be stored
+     */
+    static ItemPrototype probe(ItemStack item) {
+        return new ItemPrototype(item, hash(item));
+    }
+
+    /**
+     * Turn a probe into a prototype owning its own one-item copy
+     *
+     * @return The prototype
+     */
+    ItemPrototype detach() {
+        ItemStack copy = item.clone();
+        copy.setAmount(1);
+        return new ItemPrototype(copy, hash);
+    }
+
+    /**
+     * Get the interned prototype of an item
+     *
+     * @param item The item (amount is ignored)
+     * @return The shared prototype
+     */
+    public static ItemPrototype of(ItemStack item) {
+        return PrototypePool.shared().intern(item);
+    }
+
+    private static int hash(ItemStack item) {
+        return 31 * item.getType().hashCode() + (item.hasItemMeta() ? item.getItemMeta().hashCode() : 0);
+    }
+
+    /**
+     * Build a real item stack of this item
+     *
+     * @param amount The stack amount
+     * @return A new item stack
+     */
+    public ItemStack toItemStack(int amount) {
+        ItemStack stack = item.clone();
+        stack.setAmount(amount);
+        return stack;
+    }
+
+    /**
+     * Check if an item stack is this item, ignoring amount
+     *
+     * @param other The item stack
+     * @return true if the stack is similar
+     */
+    public boolean matches(ItemStack other) {
+        return item.isSimilar(other);
+    }
+
+    public Material getType() {
+        return item.getType();
+    }
+
+    public int getMaxStackSize() {
+        return item.getMaxStackSize();
+    }
+
+    /**
+     * Serialize this item with an amount of one
+     *
+     * @return The serialized item
+     */
+    public Map<String, Object> serialize() {
+        return item.serialize();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ItemPrototype)) {
+            return false;
+        }
+
+        ItemPrototype prototype = (ItemPrototype) other;
+        return hash == prototype.hash && item.isSimilar(prototype.item);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
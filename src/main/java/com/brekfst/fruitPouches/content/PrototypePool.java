@@ -0,0 +1,71 @@
+package com.brekfst.fruitPouches.content;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Weak interning pool for item prototypes shared by every pouch. A prototype stays in the pool
+ * while some pouch still holds it and is dropped by the garbage collector afterwards.
+ */
+public final class PrototypePool {
+
+    private static final PrototypePool SHARED = new PrototypePool();
+
+    private final Map<ItemPrototype, WeakReference<ItemPrototype>> pool;
+
+    // Metrics
+    private long hits;
+    private long misses;
+
+    private PrototypePool() {
+        this.pool = new WeakHashMap<>();
+    }
+
+    /**
+     * Get the pool shared by all pouches
+     *
+     * @return The shared pool
+     */
+    public static PrototypePool shared() {
+        return SHARED;
+    }
+
+    /**
+     * Get the shared prototype of an item, adding it if it's new
+     *
+     * @param item The item (amount is ignored, not kept)
+     * @return The interned prototype
+     */
+    public synchronized ItemPrototype intern(ItemStack item) {
+        ItemPrototype probe = ItemPrototype.probe(item);
+
+        WeakReference<ItemPrototype> reference = pool.get(probe);
+        ItemPrototype prototype = reference != null ? reference.get() : null;
+        if (prototype != null) {
+            hits++;
+            return prototype;
+        }
+
+        prototype = probe.detach();
+        pool.put(prototype, new WeakReference<>(prototype));
+        misses++;
+        return prototype;
+    }
+
+    // Metrics
+
+    public synchronized int getSize() {
+        return pool.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,233 @@
+package com.brekfst.fruitPouches.content;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Content store keeping regular stacks in a dense array of slots, each a shared prototype plus
+ * an amount up to the max stack size. Stacks that still have room are indexed by prototype, so
+ * adding an item only looks at the stacks it can merge with, and never at full ones. Freed
+ * slots are reused lowest first.
+ */
+public class SlotContentStore extends AbstractContentStore {
+
+    // Slots that aren't full yet; prototypes are interned, so identity is enough
+    private final Map<ItemPrototype, SlotList> index;
+
+    /**
+     * Create a new empty slot content store
+     */
+    public SlotContentStore() {
+        this(null);
+    }
+
+    /**
+     * Create a new empty slot content store
+     *
+     * @param journal The journal to record changes in, or null to not record them
+     */
+    public SlotContentStore(ChangeJournal journal) {
+        super(journal);
+        this.index = new IdentityHashMap<>();
+    }
+
+    @Override
+    public long add(ItemPrototype prototype, long amount, int maxStacks) {
+        long remaining = amount;
+        if (remaining <= 0) {
+            return 0;
+        }
+
+        beforeWrite();
+        int maxStackSize = Math.max(prototype.getMaxStackSize(), 1);
+
+        // Top up similar stacks first, lowest slot first; stacks that fill up leave the index
+        SlotList slots = index.get(prototype);
+        if (slots != null) {
+            while (slots.size > 0 && remaining > 0) {
+                int slot = slots.slots[0];
+                long added = Math.min(maxStackSize - amounts[slot], remaining);
+                amounts[slot] += added;
+                total += added;
+                remaining -= added;
+                record(slot, ChangeJournal.Change.AMOUNT_CHANGED);
+
+                if (amounts[slot] >= maxStackSize) {
+                    slots.remove(slot);
+                }
+            }
+            if (slots.size == 0) {
+                index.remove(prototype);
+            }
+        }
+
+        // Start new stacks for the rest
+        while (remaining > 0 && count < maxStacks) {
+            long stackAmount = Math.min(remaining, maxStackSize);
+            store(used.nextClearBit(0), prototype, stackAmount);
+            remaining -= stackAmount;
+        }
+
+        return remaining;
+    }
+
+    @Override
+    public int append(ItemPrototype prototype, long amount) {
+        if (amount <= 0) {
+            return -1;
+        }
+
+        beforeWrite();
+
+        // Split into regular stacks, e.g. when loading contents saved by a bulk pouch
+        int maxStackSize = Math.max(prototype.getMaxStackSize(), 1);
+        int first = -1;
+        do {
+            long stackAmount = Math.min(amount, maxStackSize);
+            int slot = used.nextClearBit(0);
+            store(slot, prototype, stackAmount);
+
+            if (first < 0) {
+                first = slot;
+            }
+            amount -= stackAmount;
+        } while (amount > 0);
+
+        return first;
+    }
+
+    @Override
+    public void put(int slot, ItemStack item) {
+        if (slot < 0) {
+            throw new IllegalArgumentException("Negative slot: " + slot);
+        }
+
+        remove(slot);
+        if (item != null) {
+            beforeWrite();
+            store(slot, ItemPrototype.of(item), item.getAmount());
+        }
+    }
+
+    /**
+     * Fill an empty slot
+     *
+     * @param slot The slot
+     * @param prototype The item
+     * @param amount The amount
+     */
+    private void store(int slot, ItemPrototype prototype, long amount) {
+        ensureCapacity(slot);
+
+        prototypes[slot] = prototype;
+        amounts[slot] = amount;
+        used.set(slot);
+        count++;
+        total += amount;
+        if (amount < Math.max(prototype.getMaxStackSize(), 1)) {
+            index.computeIfAbsent(prototype, k -> new SlotList()).add(slot);
+        }
+        record(slot, ChangeJournal.Change.SLOT_ADDED);
+    }
+
+    @Override
+    public long removeAmount(int slot, long amount) {
+        if (getPrototype(slot) == null || amount <= 0) {
+            return 0;
+        }
+
+        long taken = Math.min(amount, amounts[slot]);
+        if (taken >= amounts[slot]) {
+            remove(slot);
+        } else {
+            beforeWrite();
+            boolean wasFull = amounts[slot] >= Math.max(prototypes[slot].getMaxStackSize(), 1);
+            amounts[slot] -= taken;
+            total -= taken;
+            record(slot, ChangeJournal.Change.AMOUNT_CHANGED);
+
+            if (wasFull) {
+                // Has room again
+                index.computeIfAbsent(prototypes[slot], k -> new SlotList()).add(slot);
+            }
+        }
+
+        return taken;
+    }
+
+    @Override
+    public ItemStack remove(int slot) {
+        ItemStack stack = get(slot);
+        if (stack == null) {
+            return null;
+        }
+
+        beforeWrite();
+        ItemPrototype prototype = prototypes[slot];
+        SlotList slots = index.get(prototype);
+        // Full stacks aren't in the index
+        if (slots != null && slots.remove(slot) && slots.size == 0) {
+            index.remove(prototype);
+        }
+
+        total -= amounts[slot];
+        prototypes[slot] = null;
+        amounts[slot] = 0;
+        used.clear(slot);
+        count--;
+        record(slot, ChangeJournal.Change.SLOT_REMOVED);
+        return stack;
+    }
+
+    @Override
+    protected void clearIndex() {
+        index.clear();
+    }
+
+    /**
+     * Get the number of distinct items with a stack that isn't full
+     *
+     * @return The index size
+     */
+    public int getIndexSize() {
+        return index.size();
+    }
+
+    /**
+     * Slots holding similar stacks with room left, kept in ascending order so merges fill the
+     * lowest slot first
+     */
+    private static final class SlotList {
+        private int[] slots = new int[2];
+        private int size;
+
+        private void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+
+            int position = size;
+            while (position > 0 && slots[position - 1] > slot) {
+                slots[position] = slots[position - 1];
+                position--;
+            }
+
+            slots[position] = slot;
+            size++;
+        }
+
+        private boolean remove(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    System.arraycopy(slots, i + 1, slots, i, size - i - 1);
+                    size--;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.brekfst.fruitPouches.data;
+
+import com.brekfst.fruitPouches.FruitPouches;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.MemoryConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Player storage keeping one binary file per player ({@code data/players/<uuid>.dat}, see
+ * {@link PouchCodec}). Each pouch is encoded into its own block and the blocks are kept in
+ * memory, so a save only encodes the pouches that changed and copies the rest as they are.
+ * <p>
+ * Players that only have a YAML file are upgraded when they are loaded: the binary file is
+ * written and the YAML file is renamed to {@code <uuid>.yml.old}. Files are replaced atomically
+ * and the previous version is kept as {@code <uuid>.dat.prev}, which is loaded instead if the
+ * file is damaged.
+ */
+public class BinaryPlayerStorage extends DataManager implements PlayerStorage {
+
+    private final boolean compress;
+    private final Map<UUID, PouchCodec.FileData> files;
+
+    /**
+     * Create a new binary player storage
+     *
+     * @param plugin The plugin instance
+     * @param compress Whether to deflate the files
+     */
+    public BinaryPlayerStorage(FruitPouches plugin, boolean compress) {
+        super(plugin);
+        this.compress = compress;
+        this.files = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void open() {
+        // Nothing to open, the data directories are created by DataManager
+    }
+
+    @Override
+    public ConfigurationSection load(UUID playerId) throws Exception {
+        File file = getBinaryFile(playerId);
+        if (file.exists() || getPreviousFile(file).exists()) {
+            // Decoding is part of reading, so a damaged header also falls back to the previous
+            // version; contents are only decoded for the pouches the player uses
+            return readWithFallback(file, source -> {
+                PouchCodec.FileData data = read(source);
+                ConfigurationSection layout = toLayout(data, true);
+                files.put(playerId, data);
+                return layout;
+            });
+        }
+
+        File legacyFile = getPlayerDataFile(playerId);
+        if (legacyFile.exists()) {
+            YamlConfiguration config = readWithFallback(legacyFile, this::loadConfigStrict);
+            PouchCodec.FileData data = fromLayout(config);
+            write(playerId, data);
+            files.put(playerId, data);
+
+            if (!legacyFile.renameTo(new File(legacyFile.getPath() + ".old"))) {
+                plugin.getDebug().log("Could not rename upgraded player file " + legacyFile.getName());
+            }
+            plugin.getDebug().log("Upgraded player data for " + playerId + " to the binary format");
+            return config;
+        }
+
+        files.put(playerId, new PouchCodec.FileData());
+        return null;
+    }
+
+    @Override
+    public void save(UUID playerId, List<PlayerSave> saves) throws Exception {
+        PouchCodec.FileData data = files.get(playerId);
+        if (data == null) {
+            // Only happens if the player was saved without being loaded
+            load(playerId);
+            data = files.get(playerId);
+        }
+
+        for (PlayerSave save : saves) {
+            for (PlayerSave.PouchWrite write : save.getPouches()) {
+                // Blocks are always whole, the delta only decides which pouches are encoded
+                data.pouches.put(write.getPouchId(), PouchCodec.encode(write));
+            }
+
+            if (save.getSkins() != null) {
+                data.skins.clear();
+                for (Map.Entry<String, Set<String>> entry : save.getSkins().entrySet()) {
+                    data.skins.put(entry.getKey(), new HashSet<>(entry.getValue()));
+                }
+            }
+        }
+
+        write(playerId, data);
+    }
+
+    @Override
+    public void replace(UUID playerId, ConfigurationSection data) throws Exception {
+        PouchCodec.FileData fileData = fromLayout(data);
+        write(playerId, fileData);
+        files.put(playerId, fileData);
+    }
+
+    /**
+     * Read a binary player file
+     *
+     * @param file The file
+     * @return The pouch blocks and skins
+     * @throws IOException If the file is missing or damaged
+     */
+    private PouchCodec.FileData read(File file) throws IOException {
+        try (InputStream input = new BufferedInputStream(new FileInputStream(file))) {
+            return PouchCodec.readFile(input);
+        }
+    }
+
+    /**
+     * Write a player's binary file, keeping the previous version next to it
+     *
+     * @param playerId The player UUID
+     * @param data The pouch blocks and skins
+     * @throws IOException If writing failed
+     */
+    private void write(UUID playerId, PouchCodec.FileData data) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PouchCodec.writeFile(output, data, compress);
+        writeAtomically(getBinaryFile(playerId), output.toByteArray(), true);
+    }
+
+    /**
+     * Decode every pouch block into the YAML player file layout
+     *
+     * @param data The pouch blocks and skins
+     * @param headersOnly Whether to leave the contents encoded (see {@link PouchCodec#decodeHeader})
+     * @return The layout
+     * @throws IOException If a block is damaged
+     */
+    static ConfigurationSection toLayout(PouchCodec.FileData data, boolean headersOnly) throws IOException {
+        MemoryConfiguration layout = new MemoryConfiguration();
+        ConfigurationSection pouchesSection = layout.createSection("pouches");
+        for (Map.Entry<String, byte[]> entry : data.pouches.entrySet()) {
+            if (headersOnly) {
+                PouchCodec.decodeHeader(entry.getValue(), pouchesSection.createSection(entry.getKey()));
+            } else {
+                PouchCodec.decode(entry.getValue(), pouchesSection.createSection(entry.getKey()));
+            }
+        }
+
+        ConfigurationSection skinsSection = layout.createSection("skins");
+        for (Map.Entry<String, Set<String>> entry : data.skins.entrySet()) {
+            skinsSection.set(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        return layout;
+    }
+
+    /**
+     * Encode data in the YAML player file layout
+     *
+     * @param layout The layout
+     * @return The pouch blocks and skins
+     * @throws IOException If an item could not be written
+     */
+    static PouchCodec.FileData fromLayout(ConfigurationSection layout) throws IOException {
+        PouchCodec.FileData data = new PouchCodec.FileData();
+        ConfigurationSection pouchesSection = layout.getConfigurationSection("pouches");
+        if (pouchesSection != null) {
+            for (String pouchId : pouchesSection.getKeys(false)) {
+                data.pouches.put(pouchId, PouchCodec.encode(pouchesSection.getConfigurationSection(pouchId)));
+            }
+        }
+
+        ConfigurationSection skinsSection = layout.getConfigurationSection("skins");
+        if (skinsSection != null) {
+            for (String pouchId : skinsSection.getKeys(false)) {
+                data.skins.put(pouchId, new HashSet<>(skinsSection.getStringList(pouchId)));
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Get a player's binary file
+     *
+     * @param playerId The player UUID
+     * @return The file
+     */
+    private File getBinaryFile(UUID playerId) {
+        return new File(plugin.getDataFolder(), "data/players/" + playerId + ".dat");
+    }
+
+    @Override
+    public Collection<UUID> getStoredPlayers() {
+        Set<UUID> players = new LinkedHashSet<>();
+        File[] files = new File(plugin.getDataFolder(), "data/players").listFiles((dir, name) -> name.endsWith(".dat") || name.endsWith(".yml"));
+        if (files == null) {
+            return players;
+        }
+
+        for (File file : files) {
+            try {
+                players.add(UUID.fromString(file.getName().substring(0, file.getName().length() - 4)));
+            } catch (IllegalArgumentException e) {
+                plugin.getDebug().log("Skipping player data file with invalid name: " + file.getName());
+            }
+        }
+        return players;
+    }
+
+    @Override
+    public void unload(UUID playerId) {
+        files.remove(playerId);
+    }
+
+    @Override
+    public void close() {
+        files.clear();
+    }
+
+    @Override
+    public String getType() {
+        return "binary";
+    }
+}
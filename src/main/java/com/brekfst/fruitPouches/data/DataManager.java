@@ -1,11 +1,21 @@
 package com.brekfst.fruitPouches.data;
 
 import com.brekfst.fruitPouches.FruitPouches;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.YamlConfiguration;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Base class for data managers
@@ -14,6 +24,9 @@ public class DataManager {
 
     protected final FruitPouches plugin;
 
+    // Metrics
+    private final AtomicLong fileSyncs = new AtomicLong();
+
     /**
      * Create a new data manager
      *
@@ -63,6 +76,21 @@ public class DataManager {
         return YamlConfiguration.loadConfiguration(file);
     }
 
+    /**
+     * Load YAML configuration from a file, failing instead of returning an empty configuration
+     * if the file is missing or damaged
+     *
+     * @param file The file
+     * @return The YAML configuration
+     * @throws IOException If the file could not be read
+     * @throws InvalidConfigurationException If the file is not valid YAML
+     */
+    protected YamlConfiguration loadConfigStrict(File file) throws IOException, InvalidConfigurationException {
+        YamlConfiguration config = new YamlConfiguration();
+        config.load(file);
+        return config;
+    }
+
     /**
      * Save YAML configuration to a file
      *
@@ -71,12 +99,136 @@ public class DataManager {
      */
     protected void saveConfig(YamlConfiguration config, File file) {
         try {
-            config.save(file);
+            writeAtomically(file, config.saveToString().getBytes(StandardCharsets.UTF_8), false);
         } catch (IOException e) {
             plugin.getDebug().logException(e, "Failed to save file: " + file.getPath());
         }
     }
 
+    /**
+     * Replace a file without ever leaving it half written. The data goes to a temp file, which
+     * is flushed to disk and then renamed over the file, so after a crash the file holds either
+     * the old or the new data.
+     *
+     * @param file The file
+     * @param data The new contents
+     * @param keepPrevious Whether to keep the old contents as the {@link #getPreviousFile previous generation}
+     * @throws IOException If writing failed; the file is then left as it was
+     */
+    protected void writeAtomically(File file, byte[] data, boolean keepPrevious) throws IOException {
+        Path target = file.toPath();
+        Path temp = target.resolveSibling(file.getName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+            fileSyncs.incrementAndGet();
+        }
+
+        // If we crash between these two moves only the previous generation is left, which
+        // readWithFallback picks up
+        if (keepPrevious && Files.exists(target)) {
+            move(target, getPreviousFile(file).toPath());
+        }
+        move(temp, target);
+        syncDirectory(target.getParent());
+    }
+
+    /**
+     * Rename a file, atomically where the file system supports it
+     *
+     * @param source The file to rename
+     * @param target The new name, replaced if it exists
+     * @throws IOException If renaming failed
+     */
+    private void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Flush a directory to disk so renames in it survive a crash
+     *
+     * @param directory The directory
+     */
+    private void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+            fileSyncs.incrementAndGet();
+        } catch (IOException e) {
+            // Not every platform can open directories (Windows can't); the rename is still atomic
+        }
+    }
+
+    /**
+     * Get the number of files and directories {@link #writeAtomically} synced to disk
+     *
+     * @return The number of syncs
+     */
+    public long getFileSyncs() {
+        return fileSyncs.get();
+    }
+
+    /**
+     * Get the previous generation of a file, as kept by {@link #writeAtomically}
+     *
+     * @param file The file
+     * @return The previous generation
+     */
+    protected File getPreviousFile(File file) {
+        return new File(file.getPath() + ".prev");
+    }
+
+    /**
+     * Read a file, or its previous generation if the file is missing or damaged
+     *
+     * @param file The file
+     * @param reader How to read it
+     * @param <T> The type of data read
+     * @return The data
+     * @throws Exception If neither generation could be read
+     */
+    protected <T> T readWithFallback(File file, FileReader<T> reader) throws Exception {
+        File previous = getPreviousFile(file);
+        try {
+            return reader.read(file);
+        } catch (Exception e) {
+            if (!previous.exists()) {
+                throw e;
+            }
+            plugin.getDebug().logException(e, "Failed to read " + file.getName() + ", using the previous version");
+        }
+
+        T data = reader.read(previous);
+        plugin.getLogger().warning("Restored " + file.getName() + " from its previous version");
+        return data;
+    }
+
+    /**
+     * Reads a data file
+     *
+     * @param <T> The type of data read
+     */
+    @FunctionalInterface
+    protected interface FileReader<T> {
+
+        /**
+         * Read a data file
+         *
+         * @param file The file
+         * @return The data
+         * @throws Exception If the file is missing or damaged
+         */
+        T read(File file) throws Exception;
+    }
+
     /**
      * Create a backup of a file
      *
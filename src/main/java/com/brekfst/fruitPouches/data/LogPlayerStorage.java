@@ -0,0 +1,927 @@
+package com.brekfst.fruitPouches.data;
+
+import com.brekfst.fruitPouches.FruitPouches;
+import com.brekfst.fruitPouches.content.ChangeJournal;
+import com.brekfst.fruitPouches.content.ContentSnapshot;
+import com.brekfst.fruitPouches.content.ItemPrototype;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.MemoryConfiguration;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.util.io.BukkitObjectInputStream;
+import org.bukkit.util.io.BukkitObjectOutputStream;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Player storage that appends every save to a log instead of rewriting the player's data
+ * ({@code data/log}). Writes are sequential: a save becomes one record in the active segment,
+ * a memory-mapped file, and saves that arrive while the segment is being flushed to disk are
+ * made durable by the next flush together (group commit).
+ * <p>
+ * Records carry what {@link PlayerSave} carries: a whole pouch when the pouch is written in
+ * full, otherwise its meta and just the changed entries. Full segments are sealed, and a
+ * background task compacts sealed segments by folding their records into one snapshot file per
+ * player ({@code data/log/snapshots/<uuid>.dat}) and deleting them. Loading a player reads the
+ * snapshot and replays the records written after it; on startup the segments are scanned and a
+ * torn record at the end of the log (from a crash mid-write) is dropped.
+ * <p>
+ * Players without data in the log are imported from their player file the first time they load.
+ */
+public class LogPlayerStorage extends DataManager implements PlayerStorage {
+
+    // "FPLG"
+    private static final int SEGMENT_MAGIC = 0x46504C47;
+    private static final int SEGMENT_VERSION = 1;
+    // Magic, version, LSN the segment continues from
+    private static final int SEGMENT_HEADER_SIZE = 16;
+    // Payload length, CRC, LSN, player
+    static final int RECORD_HEADER_SIZE = 32;
+
+    private static final int OP_END = 0;
+    private static final int OP_POUCH = 1;
+    private static final int OP_DELTA = 2;
+    private static final int OP_SKINS = 3;
+    private static final int OP_RESET = 4;
+
+    private static final int ENTRY_SET = 0;
+    private static final int ENTRY_AMOUNT = 1;
+    private static final int ENTRY_REMOVE = 2;
+
+    private final PlayerStorage legacy;
+    private final File directory;
+    private final File snapshotDirectory;
+    private final int segmentSize;
+    private final long compactInterval;
+
+    // Guards the segments, the record index and the LSNs
+    private final Object lock = new Object();
+    // Held to read records, taken exclusively to delete compacted segments
+    private final ReentrantReadWriteLock segmentLock = new ReentrantReadWriteLock();
+    private final Object compactionLock = new Object();
+    private final List<Segment> sealed = new ArrayList<>();
+    private final Map<UUID, List<RecordRef>> records = new HashMap<>();
+    private Segment active;
+    private long lastLsn;
+    private long durableLsn;
+    private boolean syncing;
+    private boolean closed;
+    private BukkitTask compactionTask;
+
+    // Metrics
+    private final AtomicLong recordsAppended = new AtomicLong();
+    private final AtomicLong bytesAppended = new AtomicLong();
+    private final AtomicLong syncs = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+    private volatile long lastCompactionNanos;
+
+    /**
+     * Create a new log player storage
+     *
+     * @param plugin The plugin instance
+     * @param legacy The player files to import players from
+     */
+    public LogPlayerStorage(FruitPouches plugin, PlayerStorage legacy) {
+        this(plugin, legacy, new File(plugin.getDataFolder(), "data/log"));
+    }
+
+    /**
+     * Create a new log player storage in another directory, e.g. for the storage benchmark
+     *
+     * @param plugin The plugin instance
+     * @param legacy The player files to import players from, or null to not import any
+     * @param directory The directory to keep the log in
+     */
+    LogPlayerStorage(FruitPouches plugin, PlayerStorage legacy, File directory) {
+        super(plugin);
+        this.legacy = legacy;
+        this.directory = directory;
+        this.snapshotDirectory = new File(directory, "snapshots");
+        this.segmentSize = Math.max(1, plugin.getConfig().getInt("data.log.segment-size", 16)) * 1024 * 1024;
+        this.compactInterval = Math.max(10, plugin.getConfig().getLong("data.log.compact-interval", 300)) * 20L;
+    }
+
+    @Override
+    public void open() throws Exception {
+        snapshotDirectory.mkdirs();
+
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".log"));
+        if (files != null) {
+            Arrays.sort(files, Comparator.comparing(File::getName));
+        }
+
+        synchronized (lock) {
+            if (files != null) {
+                for (File file : files) {
+                    Segment segment = new Segment(Long.parseLong(file.getName().substring(0, file.getName().length() - 4)), file);
+                    recover(segment);
+                    sealed.add(segment);
+                }
+            }
+
+            if (sealed.isEmpty()) {
+                active = createSegment(1, segmentSize);
+            } else {
+                // Keep appending to the last segment
+                active = sealed.remove(sealed.size() - 1);
+                active.map();
+            }
+            durableLsn = lastLsn;
+        }
+
+        compactionTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::compact, compactInterval, compactInterval);
+        plugin.getDebug().log("Opened player log with " + (sealed.size() + 1) + " segments, at record " + lastLsn);
+    }
+
+    /**
+     * Scan a segment and index its records, stopping at the first record that is incomplete
+     * or damaged
+     *
+     * @param segment The segment
+     * @throws IOException If the segment could not be read
+     */
+    private void recover(Segment segment) throws IOException {
+        FileChannel channel = segment.channel;
+        long size = channel.size();
+
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+        readFully(channel, header, 0);
+        if (header.getInt(0) != SEGMENT_MAGIC || header.getInt(4) > SEGMENT_VERSION) {
+            throw new IOException("Not a player log segment: " + segment.file.getName());
+        }
+        lastLsn = Math.max(lastLsn, header.getLong(8));
+        segment.lastLsn = lastLsn;
+
+        long offset = SEGMENT_HEADER_SIZE;
+        ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        while (offset + RECORD_HEADER_SIZE <= size) {
+            recordHeader.clear();
+            readFully(channel, recordHeader, offset);
+            int length = recordHeader.getInt(0);
+            long lsn = recordHeader.getLong(8);
+            if (length <= 0 || offset + RECORD_HEADER_SIZE + length > size || lsn <= lastLsn) {
+                if (length != 0) {
+                    plugin.getLogger().warning("Dropping damaged end of player log " + segment.file.getName() + " at " + offset);
+                }
+                break;
+            }
+
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(channel, payload, offset + RECORD_HEADER_SIZE);
+            if (checksum(recordHeader.array(), payload.array(), length) != recordHeader.getInt(4)) {
+                plugin.getLogger().warning("Dropping damaged end of player log " + segment.file.getName() + " at " + offset);
+                break;
+            }
+
+            UUID playerId = new UUID(recordHeader.getLong(16), recordHeader.getLong(24));
+            records.computeIfAbsent(playerId, id -> new ArrayList<>()).add(new RecordRef(segment, offset, length, lsn));
+            lastLsn = lsn;
+            segment.lastLsn = lsn;
+            offset += RECORD_HEADER_SIZE + length;
+        }
+        segment.position = (int) offset;
+    }
+
+    @Override
+    public ConfigurationSection load(UUID playerId) throws Exception {
+        segmentLock.readLock().lock();
+        try {
+            List<RecordRef> refs = getRecords(playerId, Long.MAX_VALUE);
+            if (refs.isEmpty() && !getSnapshotFile(playerId).exists()) {
+                return importLegacy(playerId);
+            }
+            return replay(playerId, refs, Long.MAX_VALUE);
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Import a player that is not in the log yet from their player file
+     *
+     * @param playerId The player UUID
+     * @return The imported data, or null if there was no player file either
+     * @throws Exception If the player file could not be read or the log written
+     */
+    private ConfigurationSection importLegacy(UUID playerId) throws Exception {
+        if (legacy == null) {
+            return null;
+        }
+
+        ConfigurationSection data = legacy.load(playerId);
+        legacy.unload(playerId);
+        if (data == null) {
+            return null;
+        }
+
+        replace(playerId, data);
+        plugin.getDebug().log("Imported player data for " + playerId + " from " + legacy.getType() + " into the log");
+        return data;
+    }
+
+    @Override
+    public void save(UUID playerId, List<PlayerSave> saves) throws Exception {
+        long lsn = 0;
+        for (PlayerSave save : saves) {
+            lsn = append(playerId, encode(save));
+        }
+        sync(lsn);
+    }
+
+    @Override
+    public void replace(UUID playerId, ConfigurationSection data) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BukkitObjectOutputStream out = new BukkitObjectOutputStream(bytes)) {
+            out.writeByte(OP_RESET);
+
+            ConfigurationSection pouchesSection = data.getConfigurationSection("pouches");
+            if (pouchesSection != null) {
+                for (String pouchId : pouchesSection.getKeys(false)) {
+                    byte[] block = PouchCodec.encode(pouchesSection.getConfigurationSection(pouchId));
+                    out.writeByte(OP_POUCH);
+                    out.writeUTF(pouchId);
+                    out.writeInt(block.length);
+                    out.write(block);
+                }
+            }
+
+            ConfigurationSection skinsSection = data.getConfigurationSection("skins");
+            if (skinsSection != null) {
+                Map<String, Set<String>> skins = new HashMap<>();
+                for (String pouchId : skinsSection.getKeys(false)) {
+                    skins.put(pouchId, new HashSet<>(skinsSection.getStringList(pouchId)));
+                }
+                writeSkins(out, skins);
+            }
+            out.writeByte(OP_END);
+        }
+
+        sync(append(playerId, bytes.toByteArray()));
+    }
+
+    /**
+     * Encode a save into a record payload. Pouches written in full are stored as a
+     * {@link PouchCodec} block; for the others only the meta and the changed entries are stored.
+     *
+     * @param save The save
+     * @return The payload
+     * @throws IOException If an item could not be written
+     */
+    static byte[] encode(PlayerSave save) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (BukkitObjectOutputStream out = new BukkitObjectOutputStream(bytes)) {
+            for (PlayerSave.PouchWrite write : save.getPouches()) {
+                ChangeJournal.Delta changes = write.getChanges();
+                if (changes == null || changes.isCleared()) {
+                    byte[] block = PouchCodec.encode(write);
+                    out.writeByte(OP_POUCH);
+                    out.writeUTF(write.getPouchId());
+                    out.writeInt(block.length);
+                    out.write(block);
+                    continue;
+                }
+
+                out.writeByte(OP_DELTA);
+                out.writeUTF(write.getPouchId());
+                // The meta is a few bytes, so it is always written instead of checking what changed
+                PouchCodec.writeMeta(out, write);
+
+                ContentSnapshot contents = write.getContents();
+                out.writeInt(changes.getSlotCount());
+                for (int i = 0; i < changes.getSlotCount(); i++) {
+                    int slot = changes.getSlot(i);
+                    ItemPrototype prototype = contents.getPrototype(slot);
+                    out.writeInt(slot);
+                    if (changes.getChange(i) == ChangeJournal.Change.SLOT_REMOVED || prototype == null) {
+                        out.writeByte(ENTRY_REMOVE);
+                    } else if (changes.getChange(i) == ChangeJournal.Change.AMOUNT_CHANGED) {
+                        out.writeByte(ENTRY_AMOUNT);
+                        out.writeLong(contents.getAmount(slot));
+                    } else {
+                        out.writeByte(ENTRY_SET);
+                        out.writeObject(prototype.toItemStack(1));
+                        out.writeLong(contents.getAmount(slot));
+                    }
+                }
+            }
+
+            if (save.getSkins() != null) {
+                writeSkins(out, save.getSkins());
+            }
+            out.writeByte(OP_END);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeSkins(BukkitObjectOutputStream out, Map<String, Set<String>> skins) throws IOException {
+        out.writeByte(OP_SKINS);
+        out.writeInt(skins.size());
+        for (Map.Entry<String, Set<String>> entry : skins.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue().size());
+            for (String skin : entry.getValue()) {
+                out.writeUTF(skin);
+            }
+        }
+    }
+
+    /**
+     * Apply a record payload to data laid out like a YAML player file
+     *
+     * @param payload The payload
+     * @param layout The data to update
+     * @throws IOException If the payload is damaged
+     */
+    static void apply(byte[] payload, ConfigurationSection layout) throws IOException {
+        try (BukkitObjectInputStream in = new BukkitObjectInputStream(new ByteArrayInputStream(payload))) {
+            ConfigurationSection pouchesSection = layout.getConfigurationSection("pouches");
+            if (pouchesSection == null) {
+                pouchesSection = layout.createSection("pouches");
+            }
+
+            for (int op = in.readByte(); op != OP_END; op = in.readByte()) {
+                switch (op) {
+                    case OP_RESET:
+                        pouchesSection = layout.createSection("pouches");
+                        layout.createSection("skins");
+                        break;
+                    case OP_POUCH: {
+                        String pouchId = in.readUTF();
+                        byte[] block = new byte[in.readInt()];
+                        in.readFully(block);
+                        PouchCodec.decode(block, pouchesSection.createSection(pouchId));
+                        break;
+                    }
+                    case OP_DELTA: {
+                        String pouchId = in.readUTF();
+                        ConfigurationSection pouchSection = pouchesSection.getConfigurationSection(pouchId);
+                        if (pouchSection == null) {
+                            pouchSection = pouchesSection.createSection(pouchId);
+                        }
+                        PouchCodec.readMeta(in, pouchSection);
+
+                        ConfigurationSection contentsSection = pouchSection.getConfigurationSection("contents");
+                        if (contentsSection == null) {
+                            contentsSection = pouchSection.createSection("contents");
+                        }
+                        int entries = in.readInt();
+                        for (int i = 0; i < entries; i++) {
+                            String slot = String.valueOf(in.readInt());
+                            int kind = in.readByte();
+                            if (kind == ENTRY_REMOVE) {
+                                contentsSection.set(slot, null);
+                            } else if (kind == ENTRY_AMOUNT) {
+                                long amount = in.readLong();
+                                ConfigurationSection entry = contentsSection.getConfigurationSection(slot);
+                                if (entry != null) {
+                                    entry.set("count", amount);
+                                }
+                            } else {
+                                ConfigurationSection entry = contentsSection.createSection(slot);
+                                entry.set("item", in.readObject());
+                                entry.set("count", in.readLong());
+                            }
+                        }
+                        break;
+                    }
+                    case OP_SKINS: {
+                        ConfigurationSection skinsSection = layout.createSection("skins");
+                        int pouches = in.readInt();
+                        for (int i = 0; i < pouches; i++) {
+                            String pouchId = in.readUTF();
+                            List<String> skins = new ArrayList<>();
+                            int count = in.readInt();
+                            for (int j = 0; j < count; j++) {
+                                skins.add(in.readUTF());
+                            }
+                            skinsSection.set(pouchId, skins);
+                        }
+                        break;
+                    }
+                    default:
+                        throw new IOException("Unknown player log operation " + op);
+                }
+            }
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Damaged player log record", e);
+        }
+    }
+
+    /**
+     * Build a player's data from their snapshot and the records after it
+     *
+     * @param playerId The player UUID
+     * @param refs The player's records, in order
+     * @param upTo The last LSN to apply
+     * @return The data, laid out like a YAML player file
+     * @throws IOException If the snapshot or a record could not be read
+     */
+    private ConfigurationSection replay(UUID playerId, List<RecordRef> refs, long upTo) throws IOException {
+        ConfigurationSection layout;
+        long snapshotLsn = 0;
+        File snapshotFile = getSnapshotFile(playerId);
+        if (snapshotFile.exists()) {
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)))) {
+                snapshotLsn = input.readLong();
+                layout = BinaryPlayerStorage.toLayout(PouchCodec.readFile(input), false);
+            }
+        } else {
+            layout = new MemoryConfiguration();
+        }
+
+        for (RecordRef ref : refs) {
+            if (ref.lsn > snapshotLsn && ref.lsn <= upTo) {
+                ByteBuffer payload = ByteBuffer.allocate(ref.length);
+                readFully(ref.segment.channel, payload, ref.offset + RECORD_HEADER_SIZE);
+                apply(payload.array(), layout);
+            }
+        }
+
+        sortContents(layout);
+        return layout;
+    }
+
+    /**
+     * Put every pouch's entries back in slot order. Entries added by deltas end up after the
+     * others, and pouches are filled in the order entries are loaded.
+     *
+     * @param layout The data
+     */
+    private static void sortContents(ConfigurationSection layout) {
+        ConfigurationSection pouchesSection = layout.getConfigurationSection("pouches");
+        if (pouchesSection == null) {
+            return;
+        }
+
+        for (String pouchId : pouchesSection.getKeys(false)) {
+            ConfigurationSection contentsSection = pouchesSection.getConfigurationSection(pouchId + ".contents");
+            if (contentsSection == null) {
+                continue;
+            }
+
+            List<String> slots = new ArrayList<>(contentsSection.getKeys(false));
+            List<String> sorted = new ArrayList<>(slots);
+            sorted.sort(Comparator.comparingInt(Integer::parseInt));
+            if (slots.equals(sorted)) {
+                continue;
+            }
+
+            Map<String, Object> entries = contentsSection.getValues(false);
+            ConfigurationSection sortedSection = pouchesSection.createSection(pouchId + ".contents");
+            for (String slot : sorted) {
+                sortedSection.set(slot, entries.get(slot));
+            }
+        }
+    }
+
+    /**
+     * Append a record to the active segment, starting a new segment if it doesn't fit
+     *
+     * @param playerId The player UUID
+     * @param payload The record payload
+     * @return The record's LSN
+     * @throws IOException If a new segment could not be created
+     */
+    private long append(UUID playerId, byte[] payload) throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                throw new IOException("Player log is closed");
+            }
+
+            int recordSize = RECORD_HEADER_SIZE + payload.length;
+            if (active.buffer.remaining() < recordSize) {
+                // Sealed segments are never synced again, so sync this one now
+                active.buffer.force();
+                durableLsn = lastLsn;
+                active.seal();
+                sealed.add(active);
+                active = createSegment(active.sequence + 1, Math.max(segmentSize, SEGMENT_HEADER_SIZE + recordSize));
+            }
+
+            long lsn = ++lastLsn;
+            byte[] header = new byte[RECORD_HEADER_SIZE];
+            ByteBuffer.wrap(header)
+                    .putInt(payload.length)
+                    .putInt(0)
+                    .putLong(lsn)
+                    .putLong(playerId.getMostSignificantBits())
+                    .putLong(playerId.getLeastSignificantBits());
+            ByteBuffer.wrap(header).putInt(4, checksum(header, payload, payload.length));
+
+            int offset = active.buffer.position();
+            active.buffer.put(header).put(payload);
+            active.lastLsn = lsn;
+            records.computeIfAbsent(playerId, id -> new ArrayList<>()).add(new RecordRef(active, offset, payload.length, lsn));
+
+            recordsAppended.incrementAndGet();
+            bytesAppended.addAndGet(recordSize);
+            return lsn;
+        }
+    }
+
+    /**
+     * Wait until a record is on disk. One caller syncs the active segment for everyone that
+     * appended so far; records appended during that sync are covered by the next one.
+     *
+     * @param lsn The record's LSN
+     * @throws IOException If syncing failed
+     */
+    private void sync(long lsn) throws IOException {
+        MappedByteBuffer buffer;
+        long target;
+        synchronized (lock) {
+            try {
+                while (syncing && durableLsn < lsn) {
+                    lock.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the player log", e);
+            }
+
+            if (durableLsn >= lsn) {
+                return;
+            }
+            syncing = true;
+            buffer = active.buffer;
+            target = lastLsn;
+        }
+
+        boolean synced = false;
+        try {
+            buffer.force();
+            synced = true;
+            syncs.incrementAndGet();
+        } finally {
+            synchronized (lock) {
+                syncing = false;
+                if (synced) {
+                    durableLsn = Math.max(durableLsn, target);
+                }
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Fold the sealed segments into the players' snapshots and delete them. Runs on the
+     * compaction task; if a snapshot can't be written the segments are kept for the next run.
+     */
+    private void compact() {
+        synchronized (compactionLock) {
+            List<Segment> segments;
+            long cutoff;
+            Set<UUID> players = new HashSet<>();
+            synchronized (lock) {
+                if (closed || sealed.isEmpty()) {
+                    return;
+                }
+                segments = new ArrayList<>(sealed);
+                cutoff = segments.get(segments.size() - 1).lastLsn;
+                for (Map.Entry<UUID, List<RecordRef>> entry : records.entrySet()) {
+                    if (!entry.getValue().isEmpty() && entry.getValue().get(0).lsn <= cutoff) {
+                        players.add(entry.getKey());
+                    }
+                }
+            }
+
+            long start = System.nanoTime();
+            for (UUID playerId : players) {
+                segmentLock.readLock().lock();
+                try {
+                    ConfigurationSection layout = replay(playerId, getRecords(playerId, cutoff), cutoff);
+                    writeSnapshot(playerId, BinaryPlayerStorage.fromLayout(layout), cutoff);
+                } catch (Exception e) {
+                    plugin.getDebug().logException(e, "Failed to compact player log for " + playerId);
+                    return;
+                } finally {
+                    segmentLock.readLock().unlock();
+                }
+            }
+
+            segmentLock.writeLock().lock();
+            try {
+                synchronized (lock) {
+                    for (UUID playerId : players) {
+                        List<RecordRef> refs = records.get(playerId);
+                        refs.removeIf(ref -> ref.lsn <= cutoff);
+                        if (refs.isEmpty()) {
+                            records.remove(playerId);
+                        }
+                    }
+                    sealed.removeAll(segments);
+                }
+
+                for (Segment segment : segments) {
+                    segment.delete();
+                }
+            } finally {
+                segmentLock.writeLock().unlock();
+            }
+
+            lastCompactionNanos = System.nanoTime() - start;
+            compactions.incrementAndGet();
+            plugin.getDebug().log("Compacted " + segments.size() + " player log segments into " + players.size() + " snapshots");
+        }
+    }
+
+    /**
+     * Get a player's records up to an LSN
+     *
+     * @param playerId The player UUID
+     * @param upTo The last LSN to include
+     * @return A copy of the records, in order
+     */
+    private List<RecordRef> getRecords(UUID playerId, long upTo) {
+        synchronized (lock) {
+            List<RecordRef> refs = records.get(playerId);
+            List<RecordRef> copy = new ArrayList<>();
+            if (refs != null) {
+                for (RecordRef ref : refs) {
+                    if (ref.lsn <= upTo) {
+                        copy.add(ref);
+                    }
+                }
+            }
+            return copy;
+        }
+    }
+
+    /**
+     * Write a player's snapshot
+     *
+     * @param playerId The player UUID
+     * @param data The pouch blocks and skins
+     * @param lsn The LSN of the last record folded into it
+     * @throws IOException If writing failed
+     */
+    private void writeSnapshot(UUID playerId, PouchCodec.FileData data, long lsn) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(lsn);
+        PouchCodec.writeFile(out, data, true);
+        out.flush();
+        writeAtomically(getSnapshotFile(playerId), bytes.toByteArray(), false);
+    }
+
+    /**
+     * Create and map a new segment
+     *
+     * @param sequence The segment number
+     * @param size The segment size
+     * @return The segment
+     * @throws IOException If the segment could not be created
+     */
+    private Segment createSegment(long sequence, int size) throws IOException {
+        File file = new File(directory, String.format("%016d.log", sequence));
+        Segment segment = new Segment(sequence, file);
+        segment.lastLsn = lastLsn;
+
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE)
+                .putInt(SEGMENT_MAGIC)
+                .putInt(SEGMENT_VERSION)
+                .putLong(lastLsn);
+        header.flip();
+        segment.channel.write(header, 0);
+        segment.position = SEGMENT_HEADER_SIZE;
+        segment.size = size;
+        segment.map();
+        return segment;
+    }
+
+    private File getSnapshotFile(UUID playerId) {
+        return new File(snapshotDirectory, playerId + ".dat");
+    }
+
+    private static int checksum(byte[] header, byte[] payload, int length) {
+        CRC32 crc = new CRC32();
+        // Everything after the length and the checksum itself
+        crc.update(header, 8, RECORD_HEADER_SIZE - 8);
+        crc.update(payload, 0, length);
+        return (int) crc.getValue();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of player log");
+            }
+        }
+    }
+
+    @Override
+    public Collection<UUID> getStoredPlayers() throws Exception {
+        Set<UUID> players = legacy != null ? new LinkedHashSet<>(legacy.getStoredPlayers()) : new LinkedHashSet<>();
+        File[] files = snapshotDirectory.listFiles((dir, name) -> name.endsWith(".dat"));
+        if (files != null) {
+            for (File file : files) {
+                try {
+                    players.add(UUID.fromString(file.getName().substring(0, file.getName().length() - 4)));
+                } catch (IllegalArgumentException e) {
+                    plugin.getDebug().log("Skipping player snapshot with invalid name: " + file.getName());
+                }
+            }
+        }
+
+        synchronized (lock) {
+            players.addAll(records.keySet());
+        }
+        return players;
+    }
+
+    @Override
+    public void unload(UUID playerId) {
+        // Nothing is kept per player
+    }
+
+    @Override
+    public void close() {
+        synchronized (compactionLock) {
+            if (compactionTask != null) {
+                compactionTask.cancel();
+            }
+
+            synchronized (lock) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+
+                if (active != null) {
+                    active.buffer.force();
+                    active.seal();
+                    sealed.add(active);
+                }
+                for (Segment segment : sealed) {
+                    segment.close();
+                }
+            }
+        }
+        if (legacy != null) {
+            legacy.close();
+        }
+    }
+
+    @Override
+    public String getType() {
+        return "log";
+    }
+
+    /**
+     * Get the number of records appended since startup
+     *
+     * @return The number of records
+     */
+    public long getRecordsAppended() {
+        return recordsAppended.get();
+    }
+
+    /**
+     * Get the number of bytes appended since startup
+     *
+     * @return The number of bytes
+     */
+    public long getBytesAppended() {
+        return bytesAppended.get();
+    }
+
+    /**
+     * Get the number of times the log was synced to disk. Fewer syncs than records means
+     * records were committed together.
+     *
+     * @return The number of syncs
+     */
+    public long getSyncs() {
+        return syncs.get();
+    }
+
+    /**
+     * Get the number of segments, including the active one
+     *
+     * @return The number of segments
+     */
+    public int getSegmentCount() {
+        synchronized (lock) {
+            return sealed.size() + (active != null ? 1 : 0);
+        }
+    }
+
+    /**
+     * Get the number of compactions since startup
+     *
+     * @return The number of compactions
+     */
+    public long getCompactions() {
+        return compactions.get();
+    }
+
+    /**
+     * Get how long the last compaction took
+     *
+     * @return The time in nanoseconds
+     */
+    public long getLastCompactionNanos() {
+        return lastCompactionNanos;
+    }
+
+    /**
+     * Where a record is in the log
+     */
+    private static final class RecordRef {
+        private final Segment segment;
+        private final long offset;
+        private final int length;
+        private final long lsn;
+
+        private RecordRef(Segment segment, long offset, int length, long lsn) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.lsn = lsn;
+        }
+    }
+
+    /**
+     * A segment file. Only the active segment is mapped; sealed segments are read through
+     * their channel.
+     */
+    private static final class Segment {
+        private final long sequence;
+        private final File file;
+        private final FileChannel channel;
+        private MappedByteBuffer buffer;
+        private int position;
+        private int size;
+        private long lastLsn;
+
+        private Segment(long sequence, File file) throws IOException {
+            this.sequence = sequence;
+            this.file = file;
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.size = (int) channel.size();
+        }
+
+        private void map() throws IOException {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, position));
+            // Anything after the last good record is a torn write or zeroes; clear it so the
+            // next scan stops at the end of what is appended now
+            for (int i = position; i < buffer.limit(); i++) {
+                if (buffer.get(i) != 0) {
+                    buffer.put(i, (byte) 0);
+                }
+            }
+            buffer.position(position);
+        }
+
+        private void seal() {
+            position = buffer.position();
+            buffer = null;
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Nothing left to write
+            }
+        }
+
+        private void delete() {
+            close();
+            try {
+                Files.deleteIfExists(file.toPath());
+            } catch (IOException e) {
+                // A mapping that wasn't released yet can keep the file open on some platforms;
+                // its records are older than the snapshots, so replaying it later is harmless
+                file.deleteOnExit();
+            }
+        }
+    }
+}
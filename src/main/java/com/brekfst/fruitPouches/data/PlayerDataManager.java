@@ -1,16 +1,21 @@
 package com.brekfst.fruitPouches.data;
 
 import com.brekfst.fruitPouches.FruitPouches;
+import com.brekfst.fruitPouches.content.ChangeJournal;
 import com.brekfst.fruitPouches.models.Pouch;
 import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.scheduler.BukkitRunnable;
 
-import java.io.File;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
 
 /**
  * Manages player data for pouches
@@ -18,6 +23,36 @@ import java.util.concurrent.ConcurrentHashMap;
 public class PlayerDataManager extends DataManager {
 
     private final Map<UUID, Map<String, Pouch>> playerPouches;
+    private final Map<UUID, SaveState> saveStates;
+    private final PlayerStorage storage;
+
+    // Saved pouches that haven't been used yet; they are built on first access
+    private final Map<UUID, Map<String, ConfigurationSection>> unreadPouches;
+
+    // Players whose data is being read, and data read before the player joined
+    private final Set<UUID> loadingPlayers;
+    private final Map<UUID, LoadedPlayer> prefetched;
+
+    // Write-behind: changes only mark the player, the flusher saves them once per interval
+    private final Set<UUID> dirtyPlayers;
+    private final Set<UUID> changedSkins;
+    private final long flushInterval;
+
+    // Metrics
+    private long dirtyMarks;
+    private long coalescedWrites;
+    private long flushes;
+    private long savesSkipped;
+    private long pouchesSkipped;
+    private long fullPouchWrites;
+    private long deltaPouchWrites;
+    private long entriesWritten;
+    private final AtomicLong pouchesDeferred;
+    private long pouchesMaterialized;
+    private final AtomicLong storageWrites;
+    private final AtomicLong flushNanos;
+    private final AtomicLong maxFlushNanos;
+    private volatile long lastFlushNanos;
 
     /**
      * Create a new player data manager
@@ -27,112 +62,398 @@ public class PlayerDataManager extends DataManager {
     public PlayerDataManager(FruitPouches plugin) {
         super(plugin);
         this.playerPouches = new ConcurrentHashMap<>();
+        this.saveStates = new ConcurrentHashMap<>();
+        this.unreadPouches = new ConcurrentHashMap<>();
+        this.loadingPlayers = ConcurrentHashMap.newKeySet();
+        this.prefetched = new ConcurrentHashMap<>();
+        this.dirtyPlayers = new LinkedHashSet<>();
+        this.changedSkins = new HashSet<>();
+        this.flushInterval = Math.max(plugin.getConfig().getLong("data.flush-interval", 5), 1) * 20L;
+        this.pouchesDeferred = new AtomicLong();
+        this.storageWrites = new AtomicLong();
+        this.flushNanos = new AtomicLong();
+        this.maxFlushNanos = new AtomicLong();
+        this.storage = createStorage();
     }
 
     /**
-     * Load a player's pouch data
+     * Open the storage selected by {@code data.storage-type}. Player files are only used when
+     * they are selected; a database or log that can't be opened is never swapped for them, as
+     * they would hold older data.
+     *
+     * @return The storage, or null if it could not be opened
+     */
+    private PlayerStorage createStorage() {
+        String type = plugin.getConfig().getString("data.storage-type", "yml").toLowerCase();
+        PlayerStorage selected = null;
+        if (type.equals("sqlite")) {
+            selected = new SqlitePlayerStorage(plugin);
+        } else if (type.equals("log")) {
+            // Players not in the log yet are imported from their player files
+            selected = new LogPlayerStorage(plugin, createFileStorage());
+        } else if (!type.equals("yml") && !type.equals("yaml")) {
+            plugin.getLogger().warning("Unknown data.storage-type '" + type + "', using player files");
+        }
+
+        if (selected != null) {
+            try {
+                selected.open();
+                return selected;
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to open " + type + " player storage! Disabling plugin.", e);
+                return null;
+            }
+        }
+
+        return createFileStorage();
+    }
+
+    /**
+     * Create a file-per-player storage in the format selected by {@code data.file-format}
+     *
+     * @return The storage
+     */
+    private PlayerStorage createFileStorage() {
+        if ("binary".equalsIgnoreCase(plugin.getConfig().getString("data.file-format", "yml"))) {
+            return new BinaryPlayerStorage(plugin, plugin.getConfig().getBoolean("data.compress", true));
+        }
+        return new YamlPlayerStorage(plugin);
+    }
+
+    /**
+     * Start the flusher that saves dirty players
+     */
+    public void start() {
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                flushDirtyPlayers();
+            }
+        }.runTaskTimer(plugin, flushInterval, flushInterval);
+
+        plugin.getDebug().log("Player data flusher started (interval " + flushInterval + " ticks)");
+    }
+
+    /**
+     * Mark a player's data as changed. It is saved by the next flush, together with any other
+     * changes made until then.
      *
      * @param playerId The player UUID
      */
-    public void loadPlayerData(UUID playerId) {
-        File file = getPlayerDataFile(playerId);
+    public void markDirty(UUID playerId) {
+        dirtyMarks++;
+        if (!dirtyPlayers.add(playerId)) {
+            coalescedWrites++;
+        }
+    }
 
-        if (!file.exists()) {
-            // Create a new data file
-            Map<String, Pouch> pouches = new HashMap<>();
-            playerPouches.put(playerId, pouches);
+    /**
+     * Save every dirty player now
+     */
+    public void flushDirtyPlayers() {
+        if (dirtyPlayers.isEmpty()) {
             return;
         }
 
-        // Load async
-        plugin.getAsyncExecutor().submit(() -> {
-            try {
-                YamlConfiguration config = loadConfig(file);
-                Map<String, Pouch> pouches = new HashMap<>();
-
-                // Load pouches
-                ConfigurationSection pouchesSection = config.getConfigurationSection("pouches");
-                if (pouchesSection != null) {
-                    for (String pouchId : pouchesSection.getKeys(false)) {
-                        Pouch pouchTemplate = plugin.getPouchManager().getPouch(pouchId);
-
-                        if (pouchTemplate != null) {
-                            Pouch pouch = new Pouch(pouchId, plugin.getConfigManager().getPouchesConfig().getConfigurationSection("pouches." + pouchId));
-                            // Fixed: Don't cast to YamlConfiguration
-                            pouch.loadFromConfig(plugin, pouchesSection.getConfigurationSection(pouchId));
-                            pouches.put(pouchId, pouch);
-                        }
-                    }
-                }
-
-                playerPouches.put(playerId, pouches);
+        flushes++;
+        for (UUID playerId : new ArrayList<>(dirtyPlayers)) {
+            savePlayerData(playerId);
+        }
+    }
 
-                // Load skins
-                Map<String, Set<String>> skins = new HashMap<>();
-                ConfigurationSection skinsSection = config.getConfigurationSection("skins");
+    /**
+     * Read a player's data on the calling thread before they join, so joining does no disk
+     * work. Called from {@link org.bukkit.event.player.AsyncPlayerPreLoginEvent}; the player
+     * counts as loading until {@link #loadPlayerData} installs the data on join.
+     *
+     * @param playerId The player UUID
+     */
+    public void prefetchPlayerData(UUID playerId) {
+        loadingPlayers.add(playerId);
+        try {
+            prefetched.put(playerId, readPlayerData(playerId));
+        } catch (Exception e) {
+            // Join reads it again
+            plugin.getDebug().logException(e, "Failed to prefetch player data for " + playerId);
+        }
+    }
 
-                if (skinsSection != null) {
-                    for (String pouchId : skinsSection.getKeys(false)) {
-                        Set<String> pouchSkins = new HashSet<>(skinsSection.getStringList(pouchId));
-                        skins.put(pouchId, pouchSkins);
-                    }
-                }
+    /**
+     * Drop prefetched data for a player whose login was denied after it was read
+     *
+     * @param playerId The player UUID
+     */
+    public void discardPrefetchedData(UUID playerId) {
+        prefetched.remove(playerId);
+        loadingPlayers.remove(playerId);
+    }
 
-                plugin.getSkinManager().setPlayerSkins(playerId, skins);
+    /**
+     * Load a player's pouch data. Data prefetched before the player joined is installed right
+     * away; otherwise (e.g. players already online when the plugin is enabled) it is read async
+     * and installed on the main thread. Until then the player counts as loading.
+     *
+     * @param playerId The player UUID
+     */
+    public void loadPlayerData(UUID playerId) {
+        LoadedPlayer loaded = prefetched.remove(playerId);
+        if (loaded != null) {
+            install(playerId, loaded);
+            return;
+        }
 
-                plugin.getDebug().log("Loaded player data for " + playerId);
+        loadingPlayers.add(playerId);
+        plugin.getAsyncExecutor().submit(() -> {
+            try {
+                LoadedPlayer data = readPlayerData(playerId);
+                Bukkit.getScheduler().runTask(plugin, () -> install(playerId, data));
             } catch (Exception e) {
+                // The player stays loading, so nothing overwrites what is stored
                 plugin.getDebug().logException(e, "Failed to load player data for " + playerId);
             }
         });
     }
 
-    // In PlayerDataManager.java, modify savePlayerData:
+    /**
+     * Read a player's data. Runs off the main thread. Pouches are only built when they are
+     * first used (see {@link #getPlayerPouch}), so this just keeps their saved sections; with
+     * binary files their contents aren't even decoded yet.
+     *
+     * @param playerId The player UUID
+     * @return The saved pouches, save state and skins, ready to install
+     * @throws Exception If the storage could not be read
+     */
+    private LoadedPlayer readPlayerData(UUID playerId) throws Exception {
+        // Writes from an earlier session must land before reading, or the read misses them
+        SaveState previous = saveStates.get(playerId);
+        if (previous != null) {
+            flush(playerId, previous);
+        }
+
+        ConfigurationSection data = storage.load(playerId);
+        LoadedPlayer loaded = new LoadedPlayer();
+        if (data == null) {
+            // Nothing saved yet
+            return loaded;
+        }
+
+        // Load pouches
+        ConfigurationSection pouchesSection = data.getConfigurationSection("pouches");
+        if (pouchesSection != null) {
+            for (String pouchId : pouchesSection.getKeys(false)) {
+                if (plugin.getPouchManager().getPouch(pouchId) != null) {
+                    loaded.unread.put(pouchId, pouchesSection.getConfigurationSection(pouchId));
+                }
+            }
+            pouchesDeferred.addAndGet(loaded.unread.size());
+        }
+
+        // Load skins
+        ConfigurationSection skinsSection = data.getConfigurationSection("skins");
+        if (skinsSection != null) {
+            for (String pouchId : skinsSection.getKeys(false)) {
+                Set<String> pouchSkins = new HashSet<>(skinsSection.getStringList(pouchId));
+                loaded.skins.put(pouchId, pouchSkins);
+            }
+        }
+
+        plugin.getDebug().log("Loaded player data for " + playerId + " from " + storage.getType());
+        return loaded;
+    }
+
+    /**
+     * Make loaded data the player's live data. Call it on the main thread.
+     *
+     * @param playerId The player UUID
+     * @param loaded The loaded data
+     */
+    private void install(UUID playerId, LoadedPlayer loaded) {
+        if (!loadingPlayers.contains(playerId)) {
+            // The player's data was removed while it was being read
+            return;
+        }
+
+        playerPouches.put(playerId, new HashMap<>());
+        unreadPouches.put(playerId, loaded.unread);
+        saveStates.put(playerId, loaded.state);
+        plugin.getSkinManager().setPlayerSkins(playerId, loaded.skins);
+        loadingPlayers.remove(playerId);
+
+        // A routing table built while loading has no pouches in it
+        plugin.getPickupRouter().invalidate(playerId);
+    }
+
+    /**
+     * Check if a player's data is in memory, i.e. it was loaded and hasn't been removed
+     *
+     * @param playerId The player UUID
+     * @return true if the player's data is resident
+     */
+    public boolean isResident(UUID playerId) {
+        return saveStates.containsKey(playerId);
+    }
+
+    /**
+     * Get the number of players whose data is in memory
+     *
+     * @return The number of resident players
+     */
+    public int getResidentPlayers() {
+        return saveStates.size();
+    }
+
+    /**
+     * Check if a player's data is still loading. While it is, no pouch is handed out for the
+     * player, so nothing can change data that the load is about to replace.
+     *
+     * @param playerId The player UUID
+     * @return true if the player's data is loading
+     */
+    public boolean isLoading(UUID playerId) {
+        return loadingPlayers.contains(playerId);
+    }
+
+    /**
+     * Save a player's pouch data now, e.g. on quit. Only pouches whose version moved since the
+     * last save are written, and of those only the changed content entries; if nothing changed
+     * at all the save is skipped. Call it on the main thread.
+     *
+     * @param playerId The player UUID
+     */
     public void savePlayerData(UUID playerId) {
         Map<String, Pouch> pouches = playerPouches.get(playerId);
 
-        if (pouches == null || pouches.isEmpty()) {
+        if (pouches == null) {
+            dirtyPlayers.remove(playerId);
+            return;
+        }
+
+        SaveState state = saveStates.get(playerId);
+        if (state == null) {
+            // Still loading; writing now would replace the stored data with half of it, so
+            // stay dirty and save once the load is done
             return;
         }
+        dirtyPlayers.remove(playerId);
+
+        boolean rewrite = state.rewrite;
+        if (rewrite) {
+            // The last write failed, so the stored data can't be trusted
+            state.rewrite = false;
+            state.savedVersions.clear();
+        }
+
+        // Capture the contents, their changes and the pouch values here on the main thread;
+        // the async writer only sees these copies, never a pouch that is being changed
+        List<PlayerSave.PouchWrite> writes = new ArrayList<>();
+        for (Pouch pouch : pouches.values()) {
+            Long savedVersion = state.savedVersions.get(pouch);
+            if (savedVersion != null && savedVersion == pouch.getVersion()) {
+                pouchesSkipped++;
+                continue;
+            }
+
+            ChangeJournal.Delta changes = pouch.drainChanges();
+            if (savedVersion != null) {
+                deltaPouchWrites++;
+                entriesWritten += changes.getSlotCount();
+            } else {
+                // Not stored yet (or not as it is now), write it whole
+                changes = null;
+                fullPouchWrites++;
+            }
+
+            writes.add(new PlayerSave.PouchWrite(pouch, pouch.snapshot(), changes));
+            state.savedVersions.put(pouch, pouch.getVersion());
+        }
+
+        Map<String, Set<String>> skins = null;
+        if (changedSkins.remove(playerId) || rewrite) {
+            skins = new HashMap<>();
+            for (Map.Entry<String, Set<String>> entry : plugin.getSkinManager().getPlayerSkins(playerId).entrySet()) {
+                skins.put(entry.getKey(), new HashSet<>(entry.getValue()));
+            }
+        }
+
+        if (writes.isEmpty() && skins == null) {
+            savesSkipped++;
+            return;
+        }
+
+        synchronized (state) {
+            state.pending.add(new PlayerSave(writes, skins, System.nanoTime()));
+        }
 
         // Save async
-        plugin.getAsyncExecutor().submit(() -> {
-            try {
-                File file = getPlayerDataFile(playerId);
-                YamlConfiguration config = loadConfig(file);
+        plugin.getAsyncExecutor().submit(() -> flush(playerId, state));
+    }
 
-                // Save pouches
-                ConfigurationSection pouchesSection = config.createSection("pouches");
+    /**
+     * Save a player's data now and report once it has been written, e.g. before removing it
+     * from memory. Call it on the main thread; the callback runs on the main thread too.
+     *
+     * @param playerId The player UUID
+     * @param whenWritten Called with true once everything was written, or false if the write failed
+     */
+    public void savePlayerData(UUID playerId, Consumer<Boolean> whenWritten) {
+        savePlayerData(playerId);
 
-                for (Map.Entry<String, Pouch> entry : pouches.entrySet()) {
-                    ConfigurationSection pouchSection = pouchesSection.createSection(entry.getKey());
-                    // Fixed: Don't cast to YamlConfiguration
-                    entry.getValue().saveToConfig(pouchSection);
-                }
+        SaveState state = saveStates.get(playerId);
+        if (state == null) {
+            // Never loaded, so there is nothing to write
+            whenWritten.accept(true);
+            return;
+        }
 
-                // Save skins
-                Map<String, Set<String>> skins = plugin.getSkinManager().getPlayerSkins(playerId);
-                ConfigurationSection skinsSection = config.createSection("skins");
+        // Queued after the save above, so flushing here writes it if it hasn't been already
+        plugin.getAsyncExecutor().submit(() -> {
+            flush(playerId, state);
+            boolean written = !state.rewrite;
+            Bukkit.getScheduler().runTask(plugin, () -> whenWritten.accept(written));
+        });
+    }
 
-                for (Map.Entry<String, Set<String>> entry : skins.entrySet()) {
-                    skinsSection.set(entry.getKey(), new ArrayList<>(entry.getValue()));
+    /**
+     * Hand a player's pending saves to the storage.
+     * Saves are written in the order they were taken; a task that finds nothing pending
+     * was already handled by an earlier one. The state is only locked to take the pending
+     * saves, so queueing new ones on the main thread never waits for a write.
+     *
+     * @param playerId The player UUID
+     * @param state The player's save state
+     */
+    private void flush(UUID playerId, SaveState state) {
+        synchronized (state.writeLock) {
+            List<PlayerSave> saves;
+            synchronized (state) {
+                if (state.pending.isEmpty()) {
+                    return;
                 }
-
-                // Only backup during server shutdown or explicit command
-                // Remove the automatic backup that happens on every save
-            /*
-            if (plugin.getConfigManager().isAutoBackupEnabled()) {
-                createBackup(file);
+                saves = new ArrayList<>(state.pending);
+                state.pending.clear();
             }
-            */
 
-                saveConfig(config, file);
+            try {
+                long queuedAt = saves.get(0).getQueuedAt();
+                storage.save(playerId, saves);
+                storageWrites.incrementAndGet();
+
+                long latency = System.nanoTime() - queuedAt;
+                lastFlushNanos = latency;
+                flushNanos.addAndGet(latency);
+                maxFlushNanos.accumulateAndGet(latency, Math::max);
 
                 plugin.getDebug().log("Saved player data for " + playerId);
             } catch (Exception e) {
+                state.rewrite = true;
                 plugin.getDebug().logException(e, "Failed to save player data for " + playerId);
+
+                // Retry with the next flush, which writes everything again
+                if (plugin.isEnabled()) {
+                    Bukkit.getScheduler().runTask(plugin, () -> markDirty(playerId));
+                }
             }
-        });
+        }
     }
 
     /**
@@ -145,9 +466,7 @@ public class PlayerDataManager extends DataManager {
         // Process all online players
         for (Player player : Bukkit.getOnlinePlayers()) {
             UUID playerId = player.getUniqueId();
-            Map<String, Pouch> playerPouchData = playerPouches.get(playerId);
-
-            if (playerPouchData == null || playerPouchData.isEmpty()) {
+            if (!playerPouches.containsKey(playerId) || isLoading(playerId)) {
                 continue;
             }
 
@@ -171,7 +490,7 @@ public class PlayerDataManager extends DataManager {
                 }
 
                 // Get the player-specific pouch data
-                Pouch playerPouch = playerPouchData.get(pouchId);
+                Pouch playerPouch = getLoadedPouch(playerId, pouchId);
                 if (playerPouch == null) {
                     continue;
                 }
@@ -203,13 +522,18 @@ public class PlayerDataManager extends DataManager {
      * @param pouch The pouch
      */
     public void savePlayerPouch(UUID playerId, Pouch pouch) {
+        if (isLoading(playerId)) {
+            // The pouch can't be one of the player's; the load replaces them anyway
+            return;
+        }
+
         Map<String, Pouch> pouches = playerPouches.computeIfAbsent(playerId, k -> new HashMap<>());
         pouches.put(pouch.getId(), pouch);
 
-        // Schedule async save
+        // Saved by the next flush
         Player player = Bukkit.getPlayer(playerId);
         if (player != null && player.isOnline()) {
-            savePlayerData(playerId);
+            markDirty(playerId);
         }
     }
 
@@ -218,34 +542,102 @@ public class PlayerDataManager extends DataManager {
      *
      * @param playerId The player UUID
      * @param pouchId The pouch ID
-     * @return The pouch, or a new pouch if not found
+     * @return The pouch, a new pouch if the player has none of this type yet, or null if
+     * the pouch type doesn't exist or the player's data is still loading
      */
     public Pouch getPlayerPouch(UUID playerId, String pouchId) {
-        Map<String, Pouch> pouches = playerPouches.computeIfAbsent(playerId, k -> new HashMap<>());
+        if (isLoading(playerId)) {
+            return null;
+        }
 
-        if (pouches.containsKey(pouchId)) {
-            return pouches.get(pouchId);
+        Pouch pouch = getLoadedPouch(playerId, pouchId);
+        if (pouch != null || isUnread(playerId, pouchId)) {
+            // An unread pouch that couldn't be built stays unread, so it is never replaced
+            return pouch;
         }
 
         // Create a new pouch
         Pouch pouchTemplate = plugin.getPouchManager().getPouch(pouchId);
 
         if (pouchTemplate != null) {
-            Pouch pouch = new Pouch(pouchId, plugin.getConfigManager().getPouchesConfig().getConfigurationSection("pouches." + pouchId));
-            pouches.put(pouchId, pouch);
+            pouch = new Pouch(pouchTemplate);
+            playerPouches.computeIfAbsent(playerId, k -> new HashMap<>()).put(pouchId, pouch);
             return pouch;
         }
 
         return null;
     }
 
+    /**
+     * Get a pouch the player already has, building it from its saved data on first access
+     *
+     * @param playerId The player UUID
+     * @param pouchId The pouch ID
+     * @return The pouch, or null if the player has none of this type or it couldn't be built
+     */
+    private Pouch getLoadedPouch(UUID playerId, String pouchId) {
+        Map<String, Pouch> pouches = playerPouches.computeIfAbsent(playerId, k -> new HashMap<>());
+        Pouch pouch = pouches.get(pouchId);
+        if (pouch != null || !isUnread(playerId, pouchId)) {
+            return pouch;
+        }
+
+        Pouch pouchTemplate = plugin.getPouchManager().getPouch(pouchId);
+        if (pouchTemplate == null) {
+            return null;
+        }
+
+        ConfigurationSection saved = unreadPouches.get(playerId).get(pouchId);
+        try {
+            PouchCodec.expand(saved);
+            pouch = new Pouch(pouchTemplate);
+            pouch.loadFromConfig(plugin, saved);
+        } catch (Exception e) {
+            plugin.getDebug().logException(e, "Failed to read pouch " + pouchId + " of " + playerId);
+            return null;
+        }
+
+        unreadPouches.get(playerId).remove(pouchId);
+        pouches.put(pouchId, pouch);
+        pouchesMaterialized++;
+
+        // What was loaded is what is stored, so an unchanged pouch is never written again
+        SaveState state = saveStates.get(playerId);
+        if (state != null && !pouch.hasChanges()) {
+            state.savedVersions.put(pouch, pouch.getVersion());
+        }
+        return pouch;
+    }
+
+    /**
+     * Check if a player has saved data for a pouch that hasn't been built yet
+     *
+     * @param playerId The player UUID
+     * @param pouchId The pouch ID
+     * @return true if the pouch is still unread
+     */
+    private boolean isUnread(UUID playerId, String pouchId) {
+        Map<String, ConfigurationSection> unread = unreadPouches.get(playerId);
+        return unread != null && unread.containsKey(pouchId);
+    }
+
     /**
      * Get all pouches for a player
      *
      * @param playerId The player UUID
-     * @return All pouches for the player
+     * @return All pouches for the player, or none while their data is loading
      */
     public Map<String, Pouch> getPlayerPouches(UUID playerId) {
+        if (isLoading(playerId)) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, ConfigurationSection> unread = unreadPouches.get(playerId);
+        if (unread != null) {
+            for (String pouchId : new ArrayList<>(unread.keySet())) {
+                getLoadedPouch(playerId, pouchId);
+            }
+        }
         return Collections.unmodifiableMap(playerPouches.computeIfAbsent(playerId, k -> new HashMap<>()));
     }
 
@@ -257,21 +649,31 @@ public class PlayerDataManager extends DataManager {
      */
     public void savePlayerSkins(UUID playerId, Map<String, Set<String>> skins) {
         plugin.getSkinManager().setPlayerSkins(playerId, skins);
+        changedSkins.add(playerId);
 
-        // Schedule async save
+        // Saved by the next flush
         Player player = Bukkit.getPlayer(playerId);
         if (player != null && player.isOnline()) {
-            savePlayerData(playerId);
+            markDirty(playerId);
         }
     }
 
     /**
-     * Remove a player's data
+     * Remove a player's data from memory. Anything not saved yet is lost, so save it first
+     * (see {@link #savePlayerData(UUID, Consumer)}).
      *
      * @param playerId The player UUID
      */
     public void removePlayerData(UUID playerId) {
         playerPouches.remove(playerId);
+        unreadPouches.remove(playerId);
+        saveStates.remove(playerId);
+        loadingPlayers.remove(playerId);
+        prefetched.remove(playerId);
+        storage.unload(playerId);
+        dirtyPlayers.remove(playerId);
+        changedSkins.remove(playerId);
+        plugin.getSkinManager().removePlayerSkins(playerId);
     }
 
     /**
@@ -282,4 +684,275 @@ public class PlayerDataManager extends DataManager {
             savePlayerData(playerId);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Copy every player's data into the SQLite database, replacing what the database held for
+     * those players. The data is read from the player files (YAML, or binary with
+     * {@code data.file-format: binary}), or from the log when that is the storage in use.
+     * Refused when SQLite already is the storage, as the files would be older than the database.
+     * Runs async and reports to the sender when done.
+     *
+     * @param sender Who to report to
+     */
+    public void migrateToSqlite(CommandSender sender) {
+        if (storage instanceof SqlitePlayerStorage) {
+            sender.sendMessage(ChatColor.RED + "Player data is already stored in SQLite, migrating the player files again would overwrite newer data.");
+            return;
+        }
+
+        // Queue the latest changes; the migration task writes them before reading anything
+        saveAllPlayerData();
+        List<Map.Entry<UUID, SaveState>> states = new ArrayList<>(saveStates.entrySet());
+
+        sender.sendMessage(ChatColor.YELLOW + "Migrating player data from " + (storage instanceof LogPlayerStorage ? "the log" : "player files") + " to SQLite...");
+        plugin.getAsyncExecutor().submit(() -> {
+            long start = System.nanoTime();
+            int migrated = 0;
+            int failed = 0;
+
+            // Flush tasks may still be waiting for (or running on) the other executor thread
+            for (Map.Entry<UUID, SaveState> entry : states) {
+                flush(entry.getKey(), entry.getValue());
+            }
+
+            // The log holds the latest data, player files only hold what it imported from them
+            PlayerStorage source = storage instanceof LogPlayerStorage ? storage : createFileStorage();
+            PlayerStorage target = new SqlitePlayerStorage(plugin);
+
+            try {
+                target.open();
+
+                for (UUID playerId : source.getStoredPlayers()) {
+                    try {
+                        ConfigurationSection data = source.load(playerId);
+                        if (data != null) {
+                            target.replace(playerId, data);
+                            migrated++;
+                        }
+                    } catch (Exception e) {
+                        failed++;
+                        plugin.getDebug().logException(e, "Failed to migrate player data for " + playerId);
+                    } finally {
+                        if (source != storage) {
+                            source.unload(playerId);
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                plugin.getDebug().logException(e, "Failed to migrate player data to SQLite");
+                failed = -1;
+            } finally {
+                target.close();
+            }
+
+            int migratedPlayers = migrated;
+            int failedPlayers = failed;
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                if (failedPlayers < 0) {
+                    sender.sendMessage(ChatColor.RED + "Migration failed, see the console for details.");
+                    return;
+                }
+
+                sender.sendMessage(ChatColor.GREEN + "Migrated " + migratedPlayers + " players to SQLite in " + millis + "ms" +
+                        (failedPlayers > 0 ? ChatColor.RED + " (" + failedPlayers + " failed)" : "") + ".");
+                sender.sendMessage(ChatColor.YELLOW + "Set data.storage-type to 'sqlite' and restart to use it.");
+            });
+        });
+    }
+
+    /**
+     * Close the storage. Call it after the final saves have been written.
+     */
+    public void close() {
+        if (storage != null) {
+            storage.close();
+        }
+    }
+
+    /**
+     * Check if the selected storage was opened
+     *
+     * @return true if player data can be read and written
+     */
+    public boolean isStorageOpen() {
+        return storage != null;
+    }
+
+    /**
+     * Get the storage player data is kept in
+     *
+     * @return The storage
+     */
+    public PlayerStorage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Get the number of players waiting for the next flush
+     *
+     * @return The number of dirty players
+     */
+    public int getDirtyPlayers() {
+        return dirtyPlayers.size();
+    }
+
+    /**
+     * Get the flush interval
+     *
+     * @return The interval in ticks
+     */
+    public long getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * Get the number of times a player was marked dirty
+     *
+     * @return The number of marks
+     */
+    public long getDirtyMarks() {
+        return dirtyMarks;
+    }
+
+    /**
+     * Get the number of saves folded into a save that was already pending
+     *
+     * @return The number of coalesced writes
+     */
+    public long getCoalescedWrites() {
+        return coalescedWrites;
+    }
+
+    /**
+     * Get the number of flusher runs that had dirty players
+     *
+     * @return The number of flushes
+     */
+    public long getFlushes() {
+        return flushes;
+    }
+
+    /**
+     * Get the average time from queuing a save to the file being written
+     *
+     * @return The average latency in nanoseconds
+     */
+    public double getAverageFlushNanos() {
+        long writes = storageWrites.get();
+        return writes > 0 ? (double) flushNanos.get() / writes : 0;
+    }
+
+    public long getLastFlushNanos() {
+        return lastFlushNanos;
+    }
+
+    public long getMaxFlushNanos() {
+        return maxFlushNanos.get();
+    }
+
+    /**
+     * Get the number of saves skipped because nothing changed
+     *
+     * @return The number of skipped saves
+     */
+    public long getSavesSkipped() {
+        return savesSkipped;
+    }
+
+    /**
+     * Get the number of unchanged pouches left out of saves
+     *
+     * @return The number of skipped pouches
+     */
+    public long getPouchesSkipped() {
+        return pouchesSkipped;
+    }
+
+    /**
+     * Get the number of pouches written whole
+     *
+     * @return The number of full pouch writes
+     */
+    public long getFullPouchWrites() {
+        return fullPouchWrites;
+    }
+
+    /**
+     * Get the number of pouches written as a delta
+     *
+     * @return The number of delta pouch writes
+     */
+    public long getDeltaPouchWrites() {
+        return deltaPouchWrites;
+    }
+
+    /**
+     * Get the number of content entries written by delta saves
+     *
+     * @return The number of entries written
+     */
+    public long getEntriesWritten() {
+        return entriesWritten;
+    }
+
+    /**
+     * Get the number of loaded pouches whose building was deferred until first use, since startup
+     *
+     * @return The number of deferred pouches
+     */
+    public long getPouchesDeferred() {
+        return pouchesDeferred.get();
+    }
+
+    /**
+     * Get the number of deferred pouches built on first use since startup
+     *
+     * @return The number of built pouches
+     */
+    public long getPouchesMaterialized() {
+        return pouchesMaterialized;
+    }
+
+    /**
+     * Get the number of saves written to the storage
+     *
+     * @return The number of storage writes
+     */
+    public long getStorageWrites() {
+        return storageWrites.get();
+    }
+
+    /**
+     * A player's data as read from storage, built off the main thread
+     */
+    private static final class LoadedPlayer {
+        private final Map<String, ConfigurationSection> unread = new HashMap<>();
+        private final SaveState state = new SaveState();
+        private final Map<String, Set<String>> skins = new HashMap<>();
+    }
+
+    /**
+     * What has been handed to the storage for one player: the pouch versions it holds and the
+     * saves still waiting to be written
+     */
+    private static final class SaveState {
+        // Guarded by the state
+        private final List<PlayerSave> pending;
+
+        // Held for the whole write, so a player's saves reach the storage one after another
+        private final Object writeLock;
+
+        // Main thread only, apart from filling it while loading
+        private final Map<Pouch, Long> savedVersions;
+
+        // Set by the writer when a save failed
+        private volatile boolean rewrite;
+
+        private SaveState() {
+            this.pending = new ArrayList<>();
+            this.writeLock = new Object();
+            this.savedVersions = new IdentityHashMap<>();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.brekfst.fruitPouches.data;
+
+import com.brekfst.fruitPouches.content.ChangeJournal;
+import com.brekfst.fruitPouches.content.ContentSnapshot;
+import com.brekfst.fruitPouches.models.Pouch;
+import com.brekfst.fruitPouches.models.PouchEnchantment;
+import com.brekfst.fruitPouches.models.PouchStats;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Everything captured on the main thread for one save of a player's data, handed to a
+ * {@link PlayerStorage} on the async executor
+ */
+public class PlayerSave {
+
+    private final List<PouchWrite> pouches;
+    private final Map<String, Set<String>> skins;
+    private final long queuedAt;
+
+    /**
+     * Create a new player save
+     *
+     * @param pouches The pouches to write
+     * @param skins The player's skins, or null if they did not change
+     * @param queuedAt When the save was queued, from {@link System#nanoTime()}
+     */
+    public PlayerSave(List<PouchWrite> pouches, Map<String, Set<String>> skins, long queuedAt) {
+        this.pouches = pouches;
+        this.skins = skins;
+        this.queuedAt = queuedAt;
+    }
+
+    public List<PouchWrite> getPouches() {
+        return pouches;
+    }
+
+    public Map<String, Set<String>> getSkins() {
+        return skins;
+    }
+
+    public long getQueuedAt() {
+        return queuedAt;
+    }
+
+    /**
+     * One pouch in a save: its contents, the changes since the previous save, and copies of
+     * the level, skin, enchantments and stats taken on the main thread. Writers only use these
+     * copies, as the pouch itself keeps changing while they run.
+     */
+    public static class PouchWrite {
+
+        private final String pouchId;
+        private final int level;
+        private final String skin;
+        private final String[] enchantmentTypes;
+        private final int[] enchantmentLevels;
+        private final int itemsCollected;
+        private final int actionsPerformed;
+        private final long lastUsed;
+        private final boolean bulkStorage;
+        private final ContentSnapshot contents;
+        private final ChangeJournal.Delta changes;
+
+        /**
+         * Create a new pouch write. Call it on the main thread.
+         *
+         * @param pouch The pouch
+         * @param contents The contents snapshot taken together with the changes
+         * @param changes The changes since the previous save, or null to write the pouch whole
+         */
+        public PouchWrite(Pouch pouch, ContentSnapshot contents, ChangeJournal.Delta changes) {
+            this.pouchId = pouch.getId();
+            this.level = pouch.getCurrentLevel();
+            this.skin = pouch.getCurrentSkin();
+
+            List<PouchEnchantment> enchantments = pouch.getEnchantments();
+            this.enchantmentTypes = new String[enchantments.size()];
+            this.enchantmentLevels = new int[enchantments.size()];
+            for (int i = 0; i < enchantmentTypes.length; i++) {
+                enchantmentTypes[i] = enchantments.get(i).getType().getId();
+                enchantmentLevels[i] = enchantments.get(i).getLevel();
+            }
+
+            PouchStats stats = pouch.getStats();
+            this.itemsCollected = stats.getItemsCollected();
+            this.actionsPerformed = stats.getActionsPerformed();
+            this.lastUsed = stats.getLastUsed();
+            this.bulkStorage = pouch.isBulkStorage();
+            this.contents = contents;
+            this.changes = changes;
+        }
+
+        /**
+         * Write this pouch into its section of a YAML player file. With changes, only the
+         * changed content entries are serialized again; without changes, after the contents
+         * were replaced, or into an empty section, everything is written.
+         *
+         * @param config The pouch section, holding the previous save if there is one
+         */
+        public void saveToConfig(ConfigurationSection config) {
+            // An empty section has no previous save to apply the changes to
+            boolean full = changes == null || config.getKeys(false).isEmpty();
+
+            if (full || changes.contains(ChangeJournal.Change.LEVEL)) {
+                config.set("level", level);
+            }
+            if (full || changes.contains(ChangeJournal.Change.SKIN)) {
+                config.set("skin", skin);
+            }
+            if (full || changes.contains(ChangeJournal.Change.ENCHANTMENTS)) {
+                // Convert enchantments to a list of maps
+                List<Map<String, Object>> enchantmentsList = new ArrayList<>();
+                for (int i = 0; i < enchantmentTypes.length; i++) {
+                    Map<String, Object> enchantmentMap = new HashMap<>();
+                    enchantmentMap.put("type", enchantmentTypes[i]);
+                    enchantmentMap.put("level", enchantmentLevels[i]);
+                    enchantmentsList.add(enchantmentMap);
+                }
+                config.set("enchantments", enchantmentsList);
+            }
+
+            // Contents are written as sections so later deltas can replace single entries
+            ConfigurationSection contentsSection = config.getConfigurationSection("contents");
+            if (full || changes.isCleared() || contentsSection == null) {
+                contentsSection = config.createSection("contents");
+                for (int slot = contents.nextSlot(0); slot >= 0; slot = contents.nextSlot(slot + 1)) {
+                    contentsSection.createSection(String.valueOf(slot), serializeEntry(slot));
+                }
+            } else {
+                for (int i = 0; i < changes.getSlotCount(); i++) {
+                    int slot = changes.getSlot(i);
+                    if (changes.getChange(i) == ChangeJournal.Change.SLOT_REMOVED || contents.getPrototype(slot) == null) {
+                        contentsSection.set(String.valueOf(slot), null);
+                    } else {
+                        contentsSection.createSection(String.valueOf(slot), serializeEntry(slot));
+                    }
+                }
+            }
+
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("items_collected", itemsCollected);
+            stats.put("actions_performed", actionsPerformed);
+            stats.put("last_used", lastUsed);
+            config.set("stats", stats);
+        }
+
+        /**
+         * Serialize one content entry.
+         * Bulk pouches write one prototype per item with a long count instead of an amount.
+         *
+         * @param slot The slot
+         * @return The serialized entry
+         */
+        private Map<String, Object> serializeEntry(int slot) {
+            long amount = contents.getAmount(slot);
+
+            Map<String, Object> serialized = new LinkedHashMap<>(contents.getPrototype(slot).serialize());
+            if (bulkStorage) {
+                serialized.put("count", amount);
+            } else if (amount != 1) {
+                serialized.put("amount", (int) amount);
+            }
+            return serialized;
+        }
+
+        public String getPouchId() {
+            return pouchId;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        public String getSkin() {
+            return skin;
+        }
+
+        public String[] getEnchantmentTypes() {
+            return enchantmentTypes;
+        }
+
+        public int[] getEnchantmentLevels() {
+            return enchantmentLevels;
+        }
+
+        public int getItemsCollected() {
+            return itemsCollected;
+        }
+
+        public int getActionsPerformed() {
+            return actionsPerformed;
+        }
+
+        public long getLastUsed() {
+            return lastUsed;
+        }
+
+        public ContentSnapshot getContents() {
+            return contents;
+        }
+
+        public ChangeJournal.Delta getChanges() {
+            return changes;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.brekfst.fruitPouches.data;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Where player pouch data is kept. Data is exchanged in the layout of a YAML player file: a
+ * {@code pouches} section with one section per pouch, and a {@code skins} section.
+ * <p>
+ * Loads and saves run on the async executor. Calls for one player never overlap, but calls
+ * for different players can, so implementations must handle that.
+ */
+public interface PlayerStorage {
+
+    /**
+     * Open the storage, e.g. connect to the database
+     *
+     * @throws Exception If the storage can't be used
+     */
+    void open() throws Exception;
+
+    /**
+     * Read a player's data
+     *
+     * @param playerId The player UUID
+     * @return The data, or null if nothing is stored for the player
+     * @throws Exception If reading failed
+     */
+    ConfigurationSection load(UUID playerId) throws Exception;
+
+    /**
+     * Write saves of a player's data, in order
+     *
+     * @param playerId The player UUID
+     * @param saves The saves
+     * @throws Exception If writing failed; the caller then writes everything again next time
+     */
+    void save(UUID playerId, List<PlayerSave> saves) throws Exception;
+
+    /**
+     * Replace everything stored for a player, e.g. when migrating from another storage
+     *
+     * @param playerId The player UUID
+     * @param data The data
+     * @throws Exception If writing failed
+     */
+    void replace(UUID playerId, ConfigurationSection data) throws Exception;
+
+    /**
+     * Get every player with stored data
+     *
+     * @return The player UUIDs
+     * @throws Exception If listing failed
+     */
+    Collection<UUID> getStoredPlayers() throws Exception;
+
+    /**
+     * Forget anything kept in memory for a player
+     *
+     * @param playerId The player UUID
+     */
+    void unload(UUID playerId);
+
+    /**
+     * Close the storage
+     */
+    void close();
+
+    /**
+     * Get the storage type, as used by {@code data.storage-type}
+     *
+     * @return The type
+     */
+    String getType();
+}
@@ -0,0 +1,404 @@
+package com.brekfst.fruitPouches.data;
+
+import com.brekfst.fruitPouches.content.ContentSnapshot;
+import com.brekfst.fruitPouches.content.ItemPrototype;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.io.BukkitObjectInputStream;
+import org.bukkit.util.io.BukkitObjectOutputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Versioned binary format for player pouch data.
+ * <p>
+ * A file is a header (magic, version, flags) followed by a body that is optionally deflated.
+ * The body holds one self-contained block per pouch and then the player's skins. A block
+ * starts with the pouch's level, skin, enchantments and stats, then a table of the distinct
+ * items in the pouch, then one (slot, item index, count) record per entry. Items are written
+ * with Bukkit's object streams, so they round-trip exactly like they do through YAML, but each
+ * distinct item is only written once per pouch.
+ */
+public final class PouchCodec {
+
+    // "FPCH"
+    private static final int MAGIC = 0x46504348;
+    private static final int VERSION = 1;
+    private static final int FLAG_COMPRESSED = 1;
+
+    private PouchCodec() {
+    }
+
+    /**
+     * Encode a pouch into a block
+     *
+     * @param write The pouch as captured for the save
+     * @return The block
+     * @throws IOException If an item could not be written
+     */
+    public static byte[] encode(PlayerSave.PouchWrite write) throws IOException {
+        ContentSnapshot contents = write.getContents();
+
+        // Entries share prototypes, so the table only needs one item per prototype
+        Map<ItemPrototype, Integer> table = new IdentityHashMap<>();
+        List<ItemStack> items = new ArrayList<>();
+        int[] slots = new int[contents.size()];
+        int[] indexes = new int[slots.length];
+        long[] amounts = new long[slots.length];
+        int entry = 0;
+        for (int slot = contents.nextSlot(0); slot >= 0; slot = contents.nextSlot(slot + 1)) {
+            ItemPrototype prototype = contents.getPrototype(slot);
+            Integer index = table.get(prototype);
+            if (index == null) {
+                index = items.size();
+                table.put(prototype, index);
+                items.add(prototype.toItemStack(1));
+            }
+
+            slots[entry] = slot;
+            indexes[entry] = index;
+            amounts[entry] = contents.getAmount(slot);
+            entry++;
+        }
+
+        return writeBlock(write.getLevel(), write.getSkin(), write.getEnchantmentTypes(), write.getEnchantmentLevels(),
+                write.getItemsCollected(), write.getActionsPerformed(), write.getLastUsed(), items, slots, indexes, amounts);
+    }
+
+    /**
+     * Encode a pouch laid out like a YAML player file into a block, e.g. when upgrading an old
+     * file. Entries keyed by slot keep their slot; older files key entries by UUID, those are
+     * numbered in file order, which is also the order they are loaded in.
+     *
+     * @param section The pouch section
+     * @return The block
+     * @throws IOException If an item could not be written
+     */
+    public static byte[] encode(ConfigurationSection section) throws IOException {
+        if (section.get("block") instanceof byte[]) {
+            // Contents were never decoded, so the block is still current
+            return (byte[]) section.get("block");
+        }
+
+        List<Map<?, ?>> enchantments = section.getMapList("enchantments");
+        String[] enchantmentTypes = new String[enchantments.size()];
+        int[] enchantmentLevels = new int[enchantments.size()];
+        for (int i = 0; i < enchantmentTypes.length; i++) {
+            enchantmentTypes[i] = enchantments.get(i).get("type").toString();
+            enchantmentLevels[i] = Integer.parseInt(enchantments.get(i).get("level").toString());
+        }
+
+        Map<ItemPrototype, Integer> table = new IdentityHashMap<>();
+        List<ItemStack> items = new ArrayList<>();
+        List<long[]> entries = new ArrayList<>();
+        boolean keyedBySlot = true;
+        ConfigurationSection contentsSection = section.getConfigurationSection("contents");
+        if (contentsSection != null) {
+            for (String key : contentsSection.getKeys(false)) {
+                ConfigurationSection itemSection = contentsSection.getConfigurationSection(key);
+                if (itemSection == null) {
+                    continue;
+                }
+
+                int slot = -1;
+                try {
+                    slot = Integer.parseInt(key);
+                } catch (NumberFormatException e) {
+                    keyedBySlot = false;
+                }
+
+                ItemStack item = readItem(itemSection);
+                ItemPrototype prototype = ItemPrototype.of(item);
+                Integer index = table.get(prototype);
+                if (index == null) {
+                    index = items.size();
+                    table.put(prototype, index);
+                    items.add(prototype.toItemStack(1));
+                }
+                entries.add(new long[]{slot, index, itemSection.getLong("count", item.getAmount())});
+            }
+        }
+
+        int[] slots = new int[entries.size()];
+        int[] indexes = new int[slots.length];
+        long[] amounts = new long[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = keyedBySlot ? (int) entries.get(i)[0] : i;
+            indexes[i] = (int) entries.get(i)[1];
+            amounts[i] = entries.get(i)[2];
+        }
+
+        return writeBlock(section.getInt("level", 0), section.getString("skin", ""), enchantmentTypes, enchantmentLevels,
+                section.getInt("stats.items_collected", 0), section.getInt("stats.actions_performed", 0),
+                section.getLong("stats.last_used", System.currentTimeMillis()), items, slots, indexes, amounts);
+    }
+
+    /**
+     * Read the item of a content entry in the YAML layout
+     *
+     * @param itemSection The entry
+     * @return The item, with the amount saved in the entry
+     */
+    static ItemStack readItem(ConfigurationSection itemSection) {
+        if (itemSection.isItemStack("item")) {
+            return itemSection.getItemStack("item");
+        }
+
+        Map<String, Object> serialized = itemSection.getValues(true);
+        serialized.remove("count");
+        return ItemStack.deserialize(serialized);
+    }
+
+    /**
+     * Write a pouch's level, skin, enchantments and stats, like the start of a block
+     *
+     * @param out Where to write to
+     * @param write The pouch as captured for the save
+     * @throws IOException If writing failed
+     */
+    static void writeMeta(DataOutput out, PlayerSave.PouchWrite write) throws IOException {
+        writeMeta(out, write.getLevel(), write.getSkin(), write.getEnchantmentTypes(), write.getEnchantmentLevels(),
+                write.getItemsCollected(), write.getActionsPerformed(), write.getLastUsed());
+    }
+
+    private static void writeMeta(DataOutput out, int level, String skin, String[] enchantmentTypes, int[] enchantmentLevels,
+                                  int itemsCollected, int actionsPerformed, long lastUsed) throws IOException {
+        out.writeInt(level);
+        out.writeUTF(skin != null ? skin : "");
+        out.writeInt(enchantmentTypes.length);
+        for (int i = 0; i < enchantmentTypes.length; i++) {
+            out.writeUTF(enchantmentTypes[i]);
+            out.writeInt(enchantmentLevels[i]);
+        }
+        out.writeInt(itemsCollected);
+        out.writeInt(actionsPerformed);
+        out.writeLong(lastUsed);
+    }
+
+    /**
+     * Read what {@link #writeMeta(DataOutput, PlayerSave.PouchWrite)} wrote into a pouch section laid out like
+     * a YAML player file
+     *
+     * @param in Where to read from
+     * @param section The pouch section
+     * @throws IOException If reading failed
+     */
+    static void readMeta(DataInput in, ConfigurationSection section) throws IOException {
+        section.set("level", in.readInt());
+        section.set("skin", in.readUTF());
+
+        List<Map<String, Object>> enchantments = new ArrayList<>();
+        int enchantmentCount = in.readInt();
+        for (int i = 0; i < enchantmentCount; i++) {
+            Map<String, Object> enchantment = new HashMap<>();
+            enchantment.put("type", in.readUTF());
+            enchantment.put("level", in.readInt());
+            enchantments.add(enchantment);
+        }
+        section.set("enchantments", enchantments);
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("items_collected", in.readInt());
+        stats.put("actions_performed", in.readInt());
+        stats.put("last_used", in.readLong());
+        section.createSection("stats", stats);
+    }
+
+    private static byte[] writeBlock(int level, String skin, String[] enchantmentTypes, int[] enchantmentLevels,
+                                     int itemsCollected, int actionsPerformed, long lastUsed,
+                                     List<ItemStack> items, int[] slots, int[] indexes, long[] amounts) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + items.size() * 128 + slots.length * 16);
+        try (BukkitObjectOutputStream out = new BukkitObjectOutputStream(bytes)) {
+            // Header
+            writeMeta(out, level, skin, enchantmentTypes, enchantmentLevels, itemsCollected, actionsPerformed, lastUsed);
+
+            // Prototype table
+            out.writeInt(items.size());
+            for (ItemStack item : items) {
+                out.writeObject(item);
+            }
+
+            // Counts
+            out.writeInt(slots.length);
+            for (int i = 0; i < slots.length; i++) {
+                out.writeInt(slots[i]);
+                out.writeInt(indexes[i]);
+                out.writeLong(amounts[i]);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode a block into a pouch section laid out like a YAML player file. Content entries
+     * hold the decoded item under {@code item} and the amount under {@code count}.
+     *
+     * @param block The block
+     * @param section The section to fill
+     * @throws IOException If the block is damaged
+     */
+    public static void decode(byte[] block, ConfigurationSection section) throws IOException {
+        try (BukkitObjectInputStream in = new BukkitObjectInputStream(new ByteArrayInputStream(block))) {
+            readMeta(in, section);
+
+            ItemStack[] items = new ItemStack[in.readInt()];
+            for (int i = 0; i < items.length; i++) {
+                items[i] = (ItemStack) in.readObject();
+            }
+
+            ConfigurationSection contentsSection = section.createSection("contents");
+            int entries = in.readInt();
+            for (int i = 0; i < entries; i++) {
+                ConfigurationSection entry = contentsSection.createSection(String.valueOf(in.readInt()));
+                entry.set("item", items[in.readInt()]);
+                entry.set("count", in.readLong());
+            }
+        } catch (ClassNotFoundException | ClassCastException | IndexOutOfBoundsException e) {
+            throw new IOException("Damaged pouch block", e);
+        }
+    }
+
+    /**
+     * Decode only the level, skin, enchantments and stats of a block into a pouch section. The
+     * block is kept under {@code block}, and {@link #expand} decodes the contents once they are
+     * needed.
+     *
+     * @param block The block
+     * @param section The section to fill
+     * @throws IOException If the block is damaged
+     */
+    public static void decodeHeader(byte[] block, ConfigurationSection section) throws IOException {
+        try (BukkitObjectInputStream in = new BukkitObjectInputStream(new ByteArrayInputStream(block))) {
+            readMeta(in, section);
+        }
+        section.set("block", block);
+    }
+
+    /**
+     * Decode the contents of a pouch section filled by {@link #decodeHeader}. Sections that
+     * are already decoded are left as they are.
+     *
+     * @param section The pouch section
+     * @throws IOException If the block is damaged
+     */
+    public static void expand(ConfigurationSection section) throws IOException {
+        Object block = section.get("block");
+        if (block instanceof byte[]) {
+            section.set("block", null);
+            decode((byte[]) block, section);
+        }
+    }
+
+    /**
+     * Write a player file
+     *
+     * @param output Where to write to
+     * @param data The pouch blocks and skins
+     * @param compress Whether to deflate the body
+     * @throws IOException If writing failed
+     */
+    public static void writeFile(OutputStream output, FileData data, boolean compress) throws IOException {
+        DataOutputStream header = new DataOutputStream(output);
+        header.writeInt(MAGIC);
+        header.writeByte(VERSION);
+        header.writeByte(compress ? FLAG_COMPRESSED : 0);
+
+        Deflater deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+        try {
+            DeflaterOutputStream deflated = compress ? new DeflaterOutputStream(output, deflater, 8192) : null;
+            DataOutputStream out = new DataOutputStream(deflated != null ? deflated : output);
+            out.writeInt(data.pouches.size());
+            for (Map.Entry<String, byte[]> entry : data.pouches.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().length);
+                out.write(entry.getValue());
+            }
+
+            out.writeInt(data.skins.size());
+            for (Map.Entry<String, Set<String>> entry : data.skins.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (String skin : entry.getValue()) {
+                    out.writeUTF(skin);
+                }
+            }
+
+            out.flush();
+            if (deflated != null) {
+                deflated.finish();
+            }
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Read a player file
+     *
+     * @param input Where to read from
+     * @return The pouch blocks and skins
+     * @throws IOException If the file is not a pouch file or is damaged
+     */
+    public static FileData readFile(InputStream input) throws IOException {
+        DataInputStream header = new DataInputStream(input);
+        if (header.readInt() != MAGIC) {
+            throw new IOException("Not a pouch data file");
+        }
+        int version = header.readUnsignedByte();
+        if (version > VERSION) {
+            throw new IOException("Unsupported pouch data version " + version);
+        }
+        boolean compressed = (header.readUnsignedByte() & FLAG_COMPRESSED) != 0;
+
+        DataInputStream in = new DataInputStream(compressed ? new InflaterInputStream(input) : input);
+        FileData data = new FileData();
+        int pouches = in.readInt();
+        for (int i = 0; i < pouches; i++) {
+            String pouchId = in.readUTF();
+            byte[] block = new byte[in.readInt()];
+            in.readFully(block);
+            data.pouches.put(pouchId, block);
+        }
+
+        int skinPouches = in.readInt();
+        for (int i = 0; i < skinPouches; i++) {
+            String pouchId = in.readUTF();
+            Set<String> skins = new HashSet<>();
+            int count = in.readInt();
+            for (int j = 0; j < count; j++) {
+                skins.add(in.readUTF());
+            }
+            data.skins.put(pouchId, skins);
+        }
+        return data;
+    }
+
+    /**
+     * The contents of a player file: an encoded block per pouch, and the skins per pouch
+     */
+    public static final class FileData {
+        final Map<String, byte[]> pouches = new LinkedHashMap<>();
+        final Map<String, Set<String>> skins = new HashMap<>();
+    }
+}
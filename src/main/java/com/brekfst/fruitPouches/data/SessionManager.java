@@ -0,0 +1,291 @@
+package com.brekfst.fruitPouches.data;
+
+import com.brekfst.fruitPouches.FruitPouches;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides how long a player's data stays in memory. Data is read before the player joins
+ * (see {@link PlayerDataManager#prefetchPlayerData}). When they quit it is saved and kept for
+ * a grace period, so a quick reconnect doesn't read it again. After that it is either kept in
+ * a small cache of recently offline players ({@code data.sessions.offline-cache-size}) or
+ * removed, but only after the save has been written.
+ * <p>
+ * Everything runs on the main thread apart from {@link #handlePreLogin}.
+ */
+public class SessionManager {
+
+    // How long to wait before evicting again after a save failed (1 minute)
+    private static final long EVICTION_RETRY_DELAY = 20L * 60;
+
+    private final FruitPouches plugin;
+    private final Map<UUID, Session> sessions;
+    private final long gracePeriod;
+    private final int offlineCacheSize;
+
+    // Offline players past their grace period, least recently online first
+    private final LinkedHashMap<UUID, Session> offlineCache;
+
+    // Metrics
+    private long reconnects;
+    private long cacheHits;
+    private long evictions;
+    private long failedEvictions;
+
+    /**
+     * Create a new session manager
+     *
+     * @param plugin The plugin instance
+     */
+    public SessionManager(FruitPouches plugin) {
+        this.plugin = plugin;
+        this.sessions = new ConcurrentHashMap<>();
+        this.gracePeriod = Math.max(plugin.getConfig().getLong("data.sessions.grace-period", 30), 0) * 20L;
+        this.offlineCacheSize = Math.max(plugin.getConfig().getInt("data.sessions.offline-cache-size", 0), 0);
+        this.offlineCache = new LinkedHashMap<>();
+    }
+
+    /**
+     * Handle a player that is about to log in. Runs on a worker thread; reads the player's data
+     * unless it is still in memory from their last session.
+     *
+     * @param playerId The player UUID
+     */
+    public void handlePreLogin(UUID playerId) {
+        Session session = sessions.get(playerId);
+        if (session != null) {
+            // Keeps an eviction that is already writing from removing the data
+            session.reconnecting = true;
+        }
+
+        if (session == null || !plugin.getPlayerDataManager().isResident(playerId)) {
+            plugin.getPlayerDataManager().prefetchPlayerData(playerId);
+        }
+    }
+
+    /**
+     * Handle a login that was denied after {@link #handlePreLogin}
+     *
+     * @param playerId The player UUID
+     */
+    public void handleLoginDenied(UUID playerId) {
+        plugin.getPlayerDataManager().discardPrefetchedData(playerId);
+
+        Session session = sessions.get(playerId);
+        if (session != null) {
+            // Its grace period or eviction carries on as if the player never came back
+            session.reconnecting = false;
+            if (session.state == State.GRACE && session.graceTask == null) {
+                startGrace(session);
+            }
+        }
+    }
+
+    /**
+     * Handle a player that joined, reusing their data if it is still in memory
+     *
+     * @param playerId The player UUID
+     */
+    public void handleJoin(UUID playerId) {
+        Session session = sessions.get(playerId);
+        if (session != null) {
+            if (session.state == State.CACHED) {
+                offlineCache.remove(playerId);
+                cacheHits++;
+            } else if (session.state != State.ONLINE) {
+                reconnects++;
+            }
+
+            cancelGrace(session);
+            session.state = State.ONLINE;
+            session.reconnecting = false;
+
+            if (!plugin.getPlayerDataManager().isResident(playerId)) {
+                // Their last load never finished
+                plugin.getPlayerDataManager().loadPlayerData(playerId);
+            }
+            return;
+        }
+
+        sessions.put(playerId, new Session(playerId));
+        plugin.getPlayerDataManager().loadPlayerData(playerId);
+    }
+
+    /**
+     * Handle a player that quit: save their data now and start the grace period
+     *
+     * @param playerId The player UUID
+     */
+    public void handleQuit(UUID playerId) {
+        Session session = sessions.computeIfAbsent(playerId, Session::new);
+        plugin.getPlayerDataManager().savePlayerData(playerId);
+        startGrace(session);
+    }
+
+    /**
+     * Keep a session's data for the grace period, then cache or evict it
+     *
+     * @param session The session
+     */
+    private void startGrace(Session session) {
+        cancelGrace(session);
+        session.state = State.GRACE;
+        if (gracePeriod <= 0) {
+            endGrace(session);
+            return;
+        }
+        session.graceTask = Bukkit.getScheduler().runTaskLater(plugin, () -> {
+            session.graceTask = null;
+            endGrace(session);
+        }, gracePeriod);
+    }
+
+    private void cancelGrace(Session session) {
+        if (session.graceTask != null) {
+            session.graceTask.cancel();
+            session.graceTask = null;
+        }
+    }
+
+    /**
+     * Move a session whose grace period is over into the offline cache, evicting the least
+     * recently online player if the cache is full, or evict it if there is no cache
+     *
+     * @param session The session
+     */
+    private void endGrace(Session session) {
+        if (offlineCacheSize <= 0) {
+            evict(session);
+            return;
+        }
+
+        session.state = State.CACHED;
+        offlineCache.put(session.playerId, session);
+
+        Iterator<Session> eldest = offlineCache.values().iterator();
+        while (offlineCache.size() > offlineCacheSize) {
+            Session evicted = eldest.next();
+            eldest.remove();
+            evict(evicted);
+        }
+    }
+
+    /**
+     * Save a session's data and remove it from memory once the write is done
+     *
+     * @param session The session
+     */
+    private void evict(Session session) {
+        session.state = State.EVICTING;
+        plugin.getPlayerDataManager().savePlayerData(session.playerId, written -> finishEviction(session, written));
+    }
+
+    /**
+     * Remove a session's data after its save was written
+     *
+     * @param session The session
+     * @param written Whether the save was written
+     */
+    private void finishEviction(Session session, boolean written) {
+        if (sessions.get(session.playerId) != session || session.state != State.EVICTING) {
+            // The player came back while the save was being written
+            return;
+        }
+
+        if (session.reconnecting) {
+            // Logging in right now; keep the data for them. If the login is denied, the grace
+            // period starts over (see handleLoginDenied)
+            session.state = State.GRACE;
+            return;
+        }
+
+        if (!written) {
+            // Removing it now would lose the changes, so keep it and try again later
+            failedEvictions++;
+            plugin.getDebug().log("Keeping player data for " + session.playerId + " in memory, its save failed");
+            session.state = State.GRACE;
+            session.graceTask = Bukkit.getScheduler().runTaskLater(plugin, () -> {
+                session.graceTask = null;
+                evict(session);
+            }, EVICTION_RETRY_DELAY);
+            return;
+        }
+
+        sessions.remove(session.playerId);
+        plugin.getPlayerDataManager().removePlayerData(session.playerId);
+        evictions++;
+        plugin.getDebug().log("Removed player data for " + session.playerId + " from memory");
+    }
+
+    // Metrics
+
+    /**
+     * Get the number of sessions in a state
+     *
+     * @param state The state
+     * @return The number of sessions
+     */
+    public int getSessionCount(State state) {
+        int count = 0;
+        for (Session session : sessions.values()) {
+            if (session.state == state) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int getOfflineCacheSize() {
+        return offlineCacheSize;
+    }
+
+    public long getGracePeriod() {
+        return gracePeriod;
+    }
+
+    public long getReconnects() {
+        return reconnects;
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getFailedEvictions() {
+        return failedEvictions;
+    }
+
+    /**
+     * Where a player's data is in its lifecycle
+     */
+    public enum State {
+        ONLINE,
+        GRACE,
+        CACHED,
+        EVICTING
+    }
+
+    private static final class Session {
+        private final UUID playerId;
+        private State state;
+        private BukkitTask graceTask;
+
+        // Set from the pre-login thread
+        private volatile boolean reconnecting;
+
+        private Session(UUID playerId) {
+            this.playerId = playerId;
+            this.state = State.ONLINE;
+        }
+    }
+}
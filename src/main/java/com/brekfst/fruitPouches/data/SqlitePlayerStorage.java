@@ -0,0 +1,456 @@
+package com.brekfst.fruitPouches.data;
+
+import com.brekfst.fruitPouches.FruitPouches;
+import com.brekfst.fruitPouches.content.ChangeJournal;
+import com.brekfst.fruitPouches.content.ContentSnapshot;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.MemoryConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Player storage in an embedded SQLite database ({@code data/players.db}). Each pouch is a
+ * row and each content entry is a row of its own, so a save only touches the rows that
+ * changed: an amount change is a single-column update and the item itself is only
+ * serialized when an entry is added or replaced. Every save runs in one transaction.
+ * <p>
+ * The SQLite driver ships with the server, so no extra library is needed.
+ */
+public class SqlitePlayerStorage implements PlayerStorage {
+
+    private final FruitPouches plugin;
+    private final File file;
+    private Connection connection;
+
+    // Prepared once, used under the storage lock
+    private PreparedStatement upsertPouch;
+    private PreparedStatement insertEntry;
+    private PreparedStatement updateAmount;
+    private PreparedStatement deleteEntry;
+    private PreparedStatement deleteEntries;
+    private PreparedStatement deleteSkins;
+    private PreparedStatement insertSkins;
+    private PreparedStatement selectPouches;
+    private PreparedStatement selectEntries;
+    private PreparedStatement selectSkins;
+
+    /**
+     * Create a new SQLite player storage
+     *
+     * @param plugin The plugin instance
+     */
+    public SqlitePlayerStorage(FruitPouches plugin) {
+        this.plugin = plugin;
+        this.file = new File(plugin.getDataFolder(), "data/players.db");
+    }
+
+    @Override
+    public synchronized void open() throws Exception {
+        Class.forName("org.sqlite.JDBC");
+        file.getParentFile().mkdirs();
+        connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+
+        try (Statement statement = connection.createStatement()) {
+            // WAL lets reads and the next write proceed without waiting for a full sync
+            statement.execute("PRAGMA journal_mode=WAL");
+            statement.execute("PRAGMA synchronous=NORMAL");
+            statement.execute("CREATE TABLE IF NOT EXISTS pouches (" +
+                    "player TEXT NOT NULL, pouch TEXT NOT NULL, level INTEGER NOT NULL, skin TEXT NOT NULL, " +
+                    "enchantments TEXT NOT NULL, items_collected INTEGER NOT NULL, actions_performed INTEGER NOT NULL, " +
+                    "last_used INTEGER NOT NULL, PRIMARY KEY (player, pouch))");
+            statement.execute("CREATE TABLE IF NOT EXISTS pouch_entries (" +
+                    "player TEXT NOT NULL, pouch TEXT NOT NULL, slot INTEGER NOT NULL, item TEXT NOT NULL, " +
+                    "amount INTEGER NOT NULL, PRIMARY KEY (player, pouch, slot))");
+            statement.execute("CREATE TABLE IF NOT EXISTS pouch_skins (" +
+                    "player TEXT NOT NULL, pouch TEXT NOT NULL, skins TEXT NOT NULL, PRIMARY KEY (player, pouch))");
+        }
+
+        upsertPouch = connection.prepareStatement("INSERT OR REPLACE INTO pouches " +
+                "(player, pouch, level, skin, enchantments, items_collected, actions_performed, last_used) VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+        insertEntry = connection.prepareStatement("INSERT OR REPLACE INTO pouch_entries (player, pouch, slot, item, amount) VALUES (?, ?, ?, ?, ?)");
+        updateAmount = connection.prepareStatement("UPDATE pouch_entries SET amount = ? WHERE player = ? AND pouch = ? AND slot = ?");
+        deleteEntry = connection.prepareStatement("DELETE FROM pouch_entries WHERE player = ? AND pouch = ? AND slot = ?");
+        deleteEntries = connection.prepareStatement("DELETE FROM pouch_entries WHERE player = ? AND pouch = ?");
+        deleteSkins = connection.prepareStatement("DELETE FROM pouch_skins WHERE player = ?");
+        insertSkins = connection.prepareStatement("INSERT INTO pouch_skins (player, pouch, skins) VALUES (?, ?, ?)");
+        selectPouches = connection.prepareStatement("SELECT pouch, level, skin, enchantments, items_collected, actions_performed, last_used " +
+                "FROM pouches WHERE player = ?");
+        selectEntries = connection.prepareStatement("SELECT pouch, slot, item, amount FROM pouch_entries WHERE player = ? ORDER BY pouch, slot");
+        selectSkins = connection.prepareStatement("SELECT pouch, skins FROM pouch_skins WHERE player = ?");
+
+        plugin.getDebug().log("Opened SQLite player storage at " + file.getPath());
+    }
+
+    @Override
+    public synchronized ConfigurationSection load(UUID playerId) throws Exception {
+        String player = playerId.toString();
+        MemoryConfiguration data = new MemoryConfiguration();
+        ConfigurationSection pouchesSection = data.createSection("pouches");
+        boolean found = false;
+
+        selectPouches.setString(1, player);
+        try (ResultSet result = selectPouches.executeQuery()) {
+            while (result.next()) {
+                found = true;
+                ConfigurationSection pouchSection = pouchesSection.createSection(result.getString("pouch"));
+                pouchSection.set("level", result.getInt("level"));
+                pouchSection.set("skin", result.getString("skin"));
+                pouchSection.set("enchantments", parseEnchantments(result.getString("enchantments")));
+
+                Map<String, Object> stats = new HashMap<>();
+                stats.put("items_collected", result.getInt("items_collected"));
+                stats.put("actions_performed", result.getInt("actions_performed"));
+                stats.put("last_used", result.getLong("last_used"));
+                pouchSection.createSection("stats", stats);
+                pouchSection.createSection("contents");
+            }
+        }
+
+        selectEntries.setString(1, player);
+        try (ResultSet result = selectEntries.executeQuery()) {
+            while (result.next()) {
+                ConfigurationSection contentsSection = pouchesSection.getConfigurationSection(result.getString("pouch") + ".contents");
+                if (contentsSection == null) {
+                    continue;
+                }
+
+                YamlConfiguration item = new YamlConfiguration();
+                item.loadFromString(result.getString("item"));
+                ConfigurationSection entry = contentsSection.createSection(String.valueOf(result.getInt("slot")), item.getValues(false));
+                entry.set("count", result.getLong("amount"));
+            }
+        }
+
+        selectSkins.setString(1, player);
+        try (ResultSet result = selectSkins.executeQuery()) {
+            while (result.next()) {
+                found = true;
+                String skins = result.getString("skins");
+                data.set("skins." + result.getString("pouch"), skins.isEmpty() ? new ArrayList<>() : List.of(skins.split(",")));
+            }
+        }
+
+        return found ? data : null;
+    }
+
+    @Override
+    public synchronized void save(UUID playerId, List<PlayerSave> saves) throws Exception {
+        String player = playerId.toString();
+        connection.setAutoCommit(false);
+        try {
+            for (PlayerSave save : saves) {
+                for (PlayerSave.PouchWrite write : save.getPouches()) {
+                    writePouch(player, write);
+                }
+                if (save.getSkins() != null) {
+                    writeSkins(player, save.getSkins());
+                }
+            }
+            connection.commit();
+        } catch (Exception e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Write one pouch: its row, and either all entries or only the changed ones
+     *
+     * @param player The player UUID
+     * @param write The pouch write
+     * @throws SQLException If writing failed
+     */
+    private void writePouch(String player, PlayerSave.PouchWrite write) throws SQLException {
+        String pouchId = write.getPouchId();
+        upsertPouch.setString(1, player);
+        upsertPouch.setString(2, pouchId);
+        upsertPouch.setInt(3, write.getLevel());
+        upsertPouch.setString(4, write.getSkin());
+        upsertPouch.setString(5, formatEnchantments(write.getEnchantmentTypes(), write.getEnchantmentLevels()));
+        upsertPouch.setInt(6, write.getItemsCollected());
+        upsertPouch.setInt(7, write.getActionsPerformed());
+        upsertPouch.setLong(8, write.getLastUsed());
+        upsertPouch.executeUpdate();
+
+        ContentSnapshot contents = write.getContents();
+        ChangeJournal.Delta changes = write.getChanges();
+        if (changes == null || changes.isCleared()) {
+            deleteEntries.setString(1, player);
+            deleteEntries.setString(2, pouchId);
+            deleteEntries.executeUpdate();
+
+            for (int slot = contents.nextSlot(0); slot >= 0; slot = contents.nextSlot(slot + 1)) {
+                addInsert(player, pouchId, contents, slot);
+            }
+            insertEntry.executeBatch();
+            return;
+        }
+
+        List<Integer> updated = new ArrayList<>();
+        for (int i = 0; i < changes.getSlotCount(); i++) {
+            int slot = changes.getSlot(i);
+            ChangeJournal.Change change = changes.getChange(i);
+
+            if (change == ChangeJournal.Change.SLOT_REMOVED || contents.getPrototype(slot) == null) {
+                deleteEntry.setString(1, player);
+                deleteEntry.setString(2, pouchId);
+                deleteEntry.setInt(3, slot);
+                deleteEntry.addBatch();
+            } else if (change == ChangeJournal.Change.AMOUNT_CHANGED) {
+                updateAmount.setLong(1, contents.getAmount(slot));
+                updateAmount.setString(2, player);
+                updateAmount.setString(3, pouchId);
+                updateAmount.setInt(4, slot);
+                updateAmount.addBatch();
+                updated.add(slot);
+            } else {
+                addInsert(player, pouchId, contents, slot);
+            }
+        }
+
+        deleteEntry.executeBatch();
+        int[] counts = updateAmount.executeBatch();
+        for (int i = 0; i < counts.length; i++) {
+            // The row should exist, but write the whole entry if it doesn't
+            if (counts[i] == 0) {
+                addInsert(player, pouchId, contents, updated.get(i));
+            }
+        }
+        insertEntry.executeBatch();
+    }
+
+    /**
+     * Queue an insert of a whole entry
+     *
+     * @param player The player UUID
+     * @param pouchId The pouch ID
+     * @param contents The contents snapshot
+     * @param slot The slot
+     * @throws SQLException If the statement could not be filled
+     */
+    private void addInsert(String player, String pouchId, ContentSnapshot contents, int slot) throws SQLException {
+        insertEntry.setString(1, player);
+        insertEntry.setString(2, pouchId);
+        insertEntry.setInt(3, slot);
+        insertEntry.setString(4, toText(contents.getPrototype(slot).serialize()));
+        insertEntry.setLong(5, contents.getAmount(slot));
+        insertEntry.addBatch();
+    }
+
+    /**
+     * Replace a player's skins
+     *
+     * @param player The player UUID
+     * @param skins The skins by pouch
+     * @throws SQLException If writing failed
+     */
+    private void writeSkins(String player, Map<String, ? extends Collection<String>> skins) throws SQLException {
+        deleteSkins.setString(1, player);
+        deleteSkins.executeUpdate();
+
+        for (Map.Entry<String, ? extends Collection<String>> entry : skins.entrySet()) {
+            insertSkins.setString(1, player);
+            insertSkins.setString(2, entry.getKey());
+            insertSkins.setString(3, String.join(",", entry.getValue()));
+            insertSkins.addBatch();
+        }
+        insertSkins.executeBatch();
+    }
+
+    @Override
+    public synchronized void replace(UUID playerId, ConfigurationSection data) throws Exception {
+        String player = playerId.toString();
+        connection.setAutoCommit(false);
+        try {
+            try (PreparedStatement deletePouches = connection.prepareStatement("DELETE FROM pouches WHERE player = ?");
+                 PreparedStatement deleteAllEntries = connection.prepareStatement("DELETE FROM pouch_entries WHERE player = ?")) {
+                deletePouches.setString(1, player);
+                deletePouches.executeUpdate();
+                deleteAllEntries.setString(1, player);
+                deleteAllEntries.executeUpdate();
+            }
+
+            ConfigurationSection pouchesSection = data.getConfigurationSection("pouches");
+            if (pouchesSection != null) {
+                for (String pouchId : pouchesSection.getKeys(false)) {
+                    ConfigurationSection pouchSection = pouchesSection.getConfigurationSection(pouchId);
+                    PouchCodec.expand(pouchSection);
+                    replacePouch(player, pouchId, pouchSection);
+                }
+            }
+
+            Map<String, List<String>> skins = new LinkedHashMap<>();
+            ConfigurationSection skinsSection = data.getConfigurationSection("skins");
+            if (skinsSection != null) {
+                for (String pouchId : skinsSection.getKeys(false)) {
+                    skins.put(pouchId, skinsSection.getStringList(pouchId));
+                }
+            }
+            writeSkins(player, skins);
+
+            connection.commit();
+        } catch (Exception e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Write one pouch from a YAML player file layout. Entries are renumbered in file order,
+     * which is also the order they are loaded in.
+     *
+     * @param player The player UUID
+     * @param pouchId The pouch ID
+     * @param section The pouch section
+     * @throws SQLException If writing failed
+     */
+    private void replacePouch(String player, String pouchId, ConfigurationSection section) throws SQLException {
+        List<String> enchantments = new ArrayList<>();
+        for (Map<?, ?> enchantment : section.getMapList("enchantments")) {
+            enchantments.add(enchantment.get("type") + ":" + enchantment.get("level"));
+        }
+
+        upsertPouch.setString(1, player);
+        upsertPouch.setString(2, pouchId);
+        upsertPouch.setInt(3, section.getInt("level", 0));
+        upsertPouch.setString(4, section.getString("skin", ""));
+        upsertPouch.setString(5, String.join(",", enchantments));
+        upsertPouch.setInt(6, section.getInt("stats.items_collected", 0));
+        upsertPouch.setInt(7, section.getInt("stats.actions_performed", 0));
+        upsertPouch.setLong(8, section.getLong("stats.last_used", System.currentTimeMillis()));
+        upsertPouch.executeUpdate();
+
+        ConfigurationSection contentsSection = section.getConfigurationSection("contents");
+        if (contentsSection == null) {
+            return;
+        }
+
+        int slot = 0;
+        for (String key : contentsSection.getKeys(false)) {
+            ConfigurationSection entry = contentsSection.getConfigurationSection(key);
+            if (entry == null) {
+                continue;
+            }
+
+            Map<String, Object> item = new LinkedHashMap<>(entry.getValues(false));
+            long amount = entry.getLong("count", entry.getLong("amount", 1));
+            item.remove("count");
+            item.remove("amount");
+
+            insertEntry.setString(1, player);
+            insertEntry.setString(2, pouchId);
+            insertEntry.setInt(3, slot++);
+            insertEntry.setString(4, toText(item));
+            insertEntry.setLong(5, amount);
+            insertEntry.addBatch();
+        }
+        insertEntry.executeBatch();
+    }
+
+    @Override
+    public synchronized Collection<UUID> getStoredPlayers() throws Exception {
+        List<UUID> players = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT DISTINCT player FROM pouches")) {
+            while (result.next()) {
+                players.add(UUID.fromString(result.getString(1)));
+            }
+        }
+        return players;
+    }
+
+    @Override
+    public void unload(UUID playerId) {
+        // Nothing is kept in memory per player
+    }
+
+    @Override
+    public synchronized void close() {
+        if (connection == null) {
+            return;
+        }
+
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            plugin.getDebug().logException(e, "Failed to close SQLite player storage");
+        }
+        connection = null;
+    }
+
+    @Override
+    public String getType() {
+        return "sqlite";
+    }
+
+    /**
+     * Write a serialized item as YAML text
+     *
+     * @param serialized The serialized item
+     * @return The text
+     */
+    private static String toText(Map<String, Object> serialized) {
+        YamlConfiguration yaml = new YamlConfiguration();
+        for (Map.Entry<String, Object> entry : serialized.entrySet()) {
+            yaml.set(entry.getKey(), entry.getValue());
+        }
+        return yaml.saveToString();
+    }
+
+    /**
+     * Format enchantments as {@code type:level,type:level}
+     *
+     * @param types The enchantment types
+     * @param levels The enchantment levels
+     * @return The text
+     */
+    private static String formatEnchantments(String[] types, int[] levels) {
+        List<String> parts = new ArrayList<>();
+        for (int i = 0; i < types.length; i++) {
+            parts.add(types[i] + ":" + levels[i]);
+        }
+        return String.join(",", parts);
+    }
+
+    /**
+     * Parse enchantments written by {@link #formatEnchantments(String[], int[])} into the YAML layout
+     *
+     * @param text The text
+     * @return The enchantments as maps of type and level
+     */
+    private static List<Map<String, Object>> parseEnchantments(String text) {
+        List<Map<String, Object>> enchantments = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return enchantments;
+        }
+
+        for (String part : text.split(",")) {
+            int separator = part.lastIndexOf(':');
+            if (separator > 0) {
+                Map<String, Object> enchantment = new HashMap<>();
+                enchantment.put("type", part.substring(0, separator));
+                enchantment.put("level", Integer.parseInt(part.substring(separator + 1)));
+                enchantments.add(enchantment);
+            }
+        }
+        return enchantments;
+    }
+}
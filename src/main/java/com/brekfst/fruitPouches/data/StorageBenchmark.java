@@ -0,0 +1,429 @@
+package com.brekfst.fruitPouches.data;
+
+import com.brekfst.fruitPouches.FruitPouches;
+import com.brekfst.fruitPouches.content.ChangeJournal;
+import com.brekfst.fruitPouches.content.ContentSnapshot;
+import com.brekfst.fruitPouches.models.Pouch;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.MemoryConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Compares the player storage formats on the pouches of the online players: the size of a
+ * player's data and how long it takes to write and read it, including building the pouches,
+ * and what it costs to persist a single changed entry. These runs are in memory and show
+ * encoding cost and the amount of data each format hands to the disk.
+ * <p>
+ * A second run saves to a temporary directory next to the player data, so it includes the
+ * disk: player files replaced atomically on every save, against the log with group commit.
+ */
+public class StorageBenchmark {
+
+    // Threads saving at the same time in the disk run, like the async executor
+    private static final int DISK_WRITERS = 2;
+
+    private final FruitPouches plugin;
+
+    /**
+     * Create a new storage benchmark
+     *
+     * @param plugin The plugin instance
+     */
+    public StorageBenchmark(FruitPouches plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Run the benchmark async and report to the sender. Must be called on the main thread,
+     * which is where the pouch contents are captured.
+     *
+     * @param sender Who to report to
+     * @param iterations How many times each format is written and read per player
+     */
+    public void run(CommandSender sender, int iterations) {
+        List<Sample> players = new ArrayList<>();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            Sample sample = new Sample();
+            for (Pouch pouch : plugin.getPlayerDataManager().getPlayerPouches(player.getUniqueId()).values()) {
+                ContentSnapshot contents = pouch.snapshot();
+                sample.pouches.add(new PlayerSave.PouchWrite(pouch, contents, null));
+
+                if (sample.change == null && contents.nextSlot(0) >= 0) {
+                    ChangeJournal journal = new ChangeJournal();
+                    journal.recordSlot(contents.nextSlot(0), ChangeJournal.Change.SLOT_REPLACED);
+                    sample.change = new PlayerSave.PouchWrite(pouch, contents, journal.drain());
+                }
+            }
+            if (!sample.pouches.isEmpty()) {
+                players.add(sample);
+            }
+        }
+
+        if (players.isEmpty()) {
+            sender.sendMessage(ChatColor.RED + "No online player has any pouches to benchmark with.");
+            return;
+        }
+
+        plugin.getAsyncExecutor().submit(() -> {
+            List<String> results = new ArrayList<>();
+            try {
+                results.add(measure("yml", players, iterations, Format.YAML));
+                results.add(measure("binary", players, iterations, Format.BINARY));
+                results.add(measure("binary+deflate", players, iterations, Format.COMPRESSED));
+                results.add(measure("log", players, iterations, Format.LOG));
+                results.addAll(measureDisk(players, iterations));
+            } catch (Exception e) {
+                plugin.getDebug().logException(e, "Storage benchmark failed");
+                results.add(ChatColor.RED + "Benchmark failed: " + e.getMessage());
+            }
+
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                sender.sendMessage(ChatColor.GOLD + "Storage benchmark (" + players.size() + " players, "
+                        + iterations + " iterations, per player):");
+                for (String result : results) {
+                    sender.sendMessage(result);
+                }
+            });
+        });
+    }
+
+    /**
+     * Write and read every player's pouches in one format, and persist one changed entry
+     *
+     * @param name The format name to report
+     * @param players The pouches captured per player
+     * @param iterations How many times to write and read each player
+     * @param format The format
+     * @return The report line
+     * @throws Exception If writing or reading failed
+     */
+    private String measure(String name, List<Sample> players, int iterations, Format format) throws Exception {
+        // One untimed round so the first format doesn't pay for class loading and warm-up
+        for (Sample sample : players) {
+            read(format, write(format, sample.pouches));
+        }
+
+        long bytes = 0;
+        long writeNanos = 0;
+        long readNanos = 0;
+        long updates = 0;
+        long updateBytes = 0;
+        long updateNanos = 0;
+        for (int i = 0; i < iterations; i++) {
+            for (Sample sample : players) {
+                long start = System.nanoTime();
+                byte[] data = write(format, sample.pouches);
+                long written = System.nanoTime();
+                read(format, data);
+                readNanos += System.nanoTime() - written;
+                writeNanos += written - start;
+                bytes += data.length;
+
+                if (sample.change != null) {
+                    Object prepared = prepare(format, sample.pouches);
+                    start = System.nanoTime();
+                    byte[] update = update(format, prepared, sample.change);
+                    updateNanos += System.nanoTime() - start;
+                    updateBytes += update.length;
+                    updates++;
+                }
+            }
+        }
+
+        long runs = (long) players.size() * iterations;
+        String result = ChatColor.YELLOW + name + ": " + ChatColor.WHITE + (bytes / runs) + " bytes, write "
+                + String.format("%.1f", writeNanos / runs / 1000.0) + "µs, read "
+                + String.format("%.1f", readNanos / runs / 1000.0) + "µs";
+        if (updates > 0) {
+            result += ", one change " + String.format("%.1f", updateNanos / updates / 1000.0) + "µs/" + (updateBytes / updates) + " bytes";
+        }
+        return result;
+    }
+
+    /**
+     * Save every player to disk, round by round, from {@link #DISK_WRITERS} threads at once.
+     * Each save persists the player's change where there is one: player files are written
+     * whole, the log appends the change.
+     *
+     * @param players The pouches captured per player
+     * @param iterations How many times each player is saved
+     * @return The report lines
+     * @throws Exception If a save failed
+     */
+    private List<String> measureDisk(List<Sample> players, int iterations) throws Exception {
+        List<String> results = new ArrayList<>();
+        Path directory = Files.createTempDirectory(plugin.getDataFolder().toPath(), "benchmark");
+        ExecutorService writers = Executors.newFixedThreadPool(DISK_WRITERS);
+        try {
+            results.add(measureFiles("disk yml", directory.toFile(), players, iterations, Format.YAML, writers));
+            results.add(measureFiles("disk binary", directory.toFile(), players, iterations, Format.COMPRESSED, writers));
+            results.add(measureLog(directory.resolve("log").toFile(), players, iterations, writers));
+        } finally {
+            writers.shutdown();
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Save players as player files, each save replacing the file like the file storages do
+     *
+     * @param name The format name to report
+     * @param directory Where to write the files
+     * @param players The pouches captured per player
+     * @param iterations How many times each player is saved
+     * @param format The file format
+     * @param writers The threads to save from
+     * @return The report line
+     * @throws Exception If a save failed
+     */
+    private String measureFiles(String name, File directory, List<Sample> players, int iterations, Format format,
+                                ExecutorService writers) throws Exception {
+        DataManager files = new DataManager(plugin);
+        List<Callable<Void>> saves = new ArrayList<>();
+        for (int i = 0; i < players.size(); i++) {
+            Sample sample = players.get(i);
+            File file = new File(directory, i + (format == Format.YAML ? ".yml" : ".dat"));
+            saves.add(() -> {
+                files.writeAtomically(file, write(format, sample.pouches), true);
+                return null;
+            });
+        }
+
+        long nanos = runRounds(saves, iterations, writers);
+        return diskResult(name, nanos, (long) saves.size() * iterations, files.getFileSyncs());
+    }
+
+    /**
+     * Save players into a log in its own directory
+     *
+     * @param directory Where to keep the log
+     * @param players The pouches captured per player
+     * @param iterations How many times each player is saved
+     * @param writers The threads to save from
+     * @return The report line
+     * @throws Exception If a save failed
+     */
+    private String measureLog(File directory, List<Sample> players, int iterations, ExecutorService writers) throws Exception {
+        LogPlayerStorage log = new LogPlayerStorage(plugin, null, directory);
+        log.open();
+        try {
+            List<Callable<Void>> saves = new ArrayList<>();
+            for (Sample sample : players) {
+                UUID playerId = UUID.randomUUID();
+                List<PlayerSave.PouchWrite> writes = sample.change != null ? Collections.singletonList(sample.change) : sample.pouches;
+                saves.add(() -> {
+                    log.save(playerId, Collections.singletonList(new PlayerSave(writes, null, System.nanoTime())));
+                    return null;
+                });
+            }
+
+            long nanos = runRounds(saves, iterations, writers);
+            return diskResult("disk log", nanos, (long) saves.size() * iterations, log.getSyncs());
+        } finally {
+            log.close();
+        }
+    }
+
+    /**
+     * Run every save once per round, waiting for each round so a player is never saved twice
+     * at the same time
+     *
+     * @param saves The saves, one per player
+     * @param iterations The number of rounds
+     * @param writers The threads to save from
+     * @return The time taken in nanoseconds
+     * @throws Exception If a save failed
+     */
+    private long runRounds(List<Callable<Void>> saves, int iterations, ExecutorService writers) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (Future<Void> save : writers.invokeAll(saves)) {
+                save.get();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private String diskResult(String name, long nanos, long saves, long syncs) {
+        return ChatColor.YELLOW + name + ": " + ChatColor.WHITE + String.format("%.1f", nanos / saves / 1000.0)
+                + "µs/save, " + syncs + " fsyncs for " + saves + " saves";
+    }
+
+    /**
+     * Write one player's pouches in full
+     *
+     * @param format The format
+     * @param pouches The pouches
+     * @return What would be written to disk
+     * @throws Exception If writing failed
+     */
+    private byte[] write(Format format, List<PlayerSave.PouchWrite> pouches) throws Exception {
+        switch (format) {
+            case YAML:
+                return toYaml(pouches).saveToString().getBytes(StandardCharsets.UTF_8);
+            case LOG:
+                return record(LogPlayerStorage.encode(new PlayerSave(pouches, null, System.nanoTime())));
+            default:
+                return writeFile(toFileData(pouches), format == Format.COMPRESSED);
+        }
+    }
+
+    /**
+     * Read one player's data and build its pouches, like loading a player does
+     *
+     * @param format The format
+     * @param data What was written
+     * @throws Exception If reading failed
+     */
+    private void read(Format format, byte[] data) throws Exception {
+        ConfigurationSection layout;
+        switch (format) {
+            case YAML:
+                YamlConfiguration config = new YamlConfiguration();
+                config.loadFromString(new String(data, StandardCharsets.UTF_8));
+                layout = config;
+                break;
+            case LOG:
+                layout = new MemoryConfiguration();
+                byte[] payload = new byte[data.length - LogPlayerStorage.RECORD_HEADER_SIZE];
+                System.arraycopy(data, LogPlayerStorage.RECORD_HEADER_SIZE, payload, 0, payload.length);
+                LogPlayerStorage.apply(payload, layout);
+                break;
+            default:
+                layout = BinaryPlayerStorage.toLayout(PouchCodec.readFile(new ByteArrayInputStream(data)), false);
+                break;
+        }
+
+        ConfigurationSection pouchesSection = layout.getConfigurationSection("pouches");
+        if (pouchesSection == null) {
+            return;
+        }
+        for (String pouchId : pouchesSection.getKeys(false)) {
+            Pouch template = plugin.getPouchManager().getPouch(pouchId);
+            if (template != null) {
+                new Pouch(template).loadFromConfig(plugin, pouchesSection.getConfigurationSection(pouchId));
+            }
+        }
+    }
+
+    /**
+     * Build what each storage keeps in memory for a loaded player, untimed
+     *
+     * @param format The format
+     * @param pouches The pouches
+     * @return The parsed YAML file, the pouch blocks, or nothing for the log
+     * @throws Exception If encoding failed
+     */
+    private Object prepare(Format format, List<PlayerSave.PouchWrite> pouches) throws Exception {
+        switch (format) {
+            case YAML:
+                return toYaml(pouches);
+            case LOG:
+                return null;
+            default:
+                return toFileData(pouches);
+        }
+    }
+
+    /**
+     * Persist a change to the first entry of a pouch, the way each storage saves a delta
+     *
+     * @param format The format
+     * @param prepared What {@link #prepare} built
+     * @param change The changed pouch
+     * @return What would be written to disk
+     * @throws Exception If writing failed
+     */
+    private byte[] update(Format format, Object prepared, PlayerSave.PouchWrite change) throws Exception {
+        switch (format) {
+            case YAML:
+                // The YAML storage updates the parsed file but always writes all of it
+                YamlConfiguration config = (YamlConfiguration) prepared;
+                change.saveToConfig(config.getConfigurationSection("pouches." + change.getPouchId()));
+                return config.saveToString().getBytes(StandardCharsets.UTF_8);
+            case LOG:
+                return record(LogPlayerStorage.encode(new PlayerSave(Collections.singletonList(change), null, System.nanoTime())));
+            default:
+                // The binary storage encodes the changed pouch again and writes the whole file
+                PouchCodec.FileData data = (PouchCodec.FileData) prepared;
+                data.pouches.put(change.getPouchId(), PouchCodec.encode(change));
+                return writeFile(data, format == Format.COMPRESSED);
+        }
+    }
+
+    private YamlConfiguration toYaml(List<PlayerSave.PouchWrite> pouches) {
+        YamlConfiguration config = new YamlConfiguration();
+        ConfigurationSection pouchesSection = config.createSection("pouches");
+        for (PlayerSave.PouchWrite write : pouches) {
+            write.saveToConfig(pouchesSection.createSection(write.getPouchId()));
+        }
+        return config;
+    }
+
+    private PouchCodec.FileData toFileData(List<PlayerSave.PouchWrite> pouches) throws Exception {
+        PouchCodec.FileData data = new PouchCodec.FileData();
+        for (PlayerSave.PouchWrite write : pouches) {
+            data.pouches.put(write.getPouchId(), PouchCodec.encode(write));
+        }
+        return data;
+    }
+
+    private byte[] writeFile(PouchCodec.FileData data, boolean compress) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PouchCodec.writeFile(output, data, compress);
+        return output.toByteArray();
+    }
+
+    /**
+     * Frame a payload like the log does, so sizes include the record header
+     *
+     * @param payload The record payload
+     * @return The record
+     */
+    private byte[] record(byte[] payload) {
+        byte[] record = new byte[LogPlayerStorage.RECORD_HEADER_SIZE + payload.length];
+        System.arraycopy(payload, 0, record, LogPlayerStorage.RECORD_HEADER_SIZE, payload.length);
+        return record;
+    }
+
+    /**
+     * One player's pouches, captured on the main thread
+     */
+    private static final class Sample {
+        private final List<PlayerSave.PouchWrite> pouches = new ArrayList<>();
+
+        // A change to the first entry of one pouch, or null if all pouches are empty
+        private PlayerSave.PouchWrite change;
+    }
+
+    private enum Format {
+        YAML,
+        BINARY,
+        COMPRESSED,
+        LOG
+    }
+}
@@ -0,0 +1,165 @@
+package com.brekfst.fruitPouches.data;
+
+import com.brekfst.fruitPouches.FruitPouches;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Player storage keeping one YAML file per player in {@code data/players}. The parsed file is
+ * kept in memory after loading, so a save only applies what changed to it and writes it out,
+ * without reading the file back first. Files are replaced atomically and the previous version is
+ * kept as {@code <uuid>.yml.prev}, which is loaded instead if the file is damaged.
+ */
+public class YamlPlayerStorage extends DataManager implements PlayerStorage {
+
+    private final Map<UUID, YamlConfiguration> documents;
+
+    /**
+     * Create a new YAML player storage
+     *
+     * @param plugin The plugin instance
+     */
+    public YamlPlayerStorage(FruitPouches plugin) {
+        super(plugin);
+        this.documents = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void open() {
+        // Nothing to open, the data directories are created by DataManager
+    }
+
+    @Override
+    public ConfigurationSection load(UUID playerId) throws Exception {
+        File file = getPlayerDataFile(playerId);
+        if (!file.exists() && !getPreviousFile(file).exists()) {
+            documents.put(playerId, new YamlConfiguration());
+            return null;
+        }
+
+        YamlConfiguration config = readWithFallback(file, this::loadConfigStrict);
+        documents.put(playerId, config);
+        return config;
+    }
+
+    @Override
+    public void save(UUID playerId, List<PlayerSave> saves) throws Exception {
+        YamlConfiguration config = documents.get(playerId);
+        if (config == null) {
+            // Only happens if the player was saved without being loaded
+            load(playerId);
+            config = documents.get(playerId);
+        }
+
+        for (PlayerSave save : saves) {
+            apply(config, save);
+        }
+
+        write(playerId, config);
+    }
+
+    /**
+     * Apply one save to a player's parsed file
+     *
+     * @param config The parsed file
+     * @param save The save
+     */
+    private void apply(YamlConfiguration config, PlayerSave save) {
+        // Save pouches
+        ConfigurationSection pouchesSection = config.getConfigurationSection("pouches");
+        if (pouchesSection == null) {
+            pouchesSection = config.createSection("pouches");
+        }
+
+        for (PlayerSave.PouchWrite write : save.getPouches()) {
+            String pouchId = write.getPouchId();
+            ConfigurationSection pouchSection = pouchesSection.getConfigurationSection(pouchId);
+            if (pouchSection == null) {
+                pouchSection = pouchesSection.createSection(pouchId);
+            }
+            write.saveToConfig(pouchSection);
+        }
+
+        // Save skins
+        if (save.getSkins() != null) {
+            ConfigurationSection skinsSection = config.createSection("skins");
+
+            for (Map.Entry<String, Set<String>> entry : save.getSkins().entrySet()) {
+                skinsSection.set(entry.getKey(), new ArrayList<>(entry.getValue()));
+            }
+        }
+    }
+
+    @Override
+    public void replace(UUID playerId, ConfigurationSection data) throws Exception {
+        YamlConfiguration config = new YamlConfiguration();
+        for (String key : data.getKeys(false)) {
+            config.set(key, data.get(key));
+        }
+
+        ConfigurationSection pouchesSection = config.getConfigurationSection("pouches");
+        if (pouchesSection != null) {
+            for (String pouchId : pouchesSection.getKeys(false)) {
+                PouchCodec.expand(pouchesSection.getConfigurationSection(pouchId));
+            }
+        }
+
+        write(playerId, config);
+        documents.put(playerId, config);
+    }
+
+    /**
+     * Write a player's file, keeping the previous version next to it
+     *
+     * @param playerId The player UUID
+     * @param config The parsed file
+     * @throws IOException If writing failed
+     */
+    private void write(UUID playerId, YamlConfiguration config) throws IOException {
+        writeAtomically(getPlayerDataFile(playerId), config.saveToString().getBytes(StandardCharsets.UTF_8), true);
+    }
+
+    @Override
+    public Collection<UUID> getStoredPlayers() {
+        List<UUID> players = new ArrayList<>();
+        File[] files = new File(plugin.getDataFolder(), "data/players").listFiles((dir, name) -> name.endsWith(".yml"));
+        if (files == null) {
+            return players;
+        }
+
+        for (File file : files) {
+            try {
+                players.add(UUID.fromString(file.getName().substring(0, file.getName().length() - 4)));
+            } catch (IllegalArgumentException e) {
+                plugin.getDebug().log("Skipping player data file with invalid name: " + file.getName());
+            }
+        }
+        return players;
+    }
+
+    @Override
+    public void unload(UUID playerId) {
+        documents.remove(playerId);
+    }
+
+    @Override
+    public void close() {
+        documents.clear();
+    }
+
+    @Override
+    public String getType() {
+        return "yml";
+    }
+}
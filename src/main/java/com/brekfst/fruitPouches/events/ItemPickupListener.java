@@ -1,14 +1,14 @@
 package com.brekfst.fruitPouches.events;
 
 import com.brekfst.fruitPouches.FruitPouches;
+import com.brekfst.fruitPouches.content.AddResult;
 import com.brekfst.fruitPouches.models.Pouch;
 import com.brekfst.fruitPouches.models.PouchEnchantment;
-import org.bukkit.ChatColor;
+import com.brekfst.fruitPouches.pickup.CooldownTable;
+import com.brekfst.fruitPouches.pickup.PickupBatch;
+import com.brekfst.fruitPouches.pickup.PickupFeedback;
+import com.brekfst.fruitPouches.pickup.RoutingTable;
 import org.bukkit.GameMode;
-import org.bukkit.Material;
-import org.bukkit.Particle;
-import org.bukkit.Sound;
-import org.bukkit.entity.Entity;
 import org.bukkit.entity.Item;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -18,22 +18,22 @@ import org.bukkit.event.entity.EntityPickupItemEvent;
 import org.bukkit.event.entity.ItemSpawnEvent;
 import org.bukkit.event.player.PlayerDropItemEvent;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.scheduler.BukkitRunnable;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
 /**
  * Listener for item pickup events
  */
 public class ItemPickupListener implements Listener {
 
+    // How long (in milliseconds) an item is left alone after a pickup attempt
+    private static final long ITEM_COOLDOWN = 1000L;
+
     private final FruitPouches plugin;
-    private final Map<UUID, Long> playerCooldowns;
-    private final Map<UUID, Long> itemCooldowns;
+    private final CooldownTable playerCooldowns;
+    private final CooldownTable itemCooldowns;
     private final int pickupDelay;
     private final double pickupRange;
     private final boolean autoPickup;
@@ -45,99 +45,121 @@ public class ItemPickupListener implements Listener {
      */
     public ItemPickupListener(FruitPouches plugin) {
         this.plugin = plugin;
-        this.playerCooldowns = new HashMap<>();
-        this.itemCooldowns = new HashMap<>();
         this.pickupDelay = plugin.getConfigManager().getMainConfig().getInt("general.pickup-delay", 0);
+        this.playerCooldowns = new CooldownTable(pickupDelay);
+        this.itemCooldowns = new CooldownTable(ITEM_COOLDOWN);
         this.pickupRange = plugin.getConfigManager().getMainConfig().getDouble("general.pickup-range", 3.0);
         this.autoPickup = plugin.getConfigManager().getMainConfig().getBoolean("general.auto-pickup", true);
-
-        // Start a repeating task to check for items periodically
-        startPickupTask();
     }
 
     /**
-     * Start a repeating task to check for nearby items
+     * Check whether a player is due for an auto-pickup pass and get their pouches.
+     * Called by the pickup scheduler when the player's turn comes up.
+     *
+     * @param player The player
+     * @return The routing table of the player's pouches, or null if the player should be skipped this pass
      */
-    private void startPickupTask() {
-        plugin.getDebug().log("Starting auto-pickup task with range: " + pickupRange);
-        int checkInterval = 5; // Check every 5 ticks (0.25 seconds)
-
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                // Skip if auto-pickup is disabled
-                if (!autoPickup) {
-                    return;
-                }
+    public RoutingTable preparePickup(Player player) {
+        // Skip players in spectator mode and players whose pouches are still loading
+        if (player.getGameMode() == GameMode.SPECTATOR || plugin.getPlayerDataManager().isLoading(player.getUniqueId())) {
+            return null;
+        }
 
-                // Process all online players
-                for (Player player : plugin.getServer().getOnlinePlayers()) {
-                    // Skip players in spectator mode
-                    if (player.getGameMode() == GameMode.SPECTATOR) {
-                        continue;
-                    }
+        // Check cooldown
+        long now = System.currentTimeMillis();
+        if (playerCooldowns.isCoolingDown(player.getEntityId(), now)) {
+            return null;
+        }
 
-                    // Check cooldown
-                    if (playerCooldowns.containsKey(player.getUniqueId())) {
-                        long lastPickup = playerCooldowns.get(player.getUniqueId());
-                        if (System.currentTimeMillis() - lastPickup < pickupDelay) {
-                            continue;
-                        }
-                    }
+        // Find pouches in inventory
+        RoutingTable pouches = plugin.getPickupRouter().getTable(player, findPouchesInInventory(player));
 
-                    // Find pouches in inventory
-                    List<Map.Entry<String, Integer>> pouches = findPouchesInInventory(player);
+        if (pouches.isEmpty()) {
+            return null;
+        }
 
-                    if (pouches.isEmpty()) {
-                        continue;
-                    }
+        // Set cooldown
+        playerCooldowns.mark(player.getEntityId(), now);
 
-                    // Set cooldown
-                    playerCooldowns.put(player.getUniqueId(), System.currentTimeMillis());
+        return pouches;
+    }
 
-                    // Calculate pickup range with enchantments
-                    double range = calculatePickupRange(player, pouches);
+    /**
+     * Check if a player is skipped only for now: their pouches are still loading or their
+     * pickup cooldown is running
+     *
+     * @param player The player
+     * @return true if the player should be tried again soon
+     */
+    public boolean isPickupDelayed(Player player) {
+        return plugin.getPlayerDataManager().isLoading(player.getUniqueId())
+                || playerCooldowns.isCoolingDown(player.getEntityId(), System.currentTimeMillis());
+    }
 
-                    // Get nearby items
-                    List<Item> nearbyItems = getNearbyItems(player, range);
+    /**
+     * Get the items an auto-pickup pass should look at for a player
+     *
+     * @param player The player
+     * @param pouches The routing table of the player's pouches
+     * @return List of nearby items
+     */
+    public List<Item> findPickupCandidates(Player player, RoutingTable pouches) {
+        // Calculate pickup range with enchantments
+        double range = calculatePickupRange(player, pouches.getEntries());
 
-                    if (!nearbyItems.isEmpty()) {
-                        plugin.getDebug().log("Found " + nearbyItems.size() + " items near player " + player.getName());
-                    }
+        List<Item> nearbyItems = getNearbyItems(player, range);
 
-                    // Try to pick up items
-                    for (Item item : nearbyItems) {
-                        tryPickupItem(player, item, pouches);
-                    }
-                }
-            }
-        }.runTaskTimer(plugin, 20L, checkInterval);
+        if (!nearbyItems.isEmpty()) {
+            plugin.getDebug().log("Found " + nearbyItems.size() + " items near player " + player.getName());
+        }
 
-        plugin.getDebug().log("Auto-pickup task started successfully");
+        return nearbyItems;
     }
 
     /**
-     * Find pouches in a player's inventory
+     * Get the base pickup range (without enchantments)
      *
-     * @param player The player
-     * @return List of pouch ID and slot entries
+     * @return The pickup range
      */
-    private List<Map.Entry<String, Integer>> findPouchesInInventory(Player player) {
-        List<Map.Entry<String, Integer>> pouches = new ArrayList<>();
+    public double getPickupRange() {
+        return pickupRange;
+    }
 
-        for (int i = 0; i < player.getInventory().getSize(); i++) {
-            ItemStack item = player.getInventory().getItem(i);
+    /**
+     * Get the per-item pickup cooldowns
+     *
+     * @return The item cooldown table
+     */
+    public CooldownTable getItemCooldowns() {
+        return itemCooldowns;
+    }
 
-            if (item != null && !item.getType().isAir()) {
-                String pouchId = Pouch.getPouchIdFromItem(plugin, item);
+    /**
+     * Get the per-player auto-pickup cooldowns
+     *
+     * @return The player cooldown table
+     */
+    public CooldownTable getPlayerCooldowns() {
+        return playerCooldowns;
+    }
 
-                if (pouchId != null) {
-                    pouches.add(Map.entry(pouchId, i));
-                }
-            }
-        }
+    /**
+     * Check if automatic pickup is enabled
+     *
+     * @return true if auto-pickup is enabled
+     */
+    public boolean isAutoPickup() {
+        return autoPickup;
+    }
 
-        return pouches;
+    /**
+     * Find pouches in a player's inventory
+     *
+     * @param player The player
+     * @return List of pouch ID and slot entries
+     */
+    private List<Map.Entry<String, Integer>> findPouchesInInventory(Player player) {
+        return plugin.getPouchSlotCache().getPouches(player);
     }
 
     /**
@@ -174,32 +196,24 @@ public class ItemPickupListener implements Listener {
      * @return List of nearby items
      */
     private List<Item> getNearbyItems(Player player, double range) {
-        List<Entity> nearbyEntities = player.getNearbyEntities(range, range, range);
-        List<Item> nearbyItems = new ArrayList<>();
-
-        for (Entity entity : nearbyEntities) {
-            if (entity instanceof Item) {
-                nearbyItems.add((Item) entity);
-            }
-        }
-
-        return nearbyItems;
+        // Only look at indexed drops instead of every entity around the player
+        return plugin.getItemSpatialIndex().getNearbyItems(player.getLocation(), range);
     }
 
     /**
-     * Try to pick up an item
+     * Try to pick up an item: find the pouch it goes into and add it to the batch.
+     * Nothing is moved until the batch is committed.
      *
      * @param player The player
      * @param item The item
-     * @param pouches List of pouch entries
+     * @param pouches The routing table of the player's pouches
+     * @param batch The batch collecting this pass's pickups
      */
-    private void tryPickupItem(Player player, Item item, List<Map.Entry<String, Integer>> pouches) {
+    public void tryPickupItem(Player player, Item item, RoutingTable pouches, PickupBatch batch) {
         // Skip items on cooldown
-        if (itemCooldowns.containsKey(item.getUniqueId())) {
-            long lastPickup = itemCooldowns.get(item.getUniqueId());
-            if (System.currentTimeMillis() - lastPickup < 1000) {
-                return;
-            }
+        long now = System.currentTimeMillis();
+        if (itemCooldowns.isCoolingDown(item.getEntityId(), now)) {
+            return;
         }
 
         // Skip if the item is no longer valid
@@ -213,27 +227,19 @@ public class ItemPickupListener implements Listener {
         }
 
         // Track this item immediately to prevent duplicate processing
-        itemCooldowns.put(item.getUniqueId(), System.currentTimeMillis());
+        itemCooldowns.mark(item.getEntityId(), now);
 
         // Debug log the item
         plugin.getDebug().log("Attempting pickup for: " + itemStack.getType().name() + " x" + itemStack.getAmount());
 
-        // Check each pouch
-        for (Map.Entry<String, Integer> entry : pouches) {
-            String pouchId = entry.getKey();
-            int slot = entry.getValue();
+        // Check each pouch whose filter can take this material
+        for (Pouch pouch : pouches.route(itemStack.getType())) {
+            String pouchId = pouch.getId();
 
-            plugin.getDebug().log("Checking pouch: " + pouchId + " in slot " + slot);
-
-            // Get the player's pouch data
-            Pouch pouch = plugin.getPlayerDataManager().getPlayerPouch(player.getUniqueId(), pouchId);
-            if (pouch == null) {
-                plugin.getDebug().log("Pouch data not found for: " + pouchId);
-                continue;
-            }
+            plugin.getDebug().log("Checking pouch: " + pouchId);
 
             // Check permissions
-            if (!pouch.hasUsePermission(player)) {
+            if (!pouch.hasUsePermission(player, plugin)) {
                 plugin.getDebug().log("Player doesn't have permission to use this pouch");
                 continue;
             }
@@ -250,47 +256,69 @@ public class ItemPickupListener implements Listener {
                 continue;
             }
 
-            plugin.getDebug().log("Pouch can pick up this item, adding to pouch");
+            plugin.getDebug().log("Pouch can pick up this item, adding to batch");
+            batch.add(pouch, item);
+            return;
+        }
+    }
 
-            // Create a clone of the item to avoid modifying the original
-            ItemStack clonedItem = itemStack.clone();
+    /**
+     * Move the batched items into their pouches: one add, stats update and save per pouch.
+     * Whatever doesn't fit is handled by the pouch's overflow mode.
+     *
+     * @param player The player
+     * @param batch The batch to commit (cleared afterwards)
+     */
+    public void commitPickups(Player player, PickupBatch batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
 
-            // Try to add to the pouch
-            if (pouch.addItem(clonedItem)) {
-                // Successfully added
-                plugin.getDebug().log("Item successfully added to pouch, removing from world");
+        for (Map.Entry<Pouch, List<Item>> entry : batch.getItems().entrySet()) {
+            Pouch pouch = entry.getKey();
+            List<Item> items = new ArrayList<>(entry.getValue().size());
+            List<ItemStack> stacks = new ArrayList<>(entry.getValue().size());
 
-                // Remove the item from the world
-                item.remove();
+            // Items may have been merged or picked up since they were batched
+            for (Item item : entry.getValue()) {
+                if (item.isValid() && !item.isDead()) {
+                    items.add(item);
+                    stacks.add(item.getItemStack());
+                }
+            }
 
-                // Play pickup sound
-                player.playSound(player.getLocation(), Sound.ENTITY_ITEM_PICKUP, 0.2f, 1.0f);
+            if (stacks.isEmpty()) {
+                continue;
+            }
 
-                // Update stats
-                plugin.getStatsManager().trackItemsCollected(pouchId, player.getUniqueId(), clonedItem.getAmount());
+            AddResult result = pouch.addItems(stacks);
+            plugin.getDebug().log("Added " + result.getTotalAccepted() + " items to pouch " + pouch.getId() +
+                    " (" + result.getTotalOverflow() + " overflow)");
 
-                // Save the pouch data
-                plugin.getPlayerDataManager().savePlayerPouch(player.getUniqueId(), pouch);
+            for (int i = 0; i < stacks.size(); i++) {
+                ItemStack stack = stacks.get(i);
+                items.get(i).remove();
 
-                // Notify the player
-                if (plugin.getConfigManager().getMainConfig().getBoolean("general.pickup-messages", true)) {
-                    player.sendMessage(ChatColor.GRAY + "[" + ChatColor.translateAlternateColorCodes('&', pouch.getDisplayName()) +
-                            ChatColor.GRAY + "] " + ChatColor.GREEN + "Picked up " + clonedItem.getAmount() + "x " +
-                            getItemDisplayName(clonedItem));
+                if (result.getAccepted(i) > 0) {
+                    // Sound and message are batched per player
+                    plugin.getPickupFeedback().recordPickup(player, getItemDisplayName(stack), result.getAccepted(i));
                 }
 
-                return; // Exit after successful pickup
-            } else {
-                // Handle overflow
-                plugin.getDebug().log("Pouch is full, handling overflow");
-                handleOverflow(player, pouch, clonedItem);
-
-                // Remove the original item
-                item.remove();
+                if (result.getOverflow(i) > 0) {
+                    ItemStack overflow = stack.clone();
+                    overflow.setAmount(result.getOverflow(i));
+                    handleOverflow(player, pouch, overflow);
+                }
+            }
 
-                return; // Exit after handling overflow
+            if (result.getTotalAccepted() > 0) {
+                plugin.getStatsManager().trackItemsCollected(pouch.getId(), player.getUniqueId(),
+                        (int) Math.min(result.getTotalAccepted(), Integer.MAX_VALUE));
+                plugin.getPlayerDataManager().savePlayerPouch(player.getUniqueId(), pouch);
             }
         }
+
+        batch.clear();
     }
 
     /**
@@ -348,25 +376,29 @@ public class ItemPickupListener implements Listener {
         Item item = event.getItem();
         ItemStack itemStack = item.getItemStack();
 
+        // Pouches aren't usable until the player's data is loaded; vanilla pickup goes ahead
+        if (plugin.getPlayerDataManager().isLoading(player.getUniqueId())) {
+            return;
+        }
+
         // Skip items on cooldown
-        if (itemCooldowns.containsKey(item.getUniqueId())) {
+        if (itemCooldowns.isCoolingDown(item.getEntityId(), System.currentTimeMillis())) {
             return;
         }
 
         plugin.getDebug().log("Player " + player.getName() + " is picking up: " + itemStack.getType().name());
 
         // Check for pouches in inventory
-        List<Map.Entry<String, Integer>> pouches = findPouchesInInventory(player);
+        RoutingTable pouches = plugin.getPickupRouter().getTable(player, findPouchesInInventory(player));
         if (pouches.isEmpty()) {
             return;
         }
 
         // Try to add the item to a pouch
-        for (Map.Entry<String, Integer> entry : pouches) {
-            String pouchId = entry.getKey();
-            Pouch pouch = plugin.getPlayerDataManager().getPlayerPouch(player.getUniqueId(), pouchId);
+        for (Pouch pouch : pouches.route(itemStack.getType())) {
+            String pouchId = pouch.getId();
 
-            if (pouch != null && pouch.hasUsePermission(player) &&
+            if (pouch.hasUsePermission(player, plugin) &&
                     pouch.meetsPickupConditions(player, plugin) && pouch.canPickup(plugin, itemStack)) {
 
                 // Cancel vanilla pickup
@@ -374,7 +406,7 @@ public class ItemPickupListener implements Listener {
                 plugin.getDebug().log("Cancelling vanilla pickup, handling with pouch");
 
                 // Track this item
-                itemCooldowns.put(item.getUniqueId(), System.currentTimeMillis());
+                itemCooldowns.mark(item.getEntityId(), System.currentTimeMillis());
 
                 // Get original amount for stats
                 int originalAmount = itemStack.getAmount();
@@ -387,21 +419,14 @@ public class ItemPickupListener implements Listener {
                     // Remove the item
                     item.remove();
 
-                    // Play sound
-                    player.playSound(player.getLocation(), Sound.ENTITY_ITEM_PICKUP, 0.2f, 1.0f);
-
                     // Update stats
                     plugin.getStatsManager().trackItemsCollected(pouchId, player.getUniqueId(), originalAmount);
 
                     // Save data
                     plugin.getPlayerDataManager().savePlayerPouch(player.getUniqueId(), pouch);
 
-                    // Notify player
-                    if (plugin.getConfigManager().getMainConfig().getBoolean("general.pickup-messages", true)) {
-                        player.sendMessage(ChatColor.GRAY + "[" + ChatColor.translateAlternateColorCodes('&', pouch.getDisplayName()) +
-                                ChatColor.GRAY + "] " + ChatColor.GREEN + "Picked up " + originalAmount + "x " +
-                                getItemDisplayName(itemStack));
-                    }
+                    // Sound and message are batched per player
+                    plugin.getPickupFeedback().recordPickup(player, getItemDisplayName(itemStack), originalAmount);
 
                     break;
                 } else {
@@ -434,46 +459,10 @@ public class ItemPickupListener implements Listener {
             return;
         }
 
-        // Find nearby players with pouches
-        Item item = event.getEntity();
-        ItemStack itemStack = item.getItemStack();
-
-        // Schedule a delayed task to try to pick up the item
-        // This gives time for other plugins to process the item
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                if (!item.isValid() || item.isDead()) {
-                    return;
-                }
-
-                // Find nearby players
-                for (Player player : item.getWorld().getPlayers()) {
-                    // Skip players that are too far away
-                    if (player.getLocation().distance(item.getLocation()) > pickupRange * 2) {
-                        continue;
-                    }
-
-                    // Skip players in spectator mode
-                    if (player.getGameMode() == GameMode.SPECTATOR) {
-                        continue;
-                    }
-
-                    // Find pouches in inventory
-                    List<Map.Entry<String, Integer>> pouches = findPouchesInInventory(player);
-                    if (pouches.isEmpty()) {
-                        continue;
-                    }
-
-                    tryPickupItem(player, item, pouches);
-
-                    // If item was picked up, break out of the loop
-                    if (!item.isValid() || item.isDead()) {
-                        break;
-                    }
-                }
-            }
-        }.runTaskLater(plugin, 5L); // 5 tick delay
+        // Picked up by the scheduler a few ticks later, batched with everything else
+        // that spawned around the same time. The delay gives other plugins time to
+        // process the item.
+        plugin.getPickupScheduler().queueSpawnedItem(event.getEntity());
     }
 
     /**
@@ -485,49 +474,32 @@ public class ItemPickupListener implements Listener {
      */
     private void handleOverflow(Player player, Pouch pouch, ItemStack itemStack) {
         String overflowMode = pouch.getOverflowMode();
-        String sound = plugin.getConfigManager().getMainConfig().getString("overflow.sound", "BLOCK_NOTE_BLOCK_BELL");
-        boolean showParticles = plugin.getConfigManager().getMainConfig().getBoolean("overflow.show-particles", true);
-        String particleType = plugin.getConfigManager().getMainConfig().getString("overflow.particle-type", "VILLAGER_ANGRY");
-
-        // Play sound
-        try {
-            player.playSound(player.getLocation(), Sound.valueOf(sound), 1.0f, 1.0f);
-        } catch (IllegalArgumentException e) {
-            plugin.getDebug().log("Invalid sound: " + sound);
-        }
-
-        // Show particles
-        if (showParticles) {
-            try {
-                player.getWorld().spawnParticle(Particle.valueOf(particleType), player.getLocation().add(0, 1, 0), 10, 0.5, 0.5, 0.5, 0.1);
-            } catch (IllegalArgumentException e) {
-                plugin.getDebug().log("Invalid particle type: " + particleType);
-            }
-        }
+        PickupFeedback feedback = plugin.getPickupFeedback();
 
+        // The item is handled right away; sound, particles and the message are batched per player
         switch (overflowMode) {
             case "inventory":
                 player.getInventory().addItem(itemStack);
-                plugin.getMessageUtils().sendMessage(player, "pouches.full-pouch", "pouch", pouch.getDisplayName());
+                feedback.recordOverflow(player, pouch.getDisplayName(), "pouches.full-pouch", 0);
                 break;
             case "drop":
                 player.getWorld().dropItemNaturally(player.getLocation(), itemStack);
-                plugin.getMessageUtils().sendMessage(player, "pouches.full-pouch-drop", "pouch", pouch.getDisplayName());
+                feedback.recordOverflow(player, pouch.getDisplayName(), "pouches.full-pouch-drop", 0);
                 break;
             case "sell":
                 if (plugin.getVaultHook().isEnabled()) {
                     double amount = plugin.getVaultHook().sellItem(player, itemStack);
-                    plugin.getMessageUtils().sendMessage(player, "pouches.full-pouch-sell", "pouch", pouch.getDisplayName(), "amount", plugin.getVaultHook().formatMoney(amount));
+                    feedback.recordOverflow(player, pouch.getDisplayName(), "pouches.full-pouch-sell", amount);
                 } else {
                     // Fall back to inventory
                     player.getInventory().addItem(itemStack);
-                    plugin.getMessageUtils().sendMessage(player, "pouches.full-pouch", "pouch", pouch.getDisplayName());
+                    feedback.recordOverflow(player, pouch.getDisplayName(), "pouches.full-pouch", 0);
                 }
                 break;
             default:
                 player.getInventory().addItem(itemStack);
-                plugin.getMessageUtils().sendMessage(player, "pouches.full-pouch", "pouch", pouch.getDisplayName());
+                feedback.recordOverflow(player, pouch.getDisplayName(), "pouches.full-pouch", 0);
                 break;
         }
     }
-}
\ No newline at end of file
+}
@@ -71,6 +71,11 @@ public class PouchInteractListener implements Listener {
             return;
         }
 
+        if (plugin.getPlayerDataManager().isLoading(player.getUniqueId())) {
+            plugin.getMessageUtils().sendMessage(player, "general.data-loading");
+            return;
+        }
+
         // Get the player's pouch data
         Pouch playerPouch = plugin.getPlayerDataManager().getPlayerPouch(player.getUniqueId(), pouchId);
 
@@ -84,8 +84,8 @@ public class PouchGUI implements Listener {
         itemSlots.clear();
         buttonActions.clear();
 
-        // Get the pouch contents
-        Map<String, ItemStack> contents = pouch.getContents();
+        // Render from a snapshot of the contents
+        Map<String, ItemStack> contents = pouch.snapshot().asMap();
 
         // Add decorative border
         addBorder();
@@ -528,7 +528,13 @@ public class PouchGUI implements Listener {
     private void addPouchInfo() {
         // Pouch stats and info
         List<String> infoLore = new ArrayList<>();
-        infoLore.add(TEXT_COLOR + "Storage: " + SECONDARY_COLOR + pouch.getContents().size() + "/" + pouch.getSlots() + " items");
+        if (pouch.isBulkStorage()) {
+            infoLore.add(TEXT_COLOR + "Storage: " + SECONDARY_COLOR + pouch.getContents().size() + "/" + pouch.getSlots() + " item types");
+            infoLore.add(TEXT_COLOR + "Items: " + SECONDARY_COLOR + pouch.getContentStore().getTotalAmount() +
+                    (pouch.getMaxItems() > 0 ? "/" + pouch.getMaxItems() : ""));
+        } else {
+            infoLore.add(TEXT_COLOR + "Storage: " + SECONDARY_COLOR + pouch.getContents().size() + "/" + pouch.getSlots() + " items");
+        }
 
         if (pouch.isTrackStats()) {
             infoLore.add(TEXT_COLOR + "Items Collected: " + SECONDARY_COLOR + pouch.getStats().getItemsCollected());
@@ -865,15 +871,8 @@ public class PouchGUI implements Listener {
                 ItemStack displayCopy = pouchItem.clone();
 
                 // Consume one item
-                if (pouchItem.getAmount() <= 1) {
-                    // Remove the last item
-                    currentContents.remove(itemKey);
-                    plugin.getDebug().log("Removed last consumable item");
-                } else {
-                    // Reduce stack by 1
-                    pouchItem.setAmount(pouchItem.getAmount() - 1);
-                    plugin.getDebug().log("Reduced consumable stack to " + pouchItem.getAmount());
-                }
+                pouch.removeAmount(itemKey, 1);
+                plugin.getDebug().log("Consumed one item, " + pouch.getAmount(itemKey) + " left");
 
                 // Apply consume effects
                 if (displayCopy.getType().name().contains("POTION")) {
@@ -893,7 +892,7 @@ public class PouchGUI implements Listener {
                 }
 
                 // Calculate value
-                int amount = pouchItem.getAmount();
+                long amount = pouch.getAmount(itemKey);
                 double totalValue = plugin.getVaultHook().getSellValue(pouchItem) * amount;
 
                 if (totalValue <= 0) {
@@ -917,8 +916,10 @@ public class PouchGUI implements Listener {
                 player.playSound(player.getLocation(), Sound.ENTITY_EXPERIENCE_ORB_PICKUP, 0.5f, 1.0f);
             }
         } else {
-            // Handle left-click (withdraw)
-            int withdrawAmount = isShiftClick ? pouchItem.getAmount() : Math.min(pouchItem.getAmount(), 64);
+            // Handle left-click (withdraw), never more than the player's inventory could take
+            long storedAmount = pouch.getAmount(itemKey);
+            int maxWithdraw = isShiftClick ? player.getInventory().getStorageContents().length * pouchItem.getMaxStackSize() : 64;
+            int withdrawAmount = (int) Math.min(storedAmount, maxWithdraw);
             plugin.getDebug().log("Withdrawing " + withdrawAmount + " items");
 
             // Create a clone of the item with the correct amount for withdrawal
@@ -930,15 +931,8 @@ public class PouchGUI implements Listener {
 
             if (notAdded.isEmpty()) {
                 // Successfully added all to inventory
-                if (withdrawAmount >= pouchItem.getAmount()) {
-                    // Remove the entire stack
-                    currentContents.remove(itemKey);
-                    plugin.getDebug().log("Removed entire stack from pouch");
-                } else {
-                    // Reduce the stack
-                    pouchItem.setAmount(pouchItem.getAmount() - withdrawAmount);
-                    plugin.getDebug().log("Reduced stack to " + pouchItem.getAmount());
-                }
+                pouch.removeAmount(itemKey, withdrawAmount);
+                plugin.getDebug().log("Withdrew " + withdrawAmount + ", " + pouch.getAmount(itemKey) + " left");
 
                 // Play success sound
                 player.playSound(player.getLocation(), Sound.ENTITY_ITEM_PICKUP, 0.5f, 1.0f);
@@ -951,13 +945,8 @@ public class PouchGUI implements Listener {
 
                 if (addedAmount > 0) {
                     // Reduce the amount in the pouch by what was actually added
-                    if (pouchItem.getAmount() <= addedAmount) {
-                        currentContents.remove(itemKey);
-                        plugin.getDebug().log("Removed entire stack after partial withdrawal");
-                    } else {
-                        pouchItem.setAmount(pouchItem.getAmount() - addedAmount);
-                        plugin.getDebug().log("Reduced stack to " + pouchItem.getAmount() + " after partial withdrawal");
-                    }
+                    pouch.removeAmount(itemKey, addedAmount);
+                    plugin.getDebug().log("Partial withdrawal of " + addedAmount + ", " + pouch.getAmount(itemKey) + " left");
 
                     // Send partial success message
                     player.sendMessage(ChatColor.YELLOW + "Withdrew " + addedAmount + "x " +
@@ -1004,11 +993,7 @@ public class PouchGUI implements Listener {
         }
 
         // Remove one item FIRST
-        if (item.getAmount() <= 1) {
-            contents.remove(itemKey);
-        } else {
-            item.setAmount(item.getAmount() - 1);
-        }
+        pouch.removeAmount(itemKey, 1);
 
         // IMMEDIATELY save the pouch data
         plugin.getPlayerDataManager().savePlayerPouch(player.getUniqueId(), pouch);
@@ -1053,7 +1038,7 @@ public class PouchGUI implements Listener {
             return;
         }
 
-        int amount = item.getAmount();
+        long amount = pouch.getAmount(itemKey);
         double totalValue = plugin.getVaultHook().getSellValue(item) * amount;
 
         if (totalValue <= 0) {
@@ -1160,8 +1145,8 @@ public class PouchGUI implements Listener {
      * Withdraw all items from the pouch
      */
     private void withdrawAllItems() {
-        // Create a copy of the contents to avoid concurrent modification
-        Map<String, ItemStack> contents = new HashMap<>(pouch.getContents());
+        // Work from a snapshot so removing items below doesn't disturb the iteration
+        Map<String, ItemStack> contents = pouch.snapshot().asMap();
 
         if (contents.isEmpty()) {
             player.sendMessage(ChatColor.YELLOW + "The pouch is empty!");
@@ -1202,19 +1187,11 @@ public class PouchGUI implements Listener {
         }
 
         // Now actually remove the items from the pouch
-        Map<String, ItemStack> pouchContents = pouch.getContents();
         for (Map.Entry<String, Integer> entry : itemsToRemove.entrySet()) {
             String key = entry.getKey();
             int amountToRemove = entry.getValue();
 
-            ItemStack pouchItem = pouchContents.get(key);
-            if (pouchItem != null) {
-                if (pouchItem.getAmount() <= amountToRemove) {
-                    pouchContents.remove(key);
-                } else {
-                    pouchItem.setAmount(pouchItem.getAmount() - amountToRemove);
-                }
-            }
+            pouch.removeAmount(key, amountToRemove);
         }
 
         // Save the pouch data
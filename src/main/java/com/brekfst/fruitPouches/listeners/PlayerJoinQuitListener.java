@@ -4,7 +4,9 @@ import com.brekfst.fruitPouches.FruitPouches;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
 /**
@@ -23,6 +25,33 @@ public class PlayerJoinQuitListener implements Listener {
         this.plugin = plugin;
     }
 
+    /**
+     * Handle the async pre-login event. Runs on a worker thread, so the player's data is read
+     * here (unless it is still in memory) and join only has to install it.
+     *
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+
+        plugin.getSessionManager().handlePreLogin(event.getUniqueId());
+    }
+
+    /**
+     * Handle the player login event, dropping prefetched data if the login is denied
+     *
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLogin(PlayerLoginEvent event) {
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            plugin.getSessionManager().handleLoginDenied(event.getPlayer().getUniqueId());
+        }
+    }
+
     /**
      * Handle the player join event
      *
@@ -30,8 +59,8 @@ public class PlayerJoinQuitListener implements Listener {
      */
     @EventHandler(priority = EventPriority.NORMAL)
     public void onPlayerJoin(PlayerJoinEvent event) {
-        // Load player data
-        plugin.getPlayerDataManager().loadPlayerData(event.getPlayer().getUniqueId());
+        // Install the prefetched player data, or keep using it if it is still in memory
+        plugin.getSessionManager().handleJoin(event.getPlayer().getUniqueId());
     }
 
     /**
@@ -41,7 +70,7 @@ public class PlayerJoinQuitListener implements Listener {
      */
     @EventHandler(priority = EventPriority.NORMAL)
     public void onPlayerQuit(PlayerQuitEvent event) {
-        // Save player data
-        plugin.getPlayerDataManager().savePlayerData(event.getPlayer().getUniqueId());
+        // Save player data; it is removed from memory after the grace period
+        plugin.getSessionManager().handleQuit(event.getPlayer().getUniqueId());
     }
 }
\ No newline at end of file
@@ -0,0 +1,121 @@
+package com.brekfst.fruitPouches.models;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A pickup condition compiled from its configuration map
+ */
+public class PickupCondition {
+
+    // Day is 0-12000 world ticks, night is the rest
+    private static final long DAY_START = 0L;
+    private static final long DAY_END = 12000L;
+
+    private final String worldName;
+    private final String permission;
+    private final boolean hasTimeRange;
+    private final long timeStart;
+    private final long timeEnd;
+    private final boolean timeInside;
+    private UUID worldId;
+
+    /**
+     * Compile a pickup condition
+     *
+     * @param condition The condition map (world, permission, time)
+     */
+    public PickupCondition(Map<String, String> condition) {
+        String world = condition.get("world");
+        this.worldName = world == null || world.isEmpty() ? null : world;
+
+        String node = condition.get("permission");
+        this.permission = node == null || node.isEmpty() ? null : node.intern();
+
+        String time = condition.get("time");
+        if (time == null || time.isEmpty()) {
+            this.hasTimeRange = false;
+            this.timeStart = 0L;
+            this.timeEnd = 0L;
+            this.timeInside = true;
+        } else if (time.equalsIgnoreCase("night")) {
+            this.hasTimeRange = true;
+            this.timeStart = DAY_START;
+            this.timeEnd = DAY_END;
+            this.timeInside = false;
+        } else if (time.equalsIgnoreCase("day")) {
+            this.hasTimeRange = true;
+            this.timeStart = DAY_START;
+            this.timeEnd = DAY_END;
+            this.timeInside = true;
+        } else {
+            // Unknown time values never restricted pickup
+            this.hasTimeRange = false;
+            this.timeStart = 0L;
+            this.timeEnd = 0L;
+            this.timeInside = true;
+        }
+    }
+
+    /**
+     * Check the parts of this condition that only depend on where and when the player is
+     *
+     * @param player The player
+     * @return true if the world and time requirements are met
+     */
+    public boolean testWorldAndTime(Player player) {
+        World world = player.getWorld();
+
+        if (worldName != null) {
+            if (worldId == null) {
+                World target = Bukkit.getWorld(worldName);
+                if (target == null) {
+                    return false; // The player can't be in a world that isn't loaded
+                }
+                worldId = target.getUID();
+            }
+
+            if (!world.getUID().equals(worldId)) {
+                return false;
+            }
+        }
+
+        if (hasTimeRange) {
+            long time = world.getTime();
+            boolean inside = time >= timeStart && time <= timeEnd;
+            if (inside != timeInside) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Get the permission node this condition requires
+     *
+     * @return The interned permission node, or null if none is required
+     */
+    public String getPermission() {
+        return permission;
+    }
+
+    /**
+     * Check if this condition restricts anything
+     *
+     * @return true if the condition has no requirements
+     */
+    public boolean isEmpty() {
+        return worldName == null && permission == null && !hasTimeRange;
+    }
+
+    @Override
+    public String toString() {
+        return "PickupCondition{world=" + worldName + ", permission=" + permission +
+                (hasTimeRange ? ", time=" + (timeInside ? "" : "not ") + timeStart + "-" + timeEnd : "") + "}";
+    }
+}
@@ -0,0 +1,180 @@
+package com.brekfst.fruitPouches.models;
+
+import com.brekfst.fruitPouches.FruitPouches;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled form of a pouch's pickup and exclude lists.
+ * Vanilla entries and wildcards are expanded into material bitsets once, so checking
+ * an item is a bit test; custom items are only matched for materials they can have.
+ */
+public class PickupFilter {
+
+    private static final String CUSTOM_PREFIX = "custom:";
+
+    private final EnumSet<Material> accepted;
+    private final EnumSet<Material> excluded;
+    private final Map<Material, CustomItem[]> customMatchers;
+
+    private PickupFilter(EnumSet<Material> accepted, EnumSet<Material> excluded, Map<Material, CustomItem[]> customMatchers) {
+        this.accepted = accepted;
+        this.excluded = excluded;
+        this.customMatchers = customMatchers;
+    }
+
+    /**
+     * Compile a pickup filter from pouch configuration entries
+     *
+     * @param plugin The plugin instance
+     * @param pickupItems The pickup list (materials, wildcards and custom:id entries)
+     * @param excludeItems The exclude list (material names)
+     * @return The compiled filter
+     */
+    public static PickupFilter compile(FruitPouches plugin, Collection<String> pickupItems, Collection<String> excludeItems) {
+        EnumSet<Material> accepted = EnumSet.noneOf(Material.class);
+        EnumSet<Material> excluded = EnumSet.noneOf(Material.class);
+        Map<Material, List<CustomItem>> custom = new EnumMap<>(Material.class);
+
+        for (String entry : excludeItems) {
+            Material material = Material.matchMaterial(entry);
+            if (material != null) {
+                excluded.add(material);
+            }
+        }
+
+        for (String entry : pickupItems) {
+            if (entry.startsWith(CUSTOM_PREFIX)) {
+                String customItemId = entry.substring(CUSTOM_PREFIX.length());
+                CustomItem customItem = plugin.getCustomItemManager().getCustomItem(customItemId);
+
+                if (customItem != null) {
+                    custom.computeIfAbsent(customItem.getMaterial(), k -> new ArrayList<>()).add(customItem);
+                } else {
+                    plugin.getDebug().log("Unknown custom item in pickup list: " + customItemId);
+                }
+            } else if (entry.contains("*")) {
+                expandWildcard(entry, accepted);
+            } else {
+                Material material = Material.matchMaterial(entry);
+                if (material != null) {
+                    accepted.add(material);
+                } else {
+                    plugin.getDebug().log("Unknown material in pickup list: " + entry);
+                }
+            }
+        }
+
+        Map<Material, CustomItem[]> customMatchers = new EnumMap<>(Material.class);
+        for (Map.Entry<Material, List<CustomItem>> entry : custom.entrySet()) {
+            // A material accepted outright needs no custom check
+            if (!accepted.contains(entry.getKey())) {
+                customMatchers.put(entry.getKey(), entry.getValue().toArray(new CustomItem[0]));
+            }
+        }
+
+        return new PickupFilter(accepted, excluded, customMatchers);
+    }
+
+    /**
+     * Add every material matching a wildcard pattern
+     * (*SUFFIX ends with, PREFIX* starts with, *CONTAINS* contains)
+     *
+     * @param pattern The wildcard pattern
+     * @param target The set to add matches to
+     */
+    @SuppressWarnings("deprecation")
+    private static void expandWildcard(String pattern, EnumSet<Material> target) {
+        boolean leading = pattern.startsWith("*");
+        boolean trailing = pattern.endsWith("*");
+        String needle = pattern.replace("*", "");
+
+        for (Material material : Material.values()) {
+            if (material.isLegacy()) {
+                continue;
+            }
+
+            String name = material.name();
+            boolean matches;
+
+            if (leading && trailing) {
+                matches = name.contains(needle);
+            } else if (leading) {
+                matches = name.endsWith(needle);
+            } else if (trailing) {
+                matches = name.startsWith(needle);
+            } else {
+                matches = false;
+            }
+
+            if (matches) {
+                target.add(material);
+            }
+        }
+    }
+
+    /**
+     * Check if an item passes this filter
+     *
+     * @param itemStack The item to check
+     * @return true if the item can be picked up
+     */
+    public boolean matches(ItemStack itemStack) {
+        Material type = itemStack.getType();
+
+        if (excluded.contains(type)) {
+            return false;
+        }
+
+        if (accepted.contains(type)) {
+            return true;
+        }
+
+        CustomItem[] matchers = customMatchers.get(type);
+        if (matchers != null) {
+            for (CustomItem customItem : matchers) {
+                if (customItem.matches(itemStack)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Check if any item of a material could pass this filter
+     *
+     * @param material The material
+     * @return true if the material is accepted outright or by a custom item
+     */
+    public boolean canAccept(Material material) {
+        return !excluded.contains(material) && (accepted.contains(material) || customMatchers.containsKey(material));
+    }
+
+    /**
+     * Check if items of a material are accepted without looking at their metadata
+     *
+     * @param material The material
+     * @return true if every item of this material passes the filter
+     */
+    public boolean acceptsAll(Material material) {
+        return !excluded.contains(material) && accepted.contains(material);
+    }
+
+    /**
+     * Get the number of materials accepted outright
+     *
+     * @return The accepted material count
+     */
+    public int getAcceptedCount() {
+        return accepted.size();
+    }
+}
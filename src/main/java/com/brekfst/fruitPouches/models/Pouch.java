@@ -1,6 +1,16 @@
 package com.brekfst.fruitPouches.models;
 
 import com.brekfst.fruitPouches.FruitPouches;
+import com.brekfst.fruitPouches.content.AddResult;
+import com.brekfst.fruitPouches.content.BulkContentStore;
+import com.brekfst.fruitPouches.content.ChangeJournal;
+import com.brekfst.fruitPouches.content.ContentMapView;
+import com.brekfst.fruitPouches.content.ContentSnapshot;
+import com.brekfst.fruitPouches.content.ContentStore;
+import com.brekfst.fruitPouches.content.ItemPrototype;
+import com.brekfst.fruitPouches.content.SlotContentStore;
+import com.brekfst.fruitPouches.data.PlayerSave;
+import com.brekfst.fruitPouches.pickup.PermissionCache;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.configuration.ConfigurationSection;
@@ -13,6 +23,7 @@ import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.NamespacedKey;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -26,15 +37,23 @@ public class Pouch {
     private static final String NBT_POUCH_SKIN = "pouch_skin";
     private static final String NBT_POUCH_ITEMS = "pouch_items";
 
+    private static final String ADMIN_PERMISSION = "fruitpouch.admin";
+
+    // NamespacedKeys are immutable, so build each one once instead of per lookup
+    private static final Map<String, NamespacedKey> NBT_KEYS = new ConcurrentHashMap<>();
+
     private final String id;
     private final String displayName;
     private final Material material;
     private final String hdbId;
     private int slots;
     private int enchantmentSlots;
+    private String storage;
+    private long maxItems;
     private final Set<String> pickupItems;
     private final Set<String> excludeItems;
     private final List<Map<String, String>> pickupConditions;
+    private PickupCondition[] compiledConditions;
     private String guiLayout;
     private final List<Map<String, Object>> guiCategories;
     private final List<Map<String, Object>> guiButtons;
@@ -43,13 +62,19 @@ public class Pouch {
     private final boolean trackStats;
     private final List<PouchUpgrade> upgrades;
     private final Map<String, String> permissions;
+    private final String usePermission;
+    private final String upgradePermission;
 
     // Runtime data (not saved to config)
     private int currentLevel;
     private String currentSkin;
     private List<PouchEnchantment> enchantments;
+    private final ChangeJournal journal;
+    private ContentStore store;
     private Map<String, ItemStack> contents;
     private PouchStats stats;
+    private PickupFilter pickupFilter;
+    private int pickupFilterVersion;
 
     /**
      * Create a new pouch from configuration
@@ -64,6 +89,8 @@ public class Pouch {
         this.hdbId = config.getString("hdb_id", "");
         this.slots = config.getInt("slots", 27);
         this.enchantmentSlots = config.getInt("enchantment_slots", 0);
+        this.storage = config.getString("storage", "stacks").toLowerCase();
+        this.maxItems = config.getLong("max-items", 0L);
 
         // Pickup settings
         this.pickupItems = new HashSet<>(config.getStringList("pickup.items"));
@@ -81,6 +108,7 @@ public class Pouch {
             }
             pickupConditions.add(conditionMap);
         }
+        this.compiledConditions = compileConditions(pickupConditions);
 
         // GUI settings
         ConfigurationSection guiSection = config.getConfigurationSection("gui");
@@ -186,18 +214,96 @@ public class Pouch {
                 permissions.put(key, permissionSection.getString(key));
             }
         }
+        this.usePermission = permissions.getOrDefault("use", "fruitpouch." + id + ".use").intern();
+        this.upgradePermission = permissions.getOrDefault("upgrade", "fruitpouch." + id + ".upgrade").intern();
 
         // Initialize runtime data
         this.currentLevel = 0; // Level 0 means no upgrades applied
         this.currentSkin = "";
         this.enchantments = new ArrayList<>();
-        this.contents = new HashMap<>();
+        this.journal = new ChangeJournal();
+        this.store = createContentStore();
+        this.contents = new ContentMapView(store);
         this.stats = new PouchStats(id);
+        this.stats.setJournal(journal);
 
         // Apply level 0 defaults
         applyLevelDefaults();
     }
 
+    /**
+     * Create a new player pouch from a pouch template, without parsing the pouch
+     * configuration again. Configuration that player pouches change on reload is copied.
+     *
+     * @param template The template pouch
+     */
+    public Pouch(Pouch template) {
+        this.id = template.id;
+        this.displayName = template.displayName;
+        this.material = template.material;
+        this.hdbId = template.hdbId;
+        this.slots = template.slots;
+        this.enchantmentSlots = template.enchantmentSlots;
+        this.storage = template.storage;
+        this.maxItems = template.maxItems;
+
+        // Pickup settings
+        this.pickupItems = new HashSet<>(template.pickupItems);
+        this.excludeItems = new HashSet<>(template.excludeItems);
+        this.pickupConditions = new ArrayList<>();
+        for (Map<String, String> condition : template.pickupConditions) {
+            this.pickupConditions.add(new HashMap<>(condition));
+        }
+        this.compiledConditions = template.compiledConditions;
+        this.pickupFilter = template.pickupFilter;
+        this.pickupFilterVersion = template.pickupFilterVersion;
+
+        // GUI settings
+        this.guiLayout = template.guiLayout;
+        this.guiCategories = new ArrayList<>();
+        for (Map<String, Object> category : template.guiCategories) {
+            this.guiCategories.add(new HashMap<>(category));
+        }
+        this.guiButtons = new ArrayList<>();
+        for (Map<String, Object> button : template.guiButtons) {
+            this.guiButtons.add(new HashMap<>(button));
+        }
+
+        this.overflowMode = template.overflowMode;
+        this.actions = new ArrayList<>();
+        for (PouchAction action : template.actions) {
+            this.actions.add(new PouchAction(action.getType(), new HashMap<>(action.getConfig())));
+        }
+        this.trackStats = template.trackStats;
+        this.upgrades = new ArrayList<>();
+        for (PouchUpgrade upgrade : template.upgrades) {
+            this.upgrades.add(new PouchUpgrade(upgrade.getLevel(), upgrade.getSlots(),
+                    upgrade.getEnchantmentSlots(), new HashMap<>(upgrade.getCost())));
+        }
+        this.permissions = new HashMap<>(template.permissions);
+        this.usePermission = template.usePermission;
+        this.upgradePermission = template.upgradePermission;
+
+        // Initialize runtime data
+        this.currentLevel = 0;
+        this.currentSkin = "";
+        this.enchantments = new ArrayList<>();
+        this.journal = new ChangeJournal();
+        this.store = createContentStore();
+        this.contents = new ContentMapView(store);
+        this.stats = new PouchStats(id);
+        this.stats.setJournal(journal);
+    }
+
+    /**
+     * Create an empty content store for this pouch's storage mode
+     *
+     * @return The content store
+     */
+    private ContentStore createContentStore() {
+        return isBulkStorage() ? new BulkContentStore(maxItems, journal) : new SlotContentStore(journal);
+    }
+
     /**
      * Apply the current level's defaults (slots, enchantment slots)
      */
@@ -260,7 +366,14 @@ public class Pouch {
             }
 
             // Add slots info
-            loreList.add(ChatColor.GRAY + "Slots: " + ChatColor.AQUA + slots);
+            if (isBulkStorage()) {
+                loreList.add(ChatColor.GRAY + "Item Types: " + ChatColor.AQUA + slots);
+                if (maxItems > 0) {
+                    loreList.add(ChatColor.GRAY + "Capacity: " + ChatColor.AQUA + maxItems);
+                }
+            } else {
+                loreList.add(ChatColor.GRAY + "Slots: " + ChatColor.AQUA + slots);
+            }
 
             // Add enchantments info
             if (!enchantments.isEmpty()) {
@@ -323,9 +436,9 @@ public class Pouch {
             meta.setLore(loreList);
 
             // Add NBT data
-            NamespacedKey pouchIdKey = new NamespacedKey(plugin, NBT_POUCH_ID);
-            NamespacedKey pouchLevelKey = new NamespacedKey(plugin, NBT_POUCH_LEVEL);
-            NamespacedKey pouchSkinKey = new NamespacedKey(plugin, NBT_POUCH_SKIN);
+            NamespacedKey pouchIdKey = nbtKey(plugin, NBT_POUCH_ID);
+            NamespacedKey pouchLevelKey = nbtKey(plugin, NBT_POUCH_LEVEL);
+            NamespacedKey pouchSkinKey = nbtKey(plugin, NBT_POUCH_SKIN);
 
             PersistentDataContainer container = meta.getPersistentDataContainer();
             container.set(pouchIdKey, PersistentDataType.STRING, id);
@@ -341,6 +454,17 @@ public class Pouch {
         return item;
     }
 
+    /**
+     * Get the shared NamespacedKey for an NBT tag
+     *
+     * @param plugin The plugin instance
+     * @param name The tag name
+     * @return The key
+     */
+    private static NamespacedKey nbtKey(FruitPouches plugin, String name) {
+        return NBT_KEYS.computeIfAbsent(name, k -> new NamespacedKey(plugin, k));
+    }
+
     /**
      * Check if an ItemStack is a pouch of this type
      *
@@ -355,7 +479,7 @@ public class Pouch {
 
         ItemMeta meta = item.getItemMeta();
         PersistentDataContainer container = meta.getPersistentDataContainer();
-        NamespacedKey pouchIdKey = new NamespacedKey(plugin, NBT_POUCH_ID);
+        NamespacedKey pouchIdKey = nbtKey(plugin, NBT_POUCH_ID);
 
         if (container.has(pouchIdKey, PersistentDataType.STRING)) {
             String storedId = container.get(pouchIdKey, PersistentDataType.STRING);
@@ -379,7 +503,7 @@ public class Pouch {
 
         ItemMeta meta = item.getItemMeta();
         PersistentDataContainer container = meta.getPersistentDataContainer();
-        NamespacedKey pouchIdKey = new NamespacedKey(plugin, NBT_POUCH_ID);
+        NamespacedKey pouchIdKey = nbtKey(plugin, NBT_POUCH_ID);
 
         if (container.has(pouchIdKey, PersistentDataType.STRING)) {
             return container.get(pouchIdKey, PersistentDataType.STRING);
@@ -402,7 +526,7 @@ public class Pouch {
 
         ItemMeta meta = item.getItemMeta();
         PersistentDataContainer container = meta.getPersistentDataContainer();
-        NamespacedKey pouchLevelKey = new NamespacedKey(plugin, NBT_POUCH_LEVEL);
+        NamespacedKey pouchLevelKey = nbtKey(plugin, NBT_POUCH_LEVEL);
 
         if (container.has(pouchLevelKey, PersistentDataType.INTEGER)) {
             return container.get(pouchLevelKey, PersistentDataType.INTEGER);
@@ -425,7 +549,7 @@ public class Pouch {
 
         ItemMeta meta = item.getItemMeta();
         PersistentDataContainer container = meta.getPersistentDataContainer();
-        NamespacedKey pouchSkinKey = new NamespacedKey(plugin, NBT_POUCH_SKIN);
+        NamespacedKey pouchSkinKey = nbtKey(plugin, NBT_POUCH_SKIN);
 
         if (container.has(pouchSkinKey, PersistentDataType.STRING)) {
             return container.get(pouchSkinKey, PersistentDataType.STRING);
@@ -441,8 +565,19 @@ public class Pouch {
      * @return true if the player has permission
      */
     public boolean hasUsePermission(Player player) {
-        String permission = permissions.getOrDefault("use", "fruitpouch." + id + ".use");
-        return player.hasPermission(permission) || player.hasPermission("fruitpouch.admin");
+        return player.hasPermission(usePermission) || player.hasPermission(ADMIN_PERMISSION);
+    }
+
+    /**
+     * Check if a player has permission to use this pouch, using cached decisions
+     *
+     * @param player The player to check
+     * @param plugin The plugin instance
+     * @return true if the player has permission
+     */
+    public boolean hasUsePermission(Player player, FruitPouches plugin) {
+        PermissionCache permissionCache = plugin.getPermissionCache();
+        return permissionCache.has(player, usePermission) || permissionCache.has(player, ADMIN_PERMISSION);
     }
 
     /**
@@ -452,8 +587,7 @@ public class Pouch {
      * @return true if the player has permission
      */
     public boolean hasUpgradePermission(Player player) {
-        String permission = permissions.getOrDefault("upgrade", "fruitpouch." + id + ".upgrade");
-        return player.hasPermission(permission) || player.hasPermission("fruitpouch.admin");
+        return player.hasPermission(upgradePermission) || player.hasPermission(ADMIN_PERMISSION);
     }
 
     /**
@@ -468,71 +602,50 @@ public class Pouch {
             return false;
         }
 
-        String materialName = itemStack.getType().name();
-
-        // Print the debug information
-        plugin.getDebug().log("Checking if pouch " + id + " can pick up item: " + materialName);
-        plugin.getDebug().log("Exclude list: " + String.join(", ", excludeItems));
-        plugin.getDebug().log("Pickup items list: " + String.join(", ", pickupItems));
+        boolean result = getPickupFilter(plugin).matches(itemStack);
 
-        // First check exclusions
-        if (excludeItems.contains(materialName)) {
-            plugin.getDebug().log("Item is excluded: " + materialName);
-            return false;
+        if (plugin.getDebug().isEnabled()) {
+            plugin.getDebug().log("Pouch " + id + (result ? " can" : " cannot") + " pick up item: " + itemStack.getType().name());
         }
 
-        // Then check if it's directly in the pickup list
-        for (String pickupItem : pickupItems) {
-            // Direct match with material name
-            if (pickupItem.equals(materialName)) {
-                plugin.getDebug().log("Item is in pickup list: " + materialName);
-                return true;
-            }
-
-            // Check for custom items
-            if (pickupItem.startsWith("custom:")) {
-                String customItemId = pickupItem.substring(7);
-                CustomItem customItem = plugin.getCustomItemManager().getCustomItem(customItemId);
-
-                if (customItem != null && customItem.matches(itemStack)) {
-                    plugin.getDebug().log("Item matches custom item: " + customItemId);
-                    return true;
-                }
-            }
+        return result;
+    }
 
-            // Check for wildcards
-            if (pickupItem.contains("*")) {
-                // Remove the asterisk and check for pattern matches
-                String pattern = pickupItem.replace("*", "");
-
-                // Check different wildcard patterns:
-                // *SUFFIX (ends with)
-                if (pickupItem.startsWith("*") && !pickupItem.endsWith("*")) {
-                    if (materialName.endsWith(pattern)) {
-                        plugin.getDebug().log("Item matches wildcard pattern (ends with): " + pickupItem);
-                        return true;
-                    }
-                }
-                // PREFIX* (starts with)
-                else if (!pickupItem.startsWith("*") && pickupItem.endsWith("*")) {
-                    if (materialName.startsWith(pattern)) {
-                        plugin.getDebug().log("Item matches wildcard pattern (starts with): " + pickupItem);
-                        return true;
-                    }
-                }
-                // *CONTAINS* (contains)
-                else if (pickupItem.startsWith("*") && pickupItem.endsWith("*")) {
-                    String innerPattern = pattern.substring(0, pattern.length() - 1);
-                    if (materialName.contains(innerPattern)) {
-                        plugin.getDebug().log("Item matches wildcard pattern (contains): " + pickupItem);
-                        return true;
-                    }
-                }
+    /**
+     * Get the compiled pickup filter of this pouch, compiling it on first use
+     * or after a configuration reload
+     *
+     * @param plugin The plugin instance
+     * @return The compiled pickup filter
+     */
+    public PickupFilter getPickupFilter(FruitPouches plugin) {
+        int version = plugin.getPouchManager().getConfigVersion();
+
+        if (pickupFilter == null || pickupFilterVersion != version) {
+            Pouch template = plugin.getPouchManager().getPouch(id);
+
+            // Player pouches with the template's lists reuse its filter
+            if (template != null && template != this &&
+                    template.pickupItems.equals(pickupItems) && template.excludeItems.equals(excludeItems)) {
+                pickupFilter = template.getPickupFilter(plugin);
+                pickupFilterVersion = version;
+            } else {
+                compilePickupFilter(plugin, version);
             }
         }
 
-        plugin.getDebug().log("Item does not match any pickup criteria: " + materialName);
-        return false;
+        return pickupFilter;
+    }
+
+    /**
+     * Compile the pickup filter of this pouch from its pickup and exclude lists
+     *
+     * @param plugin The plugin instance
+     * @param version The pouch configuration version the filter is compiled against
+     */
+    public void compilePickupFilter(FruitPouches plugin, int version) {
+        this.pickupFilter = PickupFilter.compile(plugin, pickupItems, excludeItems);
+        this.pickupFilterVersion = version;
     }
 
     // In the Pouch.java class
@@ -547,60 +660,36 @@ public class Pouch {
             return false;
         }
 
-        // Create a copy to avoid modifying the original
-        ItemStack itemToAdd = itemStack.clone();
-        int initialAmount = itemToAdd.getAmount();
-        int remainingAmount = initialAmount;
-
-        // First pass: try to stack with existing similar items
-        for (Map.Entry<String, ItemStack> entry : contents.entrySet()) {
-            String key = entry.getKey();
-            ItemStack existingItem = entry.getValue();
+        // The store merges into similar stacks through its index, then opens new slots
+        int initialAmount = itemStack.getAmount();
+        int remainingAmount = store.add(itemStack, slots);
 
-            if (existingItem.isSimilar(itemToAdd)) {
-                int maxStackSize = existingItem.getMaxStackSize();
-                int currentAmount = existingItem.getAmount();
-                int spaceAvailable = maxStackSize - currentAmount;
-
-                if (spaceAvailable > 0) {
-                    int amountToAdd = Math.min(remainingAmount, spaceAvailable);
-                    existingItem.setAmount(currentAmount + amountToAdd);
-                    remainingAmount -= amountToAdd;
-
-                    if (remainingAmount <= 0) {
-                        // Successfully added the entire stack
-                        stats.incrementItemsCollected(initialAmount);
-                        stats.updateLastUsed();
-                        return true;
-                    }
-                }
-            }
+        if (remainingAmount == initialAmount) {
+            return false;
         }
 
-        // If we still have items to add, check if we have space for a new stack
-        if (remainingAmount > 0) {
-            // Check available slots
-            if (contents.size() >= slots) {
-                // No space for a new stack - return false if we couldn't add anything
-                if (remainingAmount == initialAmount) {
-                    return false;
-                }
+        stats.incrementItemsCollected(initialAmount - remainingAmount);
+        stats.updateLastUsed();
+        return true;
+    }
 
-                // Otherwise, return true because we added at least some items
-                stats.incrementItemsCollected(initialAmount - remainingAmount);
-                stats.updateLastUsed();
-                return true;
-            }
+    /**
+     * Add several items to this pouch in one pass. Similar items are merged first, and stats
+     * are updated once for the whole batch, so callers should also save once afterwards.
+     *
+     * @param items The items to add (not modified)
+     * @return The accepted and overflowing amount of each item, in iteration order
+     */
+    public AddResult addItems(Collection<ItemStack> items) {
+        List<ItemStack> list = items instanceof List ? (List<ItemStack>) items : new ArrayList<>(items);
+        AddResult result = store.addAll(list, slots);
 
-            // Create a new stack with the remaining items
-            itemToAdd.setAmount(remainingAmount);
-            String newKey = UUID.randomUUID().toString();
-            contents.put(newKey, itemToAdd);
+        if (result.getTotalAccepted() > 0) {
+            stats.incrementItemsCollected((int) Math.min(result.getTotalAccepted(), Integer.MAX_VALUE));
+            stats.updateLastUsed();
         }
 
-        stats.incrementItemsCollected(initialAmount);
-        stats.updateLastUsed();
-        return true;
+        return result;
     }
 
     /**
@@ -615,16 +704,33 @@ public class Pouch {
         // Update functional properties
         this.slots = template.slots;
         this.enchantmentSlots = template.enchantmentSlots;
+        this.maxItems = template.maxItems;
+        if (!this.storage.equals(template.storage)) {
+            // Storage mode changed, move everything into a store of the new kind
+            ContentStore previous = this.store;
+            this.storage = template.storage;
+            this.store = createContentStore();
+            this.contents = new ContentMapView(store);
+            this.journal.recordClear();
+            for (int slot = previous.nextSlot(0); slot >= 0; slot = previous.nextSlot(slot + 1)) {
+                this.store.append(previous.getPrototype(slot), previous.getAmount(slot));
+            }
+        } else if (this.store instanceof BulkContentStore) {
+            ((BulkContentStore) this.store).setMaxItems(maxItems);
+        }
         this.pickupItems.clear();
         this.pickupItems.addAll(template.pickupItems);
         this.excludeItems.clear();
         this.excludeItems.addAll(template.excludeItems);
+        this.pickupFilter = template.pickupFilter;
+        this.pickupFilterVersion = template.pickupFilterVersion;
 
         // Update pickup conditions
         this.pickupConditions.clear();
         for (Map<String, String> condition : template.pickupConditions) {
             this.pickupConditions.add(new HashMap<>(condition));
         }
+        this.compiledConditions = template.compiledConditions;
 
         // Update GUI settings
         this.guiLayout = template.guiLayout;
@@ -667,61 +773,65 @@ public class Pouch {
 
     public boolean meetsPickupConditions(Player player, FruitPouches plugin) {
         // If there are no conditions, always return true
-        if (pickupConditions.isEmpty()) {
-            plugin.getDebug().log("Pouch " + id + " has no pickup conditions, automatic pass");
+        if (compiledConditions.length == 0) {
             return true;
         }
 
-        // Check each condition
-        for (Map<String, String> condition : pickupConditions) {
-            plugin.getDebug().log("Checking  Checking condition for pouch " + id + ": " + condition);
-
-            // Skip empty conditions
-            if (condition.isEmpty()) {
-                plugin.getDebug().log("Empty condition - skipping");
-                continue;
+        // World and time can't change within a tick, so those are evaluated once per tick
+        if (!plugin.getPickupConditionCache().meetsWorldAndTime(player, this)) {
+            if (plugin.getDebug().isEnabled()) {
+                plugin.getDebug().log("World or time condition failed for pouch " + id + " in " + player.getWorld().getName());
             }
+            return false;
+        }
 
-            // Check world condition
-            if (condition.containsKey("world") && !condition.get("world").isEmpty()) {
-                String worldName = condition.get("world");
-                plugin.getDebug().log("Checking world condition: " + worldName + " vs " + player.getWorld().getName());
+        for (PickupCondition condition : compiledConditions) {
+            String permission = condition.getPermission();
 
-                if (!player.getWorld().getName().equals(worldName)) {
-                    plugin.getDebug().log("World condition failed: player is in " + player.getWorld().getName());
-                    return false;
+            if (permission != null && !plugin.getPermissionCache().has(player, permission)) {
+                if (plugin.getDebug().isEnabled()) {
+                    plugin.getDebug().log("Permission condition failed: player doesn't have " + permission);
                 }
+                return false;
             }
+        }
 
-            // Check permission condition
-            if (condition.containsKey("permission") && !condition.get("permission").isEmpty()) {
-                String permission = condition.get("permission");
-                plugin.getDebug().log("Checking permission condition: " + permission);
+        return true;
+    }
 
-                if (!player.hasPermission(permission)) {
-                    plugin.getDebug().log("Permission condition failed: player doesn't have " + permission);
-                    return false;
-                }
+    /**
+     * Check the world and time parts of this pouch's pickup conditions
+     *
+     * @param player The player
+     * @return true if every condition's world and time requirements are met
+     */
+    public boolean meetsWorldAndTimeConditions(Player player) {
+        for (PickupCondition condition : compiledConditions) {
+            if (!condition.testWorldAndTime(player)) {
+                return false;
             }
+        }
 
-            // Check time condition
-            if (condition.containsKey("time") && !condition.get("time").isEmpty()) {
-                String timeCondition = condition.get("time").toLowerCase();
-                long time = player.getWorld().getTime();
-                plugin.getDebug().log("Checking time condition: " + timeCondition + " at time " + time);
-
-                if (timeCondition.equals("day") && (time < 0 || time > 12000)) {
-                    plugin.getDebug().log("Time condition failed: not day time");
-                    return false;
-                } else if (timeCondition.equals("night") && (time >= 0 && time <= 12000)) {
-                    plugin.getDebug().log("Time condition failed: not night time");
-                    return false;
-                }
+        return true;
+    }
+
+    /**
+     * Compile pickup condition maps, dropping empty conditions
+     *
+     * @param conditions The condition maps
+     * @return The compiled conditions
+     */
+    private static PickupCondition[] compileConditions(List<Map<String, String>> conditions) {
+        List<PickupCondition> compiled = new ArrayList<>();
+
+        for (Map<String, String> condition : conditions) {
+            PickupCondition pickupCondition = new PickupCondition(condition);
+            if (!pickupCondition.isEmpty()) {
+                compiled.add(pickupCondition);
             }
         }
 
-        plugin.getDebug().log("All conditions met (or skipped) for pouch " + id);
-        return true;
+        return compiled.toArray(new PickupCondition[0]);
     }
 
     /**
@@ -755,27 +865,18 @@ public class Pouch {
      * @param config The YAML configuration to save to
      */
     public void saveToConfig(ConfigurationSection config) {
-        // Convert enchantments to a list of maps
-        List<Map<String, Object>> enchantmentsList = new ArrayList<>();
-        for (PouchEnchantment enchantment : enchantments) {
-            Map<String, Object> enchantmentMap = new HashMap<>();
-            enchantmentMap.put("type", enchantment.getType().getId());
-            enchantmentMap.put("level", enchantment.getLevel());
-            enchantmentsList.add(enchantmentMap);
-        }
-
-        // Convert contents to a list of serialized items
-        Map<String, Object> serializedContents = new HashMap<>();
-        for (Map.Entry<String, ItemStack> entry : contents.entrySet()) {
-            serializedContents.put(entry.getKey(), entry.getValue().serialize());
-        }
+        saveToConfig(config, snapshot());
+    }
 
-        // Save the basic data
-        config.set("level", currentLevel);
-        config.set("skin", currentSkin);
-        config.set("enchantments", enchantmentsList);
-        config.set("contents", serializedContents);
-        config.set("stats", stats.serialize());
+    /**
+     * Save this pouch to a YAML configuration using contents captured earlier. Call it on the
+     * main thread; saves that run async write a {@link PlayerSave.PouchWrite} instead.
+     *
+     * @param config The YAML configuration to save to
+     * @param contents The contents snapshot to write
+     */
+    public void saveToConfig(ConfigurationSection config, ContentSnapshot contents) {
+        new PlayerSave.PouchWrite(this, contents, null).saveToConfig(config);
     }
 
     /**
@@ -805,13 +906,27 @@ public class Pouch {
         }
 
         // Load contents
-        this.contents = new HashMap<>();
+        // Older files key stacks by UUID, newer ones by slot; either way they are packed
+        // into slots in file order
+        this.store.clear();
+        boolean sameSlots = true;
+        int entries = 0;
         ConfigurationSection contentsSection = config.getConfigurationSection("contents");
         if (contentsSection != null) {
             for (String key : contentsSection.getKeys(false)) {
-                Map<String, Object> serialized = contentsSection.getConfigurationSection(key).getValues(true);
-                ItemStack item = ItemStack.deserialize(serialized);
-                this.contents.put(key, item);
+                ConfigurationSection itemSection = contentsSection.getConfigurationSection(key);
+                ItemStack item;
+                if (itemSection.isItemStack("item")) {
+                    // Binary storage hands over items it already decoded
+                    item = itemSection.getItemStack("item");
+                } else {
+                    Map<String, Object> serialized = itemSection.getValues(true);
+                    serialized.remove("count");
+                    item = ItemStack.deserialize(serialized);
+                }
+                int slot = this.store.append(ItemPrototype.of(item), itemSection.getLong("count", item.getAmount()));
+                sameSlots &= key.equals(String.valueOf(slot));
+                entries++;
             }
         }
 
@@ -822,6 +937,14 @@ public class Pouch {
         } else {
             this.stats = new PouchStats(id);
         }
+        this.stats.setJournal(journal);
+
+        // If every entry landed in the slot it was saved under, the file already matches and
+        // nothing needs saving; otherwise (old UUID keys, split or merged entries) the cleared
+        // journal makes the next save rewrite the contents
+        if (sameSlots && entries == store.getStackCount()) {
+            journal.drain();
+        }
     }
 
     // Getters
@@ -901,6 +1024,7 @@ public class Pouch {
     public void setCurrentLevel(int currentLevel) {
         this.currentLevel = currentLevel;
         applyLevelDefaults();
+        journal.record(ChangeJournal.Change.LEVEL);
     }
 
     public String getCurrentSkin() {
@@ -909,6 +1033,7 @@ public class Pouch {
 
     public void setCurrentSkin(String currentSkin) {
         this.currentSkin = currentSkin;
+        journal.record(ChangeJournal.Change.SKIN);
     }
 
     public List<PouchEnchantment> getEnchantments() {
@@ -917,14 +1042,114 @@ public class Pouch {
 
     public void setEnchantments(List<PouchEnchantment> enchantments) {
         this.enchantments = new ArrayList<>(enchantments);
+        journal.record(ChangeJournal.Change.ENCHANTMENTS);
     }
 
     public Map<String, ItemStack> getContents() {
         return this.contents;
     }
 
+    /**
+     * Get the content store backing {@link #getContents()}
+     *
+     * @return The content store
+     */
+    public ContentStore getContentStore() {
+        return this.store;
+    }
+
+    /**
+     * Get an immutable snapshot of the contents, e.g. for saving or rendering.
+     * Taking one is O(1); call it on the main thread.
+     *
+     * @return The contents snapshot
+     */
+    public ContentSnapshot snapshot() {
+        return this.store.snapshot();
+    }
+
+    /**
+     * Get the version of this pouch, which goes up with every change to its contents, level,
+     * skin, enchantments or stats
+     *
+     * @return The version
+     */
+    public long getVersion() {
+        return journal.getVersion();
+    }
+
+    /**
+     * Check if anything changed since the last {@link #drainChanges()}
+     *
+     * @return true if this pouch needs saving
+     */
+    public boolean hasChanges() {
+        return !journal.isEmpty();
+    }
+
+    /**
+     * Take the changes recorded since the last call, to be passed to a
+     * {@link PlayerSave.PouchWrite} together with a snapshot taken at the same time. Call it on
+     * the main thread.
+     *
+     * @return The changes
+     */
+    public ChangeJournal.Delta drainChanges() {
+        return journal.drain();
+    }
+
+    /**
+     * Get the amount stored under a contents key
+     *
+     * @param key The contents key
+     * @return The amount, or 0 if nothing is stored under the key
+     */
+    public long getAmount(String key) {
+        int slot = ContentMapView.toSlot(key);
+        return slot >= 0 ? store.getAmount(slot) : 0;
+    }
+
+    /**
+     * Take items out of the pouch, removing the entry once it runs out.
+     * Use this instead of changing the amount of a stack from {@link #getContents()},
+     * which bulk pouches don't write back.
+     *
+     * @param key The contents key
+     * @param amount The amount to take
+     * @return The amount actually taken
+     */
+    public long removeAmount(String key, long amount) {
+        int slot = ContentMapView.toSlot(key);
+        return slot >= 0 ? store.removeAmount(slot, amount) : 0;
+    }
+
+    /**
+     * Check if this pouch stores counted items instead of stacks
+     *
+     * @return true for {@code storage: bulk}
+     */
+    public boolean isBulkStorage() {
+        return "bulk".equals(storage);
+    }
+
+    /**
+     * Get the maximum total amount of items a bulk pouch can hold
+     *
+     * @return The limit, or 0 for no limit
+     */
+    public long getMaxItems() {
+        return maxItems;
+    }
+
     public void setContents(Map<String, ItemStack> contents) {
-        this.contents = new HashMap<>(contents);
+        // Stacks are packed into slots in the map's iteration order, so sorted maps stay sorted
+        List<ItemStack> stacks = new ArrayList<>(contents.values());
+        this.store.clear();
+        for (ItemStack stack : stacks) {
+            if (stack != null) {
+                this.store.append(stack);
+            }
+        }
     }
 
     public PouchStats getStats() {
@@ -933,5 +1158,7 @@ public class Pouch {
 
     public void setStats(PouchStats stats) {
         this.stats = stats;
+        this.stats.setJournal(journal);
+        journal.record(ChangeJournal.Change.STATS);
     }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.brekfst.fruitPouches.models;
 
 import com.brekfst.fruitPouches.FruitPouches;
+import com.brekfst.fruitPouches.content.AddResult;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
@@ -130,7 +131,6 @@ public class PouchAction {
         for (String key : keysToRemove) {
             contents.remove(key);
         }
-        pouch.setContents(contents);
 
         // Create the output item
         if (outputCustomItem != null) {
@@ -176,15 +176,7 @@ public class PouchAction {
         }
 
         // Find the target pouch in the player's inventory
-        ItemStack targetPouchItem = null;
-        for (ItemStack item : player.getInventory().getContents()) {
-            if (item != null && Pouch.isPouchOfType(plugin, item, targetId)) {
-                targetPouchItem = item;
-                break;
-            }
-        }
-
-        if (targetPouchItem == null) {
+        if (plugin.getPouchSlotCache().findPouchSlot(player, targetId) < 0) {
             player.sendMessage(ChatColor.RED + "Target pouch not found in your inventory!");
             return false;
         }
@@ -198,6 +190,9 @@ public class PouchAction {
 
         // Load the target pouch's data
         targetPouch = plugin.getPlayerDataManager().getPlayerPouch(player.getUniqueId(), targetId);
+        if (targetPouch == null) {
+            return false;
+        }
 
         // Collect items to transfer
         List<String> keysToRemove = new ArrayList<>();
@@ -245,34 +240,46 @@ public class PouchAction {
         for (String key : keysToRemove) {
             contents.remove(key);
         }
-        pouch.setContents(contents);
 
-        // Add the items to the target pouch
-        int transferredCount = 0;
-        for (ItemStack item : itemsToTransfer) {
-            if (targetPouch.addItem(item)) {
-                transferredCount += item.getAmount();
-            } else {
-                // Handle overflow
-                if (targetPouch.getOverflowMode().equals("inventory")) {
-                    player.getInventory().addItem(item);
-                    player.sendMessage(ChatColor.YELLOW + "The target pouch is full! Items went to your inventory.");
-                } else if (targetPouch.getOverflowMode().equals("drop")) {
-                    player.getWorld().dropItemNaturally(player.getLocation(), item);
-                    player.sendMessage(ChatColor.YELLOW + "The target pouch is full! Items were dropped at your feet.");
-                } else if (targetPouch.getOverflowMode().equals("sell") && plugin.getVaultHook().isEnabled()) {
-                    double amount = plugin.getVaultHook().sellItem(player, item);
-                    player.sendMessage(ChatColor.GREEN + "The target pouch is full! Items were sold for " +
-                            plugin.getVaultHook().formatMoney(amount) + ".");
-                }
+        // Add the items to the target pouch in one batch (this also updates its stats)
+        AddResult result = targetPouch.addItems(itemsToTransfer);
+        long transferredCount = result.getTotalAccepted();
+
+        // Handle overflow, with one message for the whole transfer
+        double soldFor = 0;
+        boolean overflowed = false;
+        for (int i = 0; i < itemsToTransfer.size(); i++) {
+            if (result.getOverflow(i) <= 0) {
+                continue;
+            }
+
+            ItemStack item = itemsToTransfer.get(i).clone();
+            item.setAmount(result.getOverflow(i));
+            overflowed = true;
+
+            if (targetPouch.getOverflowMode().equals("inventory")) {
+                player.getInventory().addItem(item);
+            } else if (targetPouch.getOverflowMode().equals("drop")) {
+                player.getWorld().dropItemNaturally(player.getLocation(), item);
+            } else if (targetPouch.getOverflowMode().equals("sell") && plugin.getVaultHook().isEnabled()) {
+                soldFor += plugin.getVaultHook().sellItem(player, item);
+            }
+        }
+
+        if (overflowed) {
+            if (targetPouch.getOverflowMode().equals("inventory")) {
+                player.sendMessage(ChatColor.YELLOW + "The target pouch is full! Items went to your inventory.");
+            } else if (targetPouch.getOverflowMode().equals("drop")) {
+                player.sendMessage(ChatColor.YELLOW + "The target pouch is full! Items were dropped at your feet.");
+            } else if (targetPouch.getOverflowMode().equals("sell") && plugin.getVaultHook().isEnabled()) {
+                player.sendMessage(ChatColor.GREEN + "The target pouch is full! Items were sold for " +
+                        plugin.getVaultHook().formatMoney(soldFor) + ".");
             }
         }
 
         // Update stats
         if (transferredCount > 0) {
             pouch.getStats().incrementActionsPerformed();
-            targetPouch.getStats().incrementItemsCollected(transferredCount);
-            targetPouch.getStats().updateLastUsed();
 
             // Send message to the player
             player.sendMessage(ChatColor.translateAlternateColorCodes('&', message));
@@ -370,19 +377,11 @@ public class PouchAction {
         }
 
         // Remove the input items
-        Map<String, ItemStack> contents = pouch.getContents();
         for (Map.Entry<String, Integer> entry : itemsToRemove.entrySet()) {
             String key = entry.getKey();
             int amountToRemove = entry.getValue();
-            ItemStack item = contents.get(key);
-
-            if (item.getAmount() <= amountToRemove) {
-                contents.remove(key);
-            } else {
-                item.setAmount(item.getAmount() - amountToRemove);
-            }
+            pouch.removeAmount(key, amountToRemove);
         }
-        pouch.setContents(contents);
 
         // Create the output item
         if (outputCustomItem != null) {
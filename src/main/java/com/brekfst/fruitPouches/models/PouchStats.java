@@ -1,5 +1,7 @@
 package com.brekfst.fruitPouches.models;
 
+import com.brekfst.fruitPouches.content.ChangeJournal;
+
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.HashMap;
@@ -14,6 +16,7 @@ public class PouchStats {
     private int itemsCollected;
     private int actionsPerformed;
     private long lastUsed;
+    private ChangeJournal journal;
 
     /**
      * Create new pouch stats
@@ -65,6 +68,7 @@ public class PouchStats {
      */
     public void incrementItemsCollected(int amount) {
         this.itemsCollected += amount;
+        changed();
     }
 
     /**
@@ -81,6 +85,7 @@ public class PouchStats {
      */
     public void incrementActionsPerformed() {
         this.actionsPerformed++;
+        changed();
     }
 
     /**
@@ -107,6 +112,22 @@ public class PouchStats {
      */
     public void updateLastUsed() {
         this.lastUsed = System.currentTimeMillis();
+        changed();
+    }
+
+    /**
+     * Set the journal of the pouch these stats belong to
+     *
+     * @param journal The journal
+     */
+    void setJournal(ChangeJournal journal) {
+        this.journal = journal;
+    }
+
+    private void changed() {
+        if (journal != null) {
+            journal.record(ChangeJournal.Change.STATS);
+        }
     }
 
     /**
@@ -0,0 +1,193 @@
+package com.brekfst.fruitPouches.pickup;
+
+import java.util.Arrays;
+
+/**
+ * Short-lived cooldowns keyed by entity id. Entries go into the current generation; once
+ * a window has passed the generations are swapped and the older one is cleared, so an
+ * entry lives between one and two windows and memory only holds recent entities.
+ * Keys and timestamps are stored in primitive arrays, so nothing is boxed.
+ */
+public class CooldownTable {
+
+    private final long window;
+    private Generation current;
+    private Generation previous;
+    private long generationStart;
+
+    // Metrics
+    private long evictions;
+    private long rotations;
+
+    /**
+     * Create a new cooldown table
+     *
+     * @param window The cooldown window in milliseconds
+     */
+    public CooldownTable(long window) {
+        this.window = Math.max(1L, window);
+        this.current = new Generation();
+        this.previous = new Generation();
+        this.generationStart = System.currentTimeMillis();
+    }
+
+    /**
+     * Check if an entity is still on cooldown
+     *
+     * @param entityId The entity id
+     * @param now The current time in milliseconds
+     * @return true if the entity was marked less than one window ago
+     */
+    public boolean isCoolingDown(int entityId, long now) {
+        rotate(now);
+
+        long stamp = current.get(entityId);
+        if (stamp == 0L) {
+            stamp = previous.get(entityId);
+        }
+
+        return stamp != 0L && now - stamp < window;
+    }
+
+    /**
+     * Start a cooldown for an entity
+     *
+     * @param entityId The entity id
+     * @param now The current time in milliseconds
+     */
+    public void mark(int entityId, long now) {
+        rotate(now);
+        current.put(entityId, now);
+    }
+
+    /**
+     * Swap generations once the current one is a window old
+     *
+     * @param now The current time in milliseconds
+     */
+    private void rotate(long now) {
+        long age = now - generationStart;
+        if (age < window) {
+            return;
+        }
+
+        evictions += previous.size;
+        previous.clear();
+
+        // Nothing in the current generation can still be cooling down either
+        if (age >= window * 2) {
+            evictions += current.size;
+            current.clear();
+        }
+
+        Generation swap = previous;
+        previous = current;
+        current = swap;
+        generationStart = now;
+        rotations++;
+    }
+
+    // Metrics
+
+    public int size() {
+        return current.size + previous.size;
+    }
+
+    public int getCapacity() {
+        return current.keys.length + previous.keys.length;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getRotations() {
+        return rotations;
+    }
+
+    /**
+     * One generation: an open-addressing int to long map. A zero timestamp marks an empty slot.
+     */
+    private static final class Generation {
+        private static final int MIN_CAPACITY = 64;
+
+        private int[] keys;
+        private long[] stamps;
+        private int size;
+
+        private Generation() {
+            this.keys = new int[MIN_CAPACITY];
+            this.stamps = new long[MIN_CAPACITY];
+        }
+
+        private long get(int key) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+
+            while (stamps[slot] != 0L) {
+                if (keys[slot] == key) {
+                    return stamps[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            return 0L;
+        }
+
+        private void put(int key, long stamp) {
+            if ((size + 1) * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+
+            while (stamps[slot] != 0L) {
+                if (keys[slot] == key) {
+                    stamps[slot] = stamp;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            keys[slot] = key;
+            stamps[slot] = stamp;
+            size++;
+        }
+
+        private void clear() {
+            // Give back memory after a burst instead of keeping the largest size ever seen
+            if (keys.length > MIN_CAPACITY && size * 8 < keys.length) {
+                int capacity = MIN_CAPACITY;
+                while (capacity < size * 4) {
+                    capacity <<= 1;
+                }
+                keys = new int[capacity];
+                stamps = new long[capacity];
+            } else {
+                Arrays.fill(stamps, 0L);
+            }
+            size = 0;
+        }
+
+        private void resize(int capacity) {
+            int[] oldKeys = keys;
+            long[] oldStamps = stamps;
+
+            keys = new int[capacity];
+            stamps = new long[capacity];
+            size = 0;
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldStamps[i] != 0L) {
+                    put(oldKeys[i], oldStamps[i]);
+                }
+            }
+        }
+
+        private static int hash(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
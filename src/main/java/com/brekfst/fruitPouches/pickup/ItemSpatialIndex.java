@@ -0,0 +1,438 @@
+package com.brekfst.fruitPouches.pickup;
+
+import com.brekfst.fruitPouches.FruitPouches;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Item;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityRemoveEvent;
+import org.bukkit.event.entity.ItemDespawnEvent;
+import org.bukkit.event.entity.ItemMergeEvent;
+import org.bukkit.event.entity.ItemSpawnEvent;
+import org.bukkit.event.world.EntitiesLoadEvent;
+import org.bukkit.event.world.EntitiesUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Live index of dropped item entities, bucketed by world and chunk section.
+ * Lets the pickup code find nearby drops without querying every entity around a player.
+ */
+public class ItemSpatialIndex implements Listener {
+
+    // How often (in ticks) every indexed item is re-validated and re-bucketed
+    private static final long SWEEP_INTERVAL = 40L;
+
+    private final FruitPouches plugin;
+    private final Map<UUID, Map<Long, Set<Item>>> worlds;
+    private final Map<UUID, IndexedItem> indexedItems;
+
+    // Query counters
+    private long queries;
+    private long cellsVisited;
+    private long candidatesTouched;
+    private long itemsReturned;
+    private long relocations;
+
+    /**
+     * Create a new item spatial index and seed it with the items already in loaded worlds
+     *
+     * @param plugin The plugin instance
+     */
+    public ItemSpatialIndex(FruitPouches plugin) {
+        this.plugin = plugin;
+        this.worlds = new HashMap<>();
+        this.indexedItems = new HashMap<>();
+
+        for (World world : plugin.getServer().getWorlds()) {
+            for (Item item : world.getEntitiesByClass(Item.class)) {
+                add(item);
+            }
+        }
+
+        startSweepTask();
+        plugin.getDebug().log("Item spatial index seeded with " + indexedItems.size() + " items");
+    }
+
+    /**
+     * Periodically re-validate every indexed item. Items drift (water, pistons, explosions),
+     * so this moves them to their current cell and drops any entity the events missed.
+     */
+    private void startSweepTask() {
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                sweep();
+            }
+        }.runTaskTimer(plugin, SWEEP_INTERVAL, SWEEP_INTERVAL);
+    }
+
+    /**
+     * Get all indexed items inside the box of the given half-size around a location.
+     * Matches the box semantics of {@link Entity#getNearbyEntities(double, double, double)}.
+     *
+     * @param center The center of the search box
+     * @param range The half-size of the search box on every axis
+     * @return The items inside the box
+     */
+    public List<Item> getNearbyItems(Location center, double range) {
+        List<Item> result = new ArrayList<>();
+        World world = center.getWorld();
+
+        queries++;
+
+        if (world == null) {
+            return result;
+        }
+
+        Map<Long, Set<Item>> cells = worlds.get(world.getUID());
+        if (cells == null || cells.isEmpty()) {
+            return result;
+        }
+
+        double minX = center.getX() - range;
+        double minY = center.getY() - range;
+        double minZ = center.getZ() - range;
+        double maxX = center.getX() + range;
+        double maxY = center.getY() + range;
+        double maxZ = center.getZ() + range;
+
+        int minCellX = floorToSection(minX);
+        int minCellY = floorToSection(minY);
+        int minCellZ = floorToSection(minZ);
+        int maxCellX = floorToSection(maxX);
+        int maxCellY = floorToSection(maxY);
+        int maxCellZ = floorToSection(maxZ);
+
+        List<Item> stale = null;
+
+        for (int cx = minCellX; cx <= maxCellX; cx++) {
+            for (int cz = minCellZ; cz <= maxCellZ; cz++) {
+                for (int cy = minCellY; cy <= maxCellY; cy++) {
+                    Set<Item> cell = cells.get(cellKey(cx, cy, cz));
+                    cellsVisited++;
+
+                    if (cell == null) {
+                        continue;
+                    }
+
+                    for (Item item : cell) {
+                        candidatesTouched++;
+
+                        if (!item.isValid()) {
+                            if (stale == null) {
+                                stale = new ArrayList<>();
+                            }
+                            stale.add(item);
+                            continue;
+                        }
+
+                        Location location = item.getLocation();
+                        double x = location.getX();
+                        double y = location.getY();
+                        double z = location.getZ();
+
+                        // The item drifted out of this cell; fix its bucket after iterating
+                        if (floorToSection(x) != cx || floorToSection(y) != cy || floorToSection(z) != cz) {
+                            if (stale == null) {
+                                stale = new ArrayList<>();
+                            }
+                            stale.add(item);
+                        }
+
+                        if (x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ) {
+                            result.add(item);
+                        }
+                    }
+                }
+            }
+        }
+
+        if (stale != null) {
+            for (Item item : stale) {
+                refresh(item);
+            }
+        }
+
+        itemsReturned += result.size();
+        return result;
+    }
+
+    /**
+     * Add an item entity to the index
+     *
+     * @param item The item entity
+     */
+    public void add(Item item) {
+        if (item == null || !item.isValid()) {
+            return;
+        }
+
+        Location location = item.getLocation();
+        World world = location.getWorld();
+        if (world == null) {
+            return;
+        }
+
+        remove(item);
+
+        long key = cellKey(floorToSection(location.getX()), floorToSection(location.getY()), floorToSection(location.getZ()));
+        worlds.computeIfAbsent(world.getUID(), k -> new HashMap<>())
+                .computeIfAbsent(key, k -> new HashSet<>())
+                .add(item);
+        indexedItems.put(item.getUniqueId(), new IndexedItem(world.getUID(), key));
+    }
+
+    /**
+     * Remove an item entity from the index
+     *
+     * @param item The item entity
+     */
+    public void remove(Item item) {
+        IndexedItem indexed = indexedItems.remove(item.getUniqueId());
+        if (indexed == null) {
+            return;
+        }
+
+        Map<Long, Set<Item>> cells = worlds.get(indexed.worldId);
+        if (cells == null) {
+            return;
+        }
+
+        Set<Item> cell = cells.get(indexed.cell);
+        if (cell != null) {
+            cell.remove(item);
+            if (cell.isEmpty()) {
+                cells.remove(indexed.cell);
+            }
+        }
+    }
+
+    /**
+     * Re-bucket an item at its current position, or drop it if it is no longer valid
+     *
+     * @param item The item entity
+     */
+    private void refresh(Item item) {
+        if (item.isValid()) {
+            relocations++;
+            add(item);
+
+            // A drifting item may have moved into someone's pickup range
+            plugin.getPickupScheduler().markDirty(item.getLocation());
+        } else {
+            remove(item);
+        }
+    }
+
+    /**
+     * Re-validate every indexed item
+     */
+    private void sweep() {
+        List<Item> moved = new ArrayList<>();
+
+        for (Map.Entry<UUID, Map<Long, Set<Item>>> worldEntry : worlds.entrySet()) {
+            for (Map.Entry<Long, Set<Item>> cellEntry : worldEntry.getValue().entrySet()) {
+                long key = cellEntry.getKey();
+
+                for (Item item : cellEntry.getValue()) {
+                    if (!item.isValid()) {
+                        moved.add(item);
+                        continue;
+                    }
+
+                    Location location = item.getLocation();
+                    World world = location.getWorld();
+                    if (world == null || !world.getUID().equals(worldEntry.getKey()) ||
+                            cellKey(floorToSection(location.getX()), floorToSection(location.getY()), floorToSection(location.getZ())) != key) {
+                        moved.add(item);
+                    }
+                }
+            }
+        }
+
+        for (Item item : moved) {
+            refresh(item);
+        }
+    }
+
+    /**
+     * Index items as they spawn
+     *
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemSpawn(ItemSpawnEvent event) {
+        add(event.getEntity());
+    }
+
+    /**
+     * The merged (source) item disappears into the target
+     *
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemMerge(ItemMergeEvent event) {
+        remove(event.getEntity());
+    }
+
+    /**
+     * Drop items that despawn
+     *
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemDespawn(ItemDespawnEvent event) {
+        remove(event.getEntity());
+    }
+
+    /**
+     * Drop items removed for any other reason (pickup, hoppers, plugins, void)
+     *
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityRemove(EntityRemoveEvent event) {
+        if (event.getEntity() instanceof Item) {
+            remove((Item) event.getEntity());
+        }
+    }
+
+    /**
+     * Index items loaded from disk with their chunk (these never fire ItemSpawnEvent)
+     *
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesLoad(EntitiesLoadEvent event) {
+        for (Entity entity : event.getEntities()) {
+            if (entity instanceof Item) {
+                add((Item) entity);
+            }
+        }
+    }
+
+    /**
+     * Drop items whose chunk is unloaded
+     *
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesUnload(EntitiesUnloadEvent event) {
+        for (Entity entity : event.getEntities()) {
+            if (entity instanceof Item) {
+                remove((Item) entity);
+            }
+        }
+    }
+
+    /**
+     * Drop a whole world from the index when it unloads
+     *
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        UUID worldId = event.getWorld().getUID();
+        Map<Long, Set<Item>> cells = worlds.remove(worldId);
+
+        if (cells != null) {
+            Iterator<IndexedItem> iterator = indexedItems.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().worldId.equals(worldId)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Convert a block coordinate to a chunk section coordinate
+     *
+     * @param coordinate The block coordinate
+     * @return The section coordinate
+     */
+    private static int floorToSection(double coordinate) {
+        return ((int) Math.floor(coordinate)) >> 4;
+    }
+
+    /**
+     * Pack section coordinates into a single key (22 bits for x and z, 20 bits for y)
+     *
+     * @param x The section x
+     * @param y The section y
+     * @param z The section z
+     * @return The packed key
+     */
+    private static long cellKey(int x, int y, int z) {
+        return (((long) x & 0x3FFFFFL) << 42) | (((long) z & 0x3FFFFFL) << 20) | ((long) y & 0xFFFFFL);
+    }
+
+    // Metrics
+
+    public int getIndexedCount() {
+        return indexedItems.size();
+    }
+
+    public int getCellCount() {
+        int count = 0;
+        for (Map<Long, Set<Item>> cells : worlds.values()) {
+            count += cells.size();
+        }
+        return count;
+    }
+
+    public long getQueries() {
+        return queries;
+    }
+
+    public long getCellsVisited() {
+        return cellsVisited;
+    }
+
+    public long getCandidatesTouched() {
+        return candidatesTouched;
+    }
+
+    public long getItemsReturned() {
+        return itemsReturned;
+    }
+
+    public long getRelocations() {
+        return relocations;
+    }
+
+    /**
+     * Average number of indexed items a single query had to look at
+     *
+     * @return Average candidates per query
+     */
+    public double getAverageCandidatesPerQuery() {
+        return queries == 0 ? 0.0 : (double) candidatesTouched / queries;
+    }
+
+    /**
+     * Where an item currently sits in the index
+     */
+    private static final class IndexedItem {
+        private final UUID worldId;
+        private final long cell;
+
+        private IndexedItem(UUID worldId, long cell) {
+            this.worldId = worldId;
+            this.cell = cell;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.brekfst.fruitPouches.pickup;
+
+import com.brekfst.fruitPouches.FruitPouches;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Caches permission decisions for pouch nodes per player, so the pickup path doesn't ask
+ * the permission backend about the same nodes for every nearby item. Decisions are dropped
+ * on join, quit and world change, and expire after a short time so changes made by
+ * permission plugins are picked up.
+ */
+public class PermissionCache implements Listener {
+
+    // How long (in milliseconds) a player's decisions are trusted
+    private static final long TTL = 5000L;
+
+    private final FruitPouches plugin;
+    private final Map<UUID, Decisions> players;
+
+    // Metrics
+    private long hits;
+    private long lookups;
+    private long invalidations;
+
+    /**
+     * Create a new permission cache
+     *
+     * @param plugin The plugin instance
+     */
+    public PermissionCache(FruitPouches plugin) {
+        this.plugin = plugin;
+        this.players = new HashMap<>();
+    }
+
+    /**
+     * Check if a player has a permission node
+     *
+     * @param player The player
+     * @param node The permission node (pass interned or constant strings)
+     * @return true if the player has the permission
+     */
+    public boolean has(Player player, String node) {
+        long now = System.currentTimeMillis();
+        Decisions decisions = players.get(player.getUniqueId());
+
+        if (decisions == null || now >= decisions.expiresAt) {
+            decisions = new Decisions(now + TTL);
+            players.put(player.getUniqueId(), decisions);
+        }
+
+        Boolean cached = decisions.nodes.get(node);
+        if (cached != null) {
+            hits++;
+            return cached;
+        }
+
+        boolean result = player.hasPermission(node);
+        decisions.nodes.put(node, result);
+        lookups++;
+        return result;
+    }
+
+    /**
+     * Forget a player's cached decisions
+     *
+     * @param playerId The player UUID
+     */
+    public void invalidate(UUID playerId) {
+        if (players.remove(playerId) != null) {
+            invalidations++;
+        }
+    }
+
+    /**
+     * Forget all cached decisions
+     */
+    public void invalidateAll() {
+        invalidations += players.size();
+        players.clear();
+        plugin.getDebug().log("Cleared cached permission decisions");
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        invalidate(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        invalidate(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        // Permissions can be per world
+        invalidate(event.getPlayer().getUniqueId());
+    }
+
+    // Metrics
+
+    public int getCachedPlayers() {
+        return players.size();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getLookups() {
+        return lookups;
+    }
+
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * One player's cached decisions
+     */
+    private static final class Decisions {
+        private final Map<String, Boolean> nodes;
+        private final long expiresAt;
+
+        private Decisions(long expiresAt) {
+            this.nodes = new HashMap<>();
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.brekfst.fruitPouches.pickup;
+
+import com.brekfst.fruitPouches.models.Pouch;
+import org.bukkit.entity.Item;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Items a player is about to pick up, grouped by the pouch they go into. Filled while the
+ * pickup scheduler walks the candidates and committed in one go, so each pouch gets a single
+ * add, stats update and save per pass instead of one per item.
+ */
+public class PickupBatch {
+
+    private final Map<Pouch, List<Item>> items;
+    private int size;
+
+    /**
+     * Create a new empty pickup batch
+     */
+    public PickupBatch() {
+        this.items = new LinkedHashMap<>();
+    }
+
+    /**
+     * Add an item to the batch
+     *
+     * @param pouch The pouch the item goes into
+     * @param item The item entity
+     */
+    public void add(Pouch pouch, Item item) {
+        items.computeIfAbsent(pouch, k -> new ArrayList<>()).add(item);
+        size++;
+    }
+
+    /**
+     * Get the batched items per pouch, in the order the pouches were first used
+     *
+     * @return The items by pouch
+     */
+    public Map<Pouch, List<Item>> getItems() {
+        return items;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Empty the batch so it can be reused
+     */
+    public void clear() {
+        items.clear();
+        size = 0;
+    }
+}
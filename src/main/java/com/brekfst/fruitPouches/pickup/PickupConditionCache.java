@@ -0,0 +1,84 @@
+package com.brekfst.fruitPouches.pickup;
+
+import com.brekfst.fruitPouches.FruitPouches;
+import com.brekfst.fruitPouches.models.Pouch;
+import org.bukkit.entity.Player;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Remembers world and time condition results per player and pouch type for the rest of the
+ * current tick. Neither can change within a tick, so checking the conditions for every item
+ * near a player only evaluates them once.
+ */
+public class PickupConditionCache {
+
+    private final FruitPouches plugin;
+    private final Map<UUID, Map<String, Boolean>> results;
+    private boolean clearTaskScheduled;
+
+    // Metrics
+    private long hits;
+    private long evaluations;
+
+    /**
+     * Create a new pickup condition cache
+     *
+     * @param plugin The plugin instance
+     */
+    public PickupConditionCache(FruitPouches plugin) {
+        this.plugin = plugin;
+        this.results = new HashMap<>();
+    }
+
+    /**
+     * Check whether a player meets the world and time conditions of a pouch this tick
+     *
+     * @param player The player
+     * @param pouch The pouch
+     * @return true if the world and time conditions are met
+     */
+    public boolean meetsWorldAndTime(Player player, Pouch pouch) {
+        Map<String, Boolean> playerResults = results.computeIfAbsent(player.getUniqueId(), k -> new HashMap<>());
+        Boolean cached = playerResults.get(pouch.getId());
+
+        if (cached != null) {
+            hits++;
+            return cached;
+        }
+
+        boolean result = pouch.meetsWorldAndTimeConditions(player);
+        playerResults.put(pouch.getId(), result);
+        evaluations++;
+
+        scheduleClear();
+        return result;
+    }
+
+    /**
+     * Drop all cached results at the start of the next tick
+     */
+    private void scheduleClear() {
+        if (clearTaskScheduled) {
+            return;
+        }
+
+        clearTaskScheduled = true;
+        plugin.getServer().getScheduler().runTask(plugin, () -> {
+            results.clear();
+            clearTaskScheduled = false;
+        });
+    }
+
+    // Metrics
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getEvaluations() {
+        return evaluations;
+    }
+}
@@ -0,0 +1,292 @@
+package com.brekfst.fruitPouches.pickup;
+
+import com.brekfst.fruitPouches.FruitPouches;
+import net.md_5.bungee.api.ChatMessageType;
+import net.md_5.bungee.api.chat.TextComponent;
+import org.bukkit.ChatColor;
+import org.bukkit.Particle;
+import org.bukkit.Sound;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Collects pickup and overflow feedback per player over a short window and sends it as one
+ * summary line, with at most one pickup sound and one overflow sound/particle burst per window.
+ */
+public class PickupFeedback implements Listener {
+
+    // Item types listed in a summary before the rest is collapsed into "and N more"
+    private static final int MAX_LISTED_TYPES = 4;
+
+    private final FruitPouches plugin;
+    private final Map<UUID, Window> windows;
+    private final long windowTicks;
+    private final boolean actionBar;
+    private final boolean pickupMessages;
+    private final Sound overflowSound;
+    private final Particle overflowParticle;
+
+    // Metrics
+    private long pickupsRecorded;
+    private long overflowsRecorded;
+    private long summariesSent;
+    private long effectsPlayed;
+
+    /**
+     * Create a new pickup feedback aggregator
+     *
+     * @param plugin The plugin instance
+     */
+    public PickupFeedback(FruitPouches plugin) {
+        this.plugin = plugin;
+        this.windows = new HashMap<>();
+
+        FileConfiguration config = plugin.getConfigManager().getMainConfig();
+        this.windowTicks = Math.max(1L, config.getLong("general.feedback-window", 20L));
+        this.actionBar = config.getString("general.feedback-mode", "actionbar").equalsIgnoreCase("actionbar");
+        this.pickupMessages = config.getBoolean("general.pickup-messages", true);
+
+        String sound = config.getString("overflow.sound", "BLOCK_NOTE_BLOCK_BELL");
+        Sound parsedSound = null;
+        try {
+            parsedSound = Sound.valueOf(sound);
+        } catch (IllegalArgumentException e) {
+            plugin.getDebug().log("Invalid sound: " + sound);
+        }
+        this.overflowSound = parsedSound;
+
+        Particle parsedParticle = null;
+        if (config.getBoolean("overflow.show-particles", true)) {
+            String particleType = config.getString("overflow.particle-type", "VILLAGER_ANGRY");
+            try {
+                parsedParticle = Particle.valueOf(particleType);
+            } catch (IllegalArgumentException e) {
+                plugin.getDebug().log("Invalid particle type: " + particleType);
+            }
+        }
+        this.overflowParticle = parsedParticle;
+
+        startFlushTask();
+    }
+
+    /**
+     * Send the collected feedback of every player once per window
+     */
+    private void startFlushTask() {
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                flushAll();
+            }
+        }.runTaskTimer(plugin, windowTicks, windowTicks);
+    }
+
+    /**
+     * Record a successful pickup
+     *
+     * @param player The player
+     * @param itemName The display name of the item
+     * @param amount The amount picked up
+     */
+    public void recordPickup(Player player, String itemName, int amount) {
+        Window window = getWindow(player);
+        window.pickups.merge(itemName, (long) amount, Long::sum);
+        pickupsRecorded++;
+
+        // One pickup sound per window, played right away so the first pickup still feels instant
+        if (!window.pickupSoundPlayed) {
+            window.pickupSoundPlayed = true;
+            player.playSound(player.getLocation(), Sound.ENTITY_ITEM_PICKUP, 0.2f, 1.0f);
+            effectsPlayed++;
+        }
+    }
+
+    /**
+     * Record an overflow
+     *
+     * @param player The player
+     * @param pouchName The display name of the full pouch
+     * @param messageKey The message to send for this overflow mode
+     * @param money Money earned by selling the overflow (0 if not sold)
+     */
+    public void recordOverflow(Player player, String pouchName, String messageKey, double money) {
+        Window window = getWindow(player);
+        window.overflows.computeIfAbsent(messageKey + "|" + pouchName, k -> new Overflow(messageKey, pouchName)).money += money;
+        overflowsRecorded++;
+
+        if (!window.overflowEffectsPlayed) {
+            window.overflowEffectsPlayed = true;
+
+            if (overflowSound != null) {
+                player.playSound(player.getLocation(), overflowSound, 1.0f, 1.0f);
+            }
+
+            if (overflowParticle != null) {
+                player.getWorld().spawnParticle(overflowParticle, player.getLocation().add(0, 1, 0), 10, 0.5, 0.5, 0.5, 0.1);
+            }
+
+            effectsPlayed++;
+        }
+    }
+
+    /**
+     * Get or open the current window of a player
+     *
+     * @param player The player
+     * @return The window
+     */
+    private Window getWindow(Player player) {
+        return windows.computeIfAbsent(player.getUniqueId(), k -> new Window(player));
+    }
+
+    /**
+     * Send and close every open window
+     */
+    private void flushAll() {
+        if (windows.isEmpty()) {
+            return;
+        }
+
+        Iterator<Window> iterator = windows.values().iterator();
+        while (iterator.hasNext()) {
+            Window window = iterator.next();
+            iterator.remove();
+
+            if (window.player.isOnline()) {
+                flush(window);
+            }
+        }
+    }
+
+    /**
+     * Send the summary of one window
+     *
+     * @param window The window
+     */
+    private void flush(Window window) {
+        Player player = window.player;
+
+        if (pickupMessages && !window.pickups.isEmpty()) {
+            String summary = buildSummary(window.pickups);
+
+            if (actionBar) {
+                player.spigot().sendMessage(ChatMessageType.ACTION_BAR, TextComponent.fromLegacyText(summary));
+            } else {
+                player.sendMessage(summary);
+            }
+
+            summariesSent++;
+        }
+
+        for (Overflow overflow : window.overflows.values()) {
+            if (plugin.getVaultHook().isEnabled()) {
+                plugin.getMessageUtils().sendMessage(player, overflow.messageKey, "pouch", overflow.pouchName,
+                        "amount", plugin.getVaultHook().formatMoney(overflow.money));
+            } else {
+                plugin.getMessageUtils().sendMessage(player, overflow.messageKey, "pouch", overflow.pouchName);
+            }
+            summariesSent++;
+        }
+    }
+
+    /**
+     * Build a summary line like "+128 Wheat, +64 Carrot"
+     *
+     * @param pickups Amounts picked up by item name
+     * @return The summary line
+     */
+    private String buildSummary(Map<String, Long> pickups) {
+        StringBuilder summary = new StringBuilder();
+        int listed = 0;
+
+        for (Map.Entry<String, Long> entry : pickups.entrySet()) {
+            if (listed == MAX_LISTED_TYPES) {
+                summary.append(ChatColor.GRAY).append(" and ").append(pickups.size() - listed).append(" more");
+                break;
+            }
+
+            if (listed > 0) {
+                summary.append(ChatColor.GRAY).append(", ");
+            }
+
+            summary.append(ChatColor.GREEN).append("+").append(entry.getValue()).append(" ")
+                    .append(ChatColor.WHITE).append(entry.getKey());
+            listed++;
+        }
+
+        return summary.toString();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        windows.remove(event.getPlayer().getUniqueId());
+    }
+
+    // Metrics
+
+    public int getOpenWindows() {
+        return windows.size();
+    }
+
+    public long getWindowTicks() {
+        return windowTicks;
+    }
+
+    public long getPickupsRecorded() {
+        return pickupsRecorded;
+    }
+
+    public long getOverflowsRecorded() {
+        return overflowsRecorded;
+    }
+
+    public long getSummariesSent() {
+        return summariesSent;
+    }
+
+    public long getEffectsPlayed() {
+        return effectsPlayed;
+    }
+
+    /**
+     * Feedback collected for one player during the current window
+     */
+    private static final class Window {
+        private final Player player;
+        private final Map<String, Long> pickups;
+        private final Map<String, Overflow> overflows;
+        private boolean pickupSoundPlayed;
+        private boolean overflowEffectsPlayed;
+
+        private Window(Player player) {
+            this.player = player;
+            this.pickups = new LinkedHashMap<>();
+            this.overflows = new LinkedHashMap<>();
+        }
+    }
+
+    /**
+     * Overflows of one pouch and mode during a window
+     */
+    private static final class Overflow {
+        private final String messageKey;
+        private final String pouchName;
+        private double money;
+
+        private Overflow(String messageKey, String pouchName) {
+            this.messageKey = messageKey;
+            this.pouchName = pouchName;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.brekfst.fruitPouches.pickup;
+
+import com.brekfst.fruitPouches.FruitPouches;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps a routing table per online player and rebuilds it only when the carried pouches,
+ * their levels or the pouch configuration change.
+ */
+public class PickupRouter implements Listener {
+
+    private final FruitPouches plugin;
+    private final Map<UUID, RoutingTable> tables;
+
+    // Metrics
+    private long builds;
+    private long reuses;
+
+    /**
+     * Create a new pickup router
+     *
+     * @param plugin The plugin instance
+     */
+    public PickupRouter(FruitPouches plugin) {
+        this.plugin = plugin;
+        this.tables = new HashMap<>();
+    }
+
+    /**
+     * Get the routing table for a player's carried pouches
+     *
+     * @param player The player
+     * @param entries The pouch ID and slot entries from the player's inventory
+     * @return The routing table
+     */
+    public RoutingTable getTable(Player player, List<Map.Entry<String, Integer>> entries) {
+        UUID playerId = player.getUniqueId();
+        RoutingTable table = tables.get(playerId);
+
+        if (table != null && table.isValid(plugin, playerId, entries)) {
+            reuses++;
+            return table;
+        }
+
+        table = new RoutingTable(plugin, playerId, entries);
+        tables.put(playerId, table);
+        builds++;
+        return table;
+    }
+
+    /**
+     * Get the routing table for the pouches a player carries right now
+     *
+     * @param player The player
+     * @return The routing table
+     */
+    public RoutingTable getTable(Player player) {
+        return getTable(player, plugin.getPouchSlotCache().getPouches(player));
+    }
+
+    /**
+     * Drop a player's routing table, e.g. when their pouch data was replaced
+     *
+     * @param playerId The player UUID
+     */
+    public void invalidate(UUID playerId) {
+        tables.remove(playerId);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        tables.remove(event.getPlayer().getUniqueId());
+    }
+
+    // Metrics
+
+    public int getTableCount() {
+        return tables.size();
+    }
+
+    public long getBuilds() {
+        return builds;
+    }
+
+    public long getReuses() {
+        return reuses;
+    }
+}
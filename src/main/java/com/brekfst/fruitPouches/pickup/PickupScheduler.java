@@ -0,0 +1,705 @@
+package com.brekfst.fruitPouches.pickup;
+
+import com.brekfst.fruitPouches.FruitPouches;
+import com.brekfst.fruitPouches.events.ItemPickupListener;
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.entity.Item;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.ItemMergeEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Spreads auto-pickup work over ticks. Players are sharded by UUID hash so each one is
+ * visited once per pickup interval, and every tick stops once its item or time budget
+ * is used up; unfinished work stays queued for the next tick. Freshly spawned items are
+ * batched into the same task, and they and the player queue each get their own share of
+ * the budget, so a storm of drops can't stall regular pickups or the other way around.
+ *
+ * In dirty mode a player is only scanned when something happened near them (an item spawned,
+ * merged or drifted, they entered a new chunk, their inventory changed) or when their idle
+ * rescan interval runs out, so idle players cost nothing.
+ */
+public class PickupScheduler implements Listener {
+
+    // Ticks a freshly spawned item waits before pouches try to take it
+    private static final long SPAWN_DELAY = 5L;
+
+    private final FruitPouches plugin;
+    private final ItemPickupListener listener;
+    private final int interval;
+    private final int maxItemsPerTick;
+    private final long maxNanosPerTick;
+    private final boolean dirtyMode;
+    private final int wakeChunks;
+    private final long idleRescanTicks;
+    private final ArrayDeque<PickupJob> queue;
+    private final Set<UUID> queuedPlayers;
+    private final ArrayDeque<SpawnedItem> spawnedItems;
+    private final Map<UUID, Set<Long>> dirtyChunks;
+    private final Set<UUID> dirtyPlayers;
+    private final Map<UUID, Long> lastScanTick;
+    private boolean running;
+    private long tick;
+
+    // Metrics
+    private long ticks;
+    private long playersVisited;
+    private long itemsProcessed;
+    private long budgetExhaustedTicks;
+    private long deferredItems;
+    private long deferredPlayers;
+    private long lastTickNanos;
+    private long totalTickNanos;
+    private int maxQueueSize;
+    private long spawnsQueued;
+    private long spawnBatches;
+    private long spawnChunks;
+    private long spawnPlayerChecks;
+    private long scannedPlayers;
+    private long skippedPlayers;
+    private long dirtyMarks;
+    private long batchCommits;
+    private long batchedItems;
+
+    /**
+     * Create a new pickup scheduler
+     *
+     * @param plugin The plugin instance
+     * @param listener The listener doing the actual pickups
+     */
+    public PickupScheduler(FruitPouches plugin, ItemPickupListener listener) {
+        this.plugin = plugin;
+        this.listener = listener;
+        this.queue = new ArrayDeque<>();
+        this.queuedPlayers = new HashSet<>();
+        this.spawnedItems = new ArrayDeque<>();
+        this.dirtyChunks = new HashMap<>();
+        this.dirtyPlayers = new HashSet<>();
+        this.lastScanTick = new HashMap<>();
+
+        FileConfiguration config = plugin.getConfigManager().getMainConfig();
+        this.interval = Math.max(1, config.getInt("performance.pickup-interval", 5));
+        this.maxItemsPerTick = Math.max(1, config.getInt("performance.max-items-per-tick", 20));
+        this.maxNanosPerTick = (long) (Math.max(0.1, config.getDouble("performance.max-pickup-time-ms", 2.0)) * 1_000_000L);
+        this.dirtyMode = config.getString("performance.pickup-mode", "dirty").equalsIgnoreCase("dirty");
+        this.wakeChunks = (int) Math.ceil(Math.max(1.0, config.getDouble("performance.wake-radius", 16.0)) / 16.0);
+        this.idleRescanTicks = Math.max(interval, config.getLong("performance.idle-rescan-interval", 100L));
+    }
+
+    /**
+     * Start the per-tick pickup task
+     */
+    public void start() {
+        if (!listener.isAutoPickup()) {
+            plugin.getDebug().log("Auto-pickup is disabled, pickup scheduler not started");
+            return;
+        }
+
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        }.runTaskTimer(plugin, 20L, 1L);
+        running = true;
+
+        plugin.getDebug().log("Pickup scheduler started (interval " + interval + " ticks, " +
+                maxItemsPerTick + " items / " + (maxNanosPerTick / 1000) + "us per tick)");
+    }
+
+    /**
+     * Queue a freshly spawned item for pickup. Items are picked up in one batch per tick
+     * instead of each getting its own task.
+     *
+     * @param item The spawned item
+     */
+    public void queueSpawnedItem(Item item) {
+        spawnedItems.add(new SpawnedItem(item, tick + SPAWN_DELAY));
+        spawnsQueued++;
+        markDirty(item.getLocation());
+    }
+
+    /**
+     * Wake the pouch holders around a location on their next turn
+     *
+     * @param location Where something changed
+     */
+    public void markDirty(Location location) {
+        // Nothing would ever clear the marks without the task
+        if (!running || !dirtyMode || location.getWorld() == null) {
+            return;
+        }
+
+        dirtyChunks.computeIfAbsent(location.getWorld().getUID(), k -> new HashSet<>())
+                .add(chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4));
+        dirtyMarks++;
+    }
+
+    /**
+     * Wake a player on their next turn
+     *
+     * @param playerId The player UUID
+     */
+    public void markDirty(UUID playerId) {
+        if (running && dirtyMode && dirtyPlayers.add(playerId)) {
+            dirtyMarks++;
+        }
+    }
+
+    /**
+     * Handle spawned items that are due, then queue the players whose shard is due
+     * this tick and work through the queue. Spawned items get up to half of the item budget
+     * and the queue at least half of the time budget; what either leaves unused goes to
+     * the other.
+     */
+    private void tick() {
+        long start = System.nanoTime();
+
+        // Rounded up on odd ticks, so a budget of one item alternates between the two
+        int spawnShare = (maxItemsPerTick + (int) (tick & 1)) / 2;
+        int items = drainSpawnedItems(spawnShare);
+        resolveDirtyChunks();
+        long currentTick = tick++;
+        int shard = (int) (currentTick % interval);
+
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            UUID playerId = player.getUniqueId();
+
+            // Players still queued from an earlier tick keep their place
+            if (shardOf(playerId) != shard || queuedPlayers.contains(playerId)) {
+                continue;
+            }
+
+            if (dirtyMode && !dirtyPlayers.remove(playerId)) {
+                Long lastScan = lastScanTick.get(playerId);
+                if (lastScan != null && currentTick - lastScan < idleRescanTicks) {
+                    skippedPlayers++;
+                    continue;
+                }
+            }
+
+            queue.add(new PickupJob(player));
+            queuedPlayers.add(playerId);
+            lastScanTick.put(playerId, currentTick);
+            scannedPlayers++;
+        }
+
+        maxQueueSize = Math.max(maxQueueSize, queue.size());
+        long spent = System.nanoTime() - start;
+        items += drain(maxItemsPerTick - items, Math.max(maxNanosPerTick - spent, maxNanosPerTick / 2));
+
+        // Budget the queue didn't need goes to spawned items that are still waiting
+        if (items < maxItemsPerTick && System.nanoTime() - start < maxNanosPerTick) {
+            drainSpawnedItems(maxItemsPerTick - items);
+        }
+
+        lastTickNanos = System.nanoTime() - start;
+        totalTickNanos += lastTickNanos;
+        ticks++;
+    }
+
+    /**
+     * Process queued jobs until the queue is empty or the queue's share of this tick's budget
+     * is spent
+     *
+     * @param maxItems How many items the queue may process
+     * @param maxNanos How long the queue may take
+     * @return Number of items processed
+     */
+    private int drain(int maxItems, long maxNanos) {
+        long start = System.nanoTime();
+        int items = 0;
+        while (!queue.isEmpty()) {
+            if (items >= maxItems || System.nanoTime() - start >= maxNanos) {
+                budgetExhaustedTicks++;
+                deferredPlayers += queue.size();
+                for (PickupJob job : queue) {
+                    deferredItems += job.getRemaining();
+                }
+                return items;
+            }
+
+            PickupJob job = queue.peek();
+            Player player = job.player;
+
+            if (!player.isOnline()) {
+                finish();
+                continue;
+            }
+
+            if (job.candidates == null) {
+                job.pouches = listener.preparePickup(player);
+                if (job.pouches == null) {
+                    // Taking this turn cleared the player's wake-up; keep it until they can pick up
+                    if (listener.isPickupDelayed(player)) {
+                        markDirty(player.getUniqueId());
+                    }
+                    finish();
+                    continue;
+                }
+
+                job.candidates = listener.findPickupCandidates(player, job.pouches);
+                playersVisited++;
+            }
+
+            while (job.index < job.candidates.size() && items < maxItems) {
+                listener.tryPickupItem(player, job.candidates.get(job.index++), job.pouches, job.batch);
+                items++;
+                itemsProcessed++;
+
+                if (System.nanoTime() - start >= maxNanos) {
+                    break;
+                }
+            }
+
+            // Everything this slice picked up goes into the pouches at once
+            commit(player, job.batch);
+
+            if (job.index >= job.candidates.size()) {
+                finish();
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Turn this tick's dirty chunks into dirty players: everyone within the wake radius
+     */
+    private void resolveDirtyChunks() {
+        if (dirtyChunks.isEmpty()) {
+            return;
+        }
+
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            Set<Long> chunks = dirtyChunks.get(player.getWorld().getUID());
+            if (chunks == null || dirtyPlayers.contains(player.getUniqueId())) {
+                continue;
+            }
+
+            Location location = player.getLocation();
+            int playerChunkX = location.getBlockX() >> 4;
+            int playerChunkZ = location.getBlockZ() >> 4;
+
+            for (long chunk : chunks) {
+                int chunkX = (int) (chunk >> 32);
+                int chunkZ = (int) chunk;
+
+                if (Math.abs(chunkX - playerChunkX) <= wakeChunks && Math.abs(chunkZ - playerChunkZ) <= wakeChunks) {
+                    dirtyPlayers.add(player.getUniqueId());
+                    break;
+                }
+            }
+        }
+
+        dirtyChunks.clear();
+    }
+
+    /**
+     * Offer the spawned items that are due to nearby pouch holders. Items are grouped by
+     * chunk so whole groups can be skipped for players that are too far away.
+     *
+     * @param maxItems How many items may be processed
+     * @return Number of items processed
+     */
+    private int drainSpawnedItems(int maxItems) {
+        if (maxItems <= 0 || spawnedItems.isEmpty() || spawnedItems.peek().dueTick > tick) {
+            return 0;
+        }
+
+        // Group due items by world and chunk, within the given share of this tick's budget
+        Map<UUID, Map<Long, List<Item>>> groups = new HashMap<>();
+        int collected = 0;
+
+        while (!spawnedItems.isEmpty() && spawnedItems.peek().dueTick <= tick && collected < maxItems) {
+            Item item = spawnedItems.poll().item;
+
+            if (!item.isValid() || item.isDead()) {
+                continue;
+            }
+
+            Location location = item.getLocation();
+            long chunkKey = chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+            groups.computeIfAbsent(item.getWorld().getUID(), k -> new HashMap<>())
+                    .computeIfAbsent(chunkKey, k -> new ArrayList<>())
+                    .add(item);
+            collected++;
+        }
+
+        if (collected == 0) {
+            return 0;
+        }
+
+        spawnBatches++;
+
+        List<PouchHolder> holders = findPouchHolders(groups.keySet());
+        if (holders.isEmpty()) {
+            return collected;
+        }
+
+        double range = listener.getPickupRange() * 2;
+        double rangeSquared = range * range;
+
+        for (Map.Entry<UUID, Map<Long, List<Item>>> worldEntry : groups.entrySet()) {
+            for (Map.Entry<Long, List<Item>> chunkEntry : worldEntry.getValue().entrySet()) {
+                spawnChunks++;
+
+                int chunkX = (int) (chunkEntry.getKey() >> 32);
+                int chunkZ = (int) (long) chunkEntry.getKey();
+
+                for (PouchHolder holder : holders) {
+                    if (!holder.worldId.equals(worldEntry.getKey()) ||
+                            holder.distanceSquaredToChunk(chunkX, chunkZ) > rangeSquared) {
+                        continue;
+                    }
+
+                    for (Item item : chunkEntry.getValue()) {
+                        if (!item.isValid() || item.isDead()) {
+                            continue;
+                        }
+
+                        spawnPlayerChecks++;
+                        Location location = item.getLocation();
+                        double dx = location.getX() - holder.x;
+                        double dy = location.getY() - holder.y;
+                        double dz = location.getZ() - holder.z;
+
+                        if (dx * dx + dy * dy + dz * dz <= rangeSquared) {
+                            listener.tryPickupItem(holder.player, item, holder.pouches, holder.batch);
+                        }
+                    }
+                }
+            }
+        }
+
+        for (PouchHolder holder : holders) {
+            commit(holder.player, holder.batch);
+        }
+
+        itemsProcessed += collected;
+        return collected;
+    }
+
+    /**
+     * Get the online players in the given worlds that currently carry a pouch
+     *
+     * @param worldIds The worlds to look in
+     * @return The pouch holders with their position
+     */
+    private List<PouchHolder> findPouchHolders(Set<UUID> worldIds) {
+        List<PouchHolder> holders = new ArrayList<>();
+        PickupRouter router = plugin.getPickupRouter();
+
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            if (player.getGameMode() == GameMode.SPECTATOR || !worldIds.contains(player.getWorld().getUID()) ||
+                    plugin.getPlayerDataManager().isLoading(player.getUniqueId())) {
+                continue;
+            }
+
+            RoutingTable pouches = router.getTable(player);
+            if (!pouches.isEmpty()) {
+                holders.add(new PouchHolder(player, pouches));
+            }
+        }
+
+        return holders;
+    }
+
+    /**
+     * Items merging into a stack can become pickable (e.g. a stack that now fits a filter's pouch)
+     *
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemMerge(ItemMergeEvent event) {
+        markDirty(event.getTarget().getLocation());
+    }
+
+    /**
+     * Wake players walking into a new chunk
+     *
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        Location from = event.getFrom();
+        Location to = event.getTo();
+
+        if (to != null && ((from.getBlockX() >> 4) != (to.getBlockX() >> 4) || (from.getBlockZ() >> 4) != (to.getBlockZ() >> 4))) {
+            markDirty(event.getPlayer().getUniqueId());
+        }
+    }
+
+    /**
+     * Teleports don't fire PlayerMoveEvent handlers, so wake the player here
+     *
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+        markDirty(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        markDirty(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        UUID playerId = event.getPlayer().getUniqueId();
+        dirtyPlayers.remove(playerId);
+        lastScanTick.remove(playerId);
+    }
+
+    /**
+     * Pack chunk coordinates into a single key
+     *
+     * @param x The chunk x
+     * @param z The chunk z
+     * @return The packed key
+     */
+    private static long chunkKey(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Commit a player's batched pickups
+     *
+     * @param player The player
+     * @param batch The batch
+     */
+    private void commit(Player player, PickupBatch batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        batchCommits++;
+        batchedItems += batch.size();
+        listener.commitPickups(player, batch);
+    }
+
+    /**
+     * Drop the job at the head of the queue
+     */
+    private void finish() {
+        PickupJob job = queue.poll();
+        if (job != null) {
+            queuedPlayers.remove(job.player.getUniqueId());
+        }
+    }
+
+    /**
+     * Get the shard (tick offset within the interval) of a player
+     *
+     * @param playerId The player UUID
+     * @return The shard
+     */
+    private int shardOf(UUID playerId) {
+        return (playerId.hashCode() & Integer.MAX_VALUE) % interval;
+    }
+
+    // Metrics
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public int getMaxItemsPerTick() {
+        return maxItemsPerTick;
+    }
+
+    public long getMaxNanosPerTick() {
+        return maxNanosPerTick;
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public long getPlayersVisited() {
+        return playersVisited;
+    }
+
+    public long getItemsProcessed() {
+        return itemsProcessed;
+    }
+
+    public long getBudgetExhaustedTicks() {
+        return budgetExhaustedTicks;
+    }
+
+    public long getDeferredItems() {
+        return deferredItems;
+    }
+
+    public long getDeferredPlayers() {
+        return deferredPlayers;
+    }
+
+    public long getLastTickNanos() {
+        return lastTickNanos;
+    }
+
+    public int getPendingSpawns() {
+        return spawnedItems.size();
+    }
+
+    public long getSpawnsQueued() {
+        return spawnsQueued;
+    }
+
+    public long getSpawnBatches() {
+        return spawnBatches;
+    }
+
+    public long getSpawnChunks() {
+        return spawnChunks;
+    }
+
+    public long getSpawnPlayerChecks() {
+        return spawnPlayerChecks;
+    }
+
+    public boolean isDirtyMode() {
+        return dirtyMode;
+    }
+
+    public long getScannedPlayers() {
+        return scannedPlayers;
+    }
+
+    public long getSkippedPlayers() {
+        return skippedPlayers;
+    }
+
+    public long getBatchCommits() {
+        return batchCommits;
+    }
+
+    public long getBatchedItems() {
+        return batchedItems;
+    }
+
+    public long getDirtyMarks() {
+        return dirtyMarks;
+    }
+
+    /**
+     * Ratio of players skipped (idle) to players scanned when their turn came up
+     *
+     * @return Skipped per scanned player
+     */
+    public double getSkipRatio() {
+        return scannedPlayers == 0 ? 0.0 : (double) skippedPlayers / scannedPlayers;
+    }
+
+    /**
+     * Average time the pickup task spent per tick
+     *
+     * @return Average nanoseconds per tick
+     */
+    public double getAverageTickNanos() {
+        return ticks == 0 ? 0.0 : (double) totalTickNanos / ticks;
+    }
+
+    /**
+     * One player's pending pickup pass
+     */
+    private static final class PickupJob {
+        private final Player player;
+        private final PickupBatch batch = new PickupBatch();
+        private RoutingTable pouches;
+        private List<Item> candidates;
+        private int index;
+
+        private PickupJob(Player player) {
+            this.player = player;
+        }
+
+        /**
+         * Items still to process (unknown before the job starts, counted as zero)
+         *
+         * @return Remaining item count
+         */
+        private int getRemaining() {
+            return candidates == null ? 0 : candidates.size() - index;
+        }
+    }
+
+    /**
+     * A spawned item waiting for its pickup tick
+     */
+    private static final class SpawnedItem {
+        private final Item item;
+        private final long dueTick;
+
+        private SpawnedItem(Item item, long dueTick) {
+            this.item = item;
+            this.dueTick = dueTick;
+        }
+    }
+
+    /**
+     * A player carrying pouches, with their position captured once per batch
+     */
+    private static final class PouchHolder {
+        private final Player player;
+        private final RoutingTable pouches;
+        private final PickupBatch batch = new PickupBatch();
+        private final UUID worldId;
+        private final double x;
+        private final double y;
+        private final double z;
+
+        private PouchHolder(Player player, RoutingTable pouches) {
+            Location location = player.getLocation();
+            this.player = player;
+            this.pouches = pouches;
+            this.worldId = player.getWorld().getUID();
+            this.x = location.getX();
+            this.y = location.getY();
+            this.z = location.getZ();
+        }
+
+        /**
+         * Squared horizontal distance from this player to the nearest point of a chunk
+         *
+         * @param chunkX The chunk x
+         * @param chunkZ The chunk z
+         * @return The squared distance (0 inside the chunk)
+         */
+        private double distanceSquaredToChunk(int chunkX, int chunkZ) {
+            double minX = chunkX << 4;
+            double minZ = chunkZ << 4;
+            double dx = Math.max(0.0, Math.max(minX - x, x - (minX + 16)));
+            double dz = Math.max(0.0, Math.max(minZ - z, z - (minZ + 16)));
+            return dx * dx + dz * dz;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.brekfst.fruitPouches.pickup;
+
+import com.brekfst.fruitPouches.FruitPouches;
+import com.brekfst.fruitPouches.models.Pouch;
+import org.bukkit.Material;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityPickupItemEvent;
+import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.player.PlayerDropItemEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerSwapHandItemsEvent;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Caches where each online player keeps their pouches, so pickup code doesn't have to
+ * read the metadata of every inventory slot several times a second.
+ */
+public class PouchSlotCache implements Listener {
+
+    // Even without an inventory event, rebuild entries this old (in milliseconds)
+    private static final long MAX_AGE = 10000L;
+
+    private final FruitPouches plugin;
+    private final Map<UUID, CachedInventory> cache;
+    private final Set<UUID> changingThisTick;
+    private boolean clearTaskScheduled;
+
+    // Metrics
+    private long hits;
+    private long rebuilds;
+    private long invalidations;
+    private long verifyFailures;
+
+    /**
+     * Create a new pouch slot cache
+     *
+     * @param plugin The plugin instance
+     */
+    public PouchSlotCache(FruitPouches plugin) {
+        this.plugin = plugin;
+        this.cache = new HashMap<>();
+        this.changingThisTick = new HashSet<>();
+    }
+
+    /**
+     * Get the pouches in a player's inventory
+     *
+     * @param player The player
+     * @return List of pouch ID and slot entries, in slot order
+     */
+    public List<Map.Entry<String, Integer>> getPouches(Player player) {
+        return get(player).entries;
+    }
+
+    /**
+     * Find the first slot holding a pouch of the given type. Callers replace the item in that
+     * slot, so unlike the cheap verification the slot's pouch tag is checked too.
+     *
+     * @param player The player
+     * @param pouchId The pouch ID
+     * @return The slot, or -1 if the player doesn't carry this pouch
+     */
+    public int findPouchSlot(Player player, String pouchId) {
+        int slot = findSlot(get(player), pouchId);
+
+        if (slot >= 0 && !Pouch.isPouchOfType(plugin, player.getInventory().getItem(slot), pouchId)) {
+            // Something swapped the pouch for an item of the same material without an event
+            verifyFailures++;
+            cache.remove(player.getUniqueId());
+            slot = findSlot(get(player), pouchId);
+        }
+
+        return slot;
+    }
+
+    private int findSlot(CachedInventory cached, String pouchId) {
+        for (Map.Entry<String, Integer> entry : cached.entries) {
+            if (entry.getKey().equals(pouchId)) {
+                return entry.getValue();
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Check if a player carries any pouch
+     *
+     * @param player The player
+     * @return true if at least one pouch is in the inventory
+     */
+    public boolean hasPouches(Player player) {
+        return !get(player).entries.isEmpty();
+    }
+
+    /**
+     * Get the cached entry for a player, verifying or rebuilding it as needed
+     *
+     * @param player The player
+     * @return The cached inventory
+     */
+    private CachedInventory get(Player player) {
+        UUID playerId = player.getUniqueId();
+        CachedInventory cached = cache.get(playerId);
+
+        if (cached != null && System.currentTimeMillis() - cached.builtAt < MAX_AGE && verify(player, cached)) {
+            hits++;
+            return cached;
+        }
+
+        cached = build(player);
+        rebuilds++;
+
+        // An inventory event fired this tick but its change isn't applied yet,
+        // so don't keep what we just read past this tick
+        if (!changingThisTick.contains(playerId)) {
+            cache.put(playerId, cached);
+        }
+
+        return cached;
+    }
+
+    /**
+     * Cheap sanity check: each cached slot must still hold an item of the pouch's material
+     *
+     * @param player The player
+     * @param cached The cached inventory
+     * @return true if the cached entry still looks valid
+     */
+    private boolean verify(Player player, CachedInventory cached) {
+        PlayerInventory inventory = player.getInventory();
+
+        for (int i = 0; i < cached.entries.size(); i++) {
+            ItemStack item = inventory.getItem(cached.entries.get(i).getValue());
+
+            if (item == null || item.getType() != cached.materials[i]) {
+                verifyFailures++;
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Scan a player's inventory for pouches
+     *
+     * @param player The player
+     * @return The scanned inventory
+     */
+    private CachedInventory build(Player player) {
+        PlayerInventory inventory = player.getInventory();
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>();
+        List<Material> materials = new ArrayList<>();
+
+        for (int i = 0; i < inventory.getSize(); i++) {
+            ItemStack item = inventory.getItem(i);
+
+            if (item != null && !item.getType().isAir()) {
+                String pouchId = Pouch.getPouchIdFromItem(plugin, item);
+
+                if (pouchId != null) {
+                    entries.add(Map.entry(pouchId, i));
+                    materials.add(item.getType());
+                }
+            }
+        }
+
+        return new CachedInventory(Collections.unmodifiableList(entries), materials.toArray(new Material[0]));
+    }
+
+    /**
+     * Forget a player's cached pouch locations
+     *
+     * @param playerId The player UUID
+     */
+    public void invalidate(UUID playerId) {
+        cache.remove(playerId);
+        changingThisTick.add(playerId);
+        invalidations++;
+
+        // A pouch may have just entered the inventory next to items already lying around
+        plugin.getPickupScheduler().markDirty(playerId);
+
+        if (!clearTaskScheduled) {
+            clearTaskScheduled = true;
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                changingThisTick.clear();
+                clearTaskScheduled = false;
+            });
+        }
+    }
+
+    /**
+     * Forget a player's cached pouch locations
+     *
+     * @param entity The player
+     */
+    private void invalidate(HumanEntity entity) {
+        if (entity instanceof Player) {
+            invalidate(entity.getUniqueId());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryClick(InventoryClickEvent event) {
+        invalidate(event.getWhoClicked());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryDrag(InventoryDragEvent event) {
+        invalidate(event.getWhoClicked());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerDropItem(PlayerDropItemEvent event) {
+        invalidate(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityPickupItem(EntityPickupItemEvent event) {
+        if (event.getEntity() instanceof Player) {
+            invalidate(event.getEntity().getUniqueId());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onSwapHandItems(PlayerSwapHandItemsEvent event) {
+        invalidate(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerDeath(PlayerDeathEvent event) {
+        invalidate(event.getEntity().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        invalidate(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        cache.remove(event.getPlayer().getUniqueId());
+    }
+
+    // Metrics
+
+    public int getCachedPlayers() {
+        return cache.size();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getRebuilds() {
+        return rebuilds;
+    }
+
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    public long getVerifyFailures() {
+        return verifyFailures;
+    }
+
+    /**
+     * The pouch locations of one player's inventory
+     */
+    private static final class CachedInventory {
+        private final List<Map.Entry<String, Integer>> entries;
+        private final Material[] materials;
+        private final long builtAt;
+
+        private CachedInventory(List<Map.Entry<String, Integer>> entries, Material[] materials) {
+            this.entries = entries;
+            this.materials = materials;
+            this.builtAt = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.brekfst.fruitPouches.pickup;
+
+import com.brekfst.fruitPouches.FruitPouches;
+import com.brekfst.fruitPouches.models.PickupFilter;
+import com.brekfst.fruitPouches.models.Pouch;
+import org.bukkit.Material;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Maps each material to the pouches a player carries that can accept it, in inventory
+ * order. Routes are filled in lazily from the pouches' compiled pickup filters, so routing
+ * an item is an array lookup once its material has been seen.
+ */
+public class RoutingTable {
+
+    private static final Pouch[] NONE = new Pouch[0];
+
+    private final List<Map.Entry<String, Integer>> entries;
+    private final Pouch[] pouches;
+    private final PickupFilter[] filters;
+    private final int[] levels;
+    private final int configVersion;
+    private final Pouch[][] routes;
+
+    /**
+     * Build a routing table for a player's carried pouches
+     *
+     * @param plugin The plugin instance
+     * @param playerId The player UUID
+     * @param entries The pouch ID and slot entries from the player's inventory
+     */
+    public RoutingTable(FruitPouches plugin, UUID playerId, List<Map.Entry<String, Integer>> entries) {
+        // One route entry per pouch type, in the order the inventory holds them
+        Map<String, Pouch> distinct = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : entries) {
+            if (!distinct.containsKey(entry.getKey())) {
+                Pouch pouch = plugin.getPlayerDataManager().getPlayerPouch(playerId, entry.getKey());
+                if (pouch != null) {
+                    distinct.put(entry.getKey(), pouch);
+                }
+            }
+        }
+
+        this.entries = entries;
+        this.pouches = distinct.values().toArray(new Pouch[0]);
+        this.filters = new PickupFilter[pouches.length];
+        this.levels = new int[pouches.length];
+        this.configVersion = plugin.getPouchManager().getConfigVersion();
+        this.routes = new Pouch[Material.values().length][];
+
+        for (int i = 0; i < pouches.length; i++) {
+            filters[i] = pouches[i].getPickupFilter(plugin);
+            levels[i] = pouches[i].getCurrentLevel();
+        }
+    }
+
+    /**
+     * Get the pouches that can accept a material, in the order they should be tried
+     *
+     * @param material The item material
+     * @return The accepting pouches (possibly empty)
+     */
+    public Pouch[] route(Material material) {
+        int ordinal = material.ordinal();
+        Pouch[] route = routes[ordinal];
+
+        if (route == null) {
+            List<Pouch> accepting = new ArrayList<>(pouches.length);
+            for (int i = 0; i < pouches.length; i++) {
+                if (filters[i].canAccept(material)) {
+                    accepting.add(pouches[i]);
+                }
+            }
+
+            route = accepting.isEmpty() ? NONE : accepting.toArray(new Pouch[0]);
+            routes[ordinal] = route;
+        }
+
+        return route;
+    }
+
+    /**
+     * Check if this table still matches the player's pouches
+     *
+     * @param plugin The plugin instance
+     * @param playerId The player UUID
+     * @param entries The current pouch ID and slot entries
+     * @return true if the table can be reused
+     */
+    public boolean isValid(FruitPouches plugin, UUID playerId, List<Map.Entry<String, Integer>> entries) {
+        if (configVersion != plugin.getPouchManager().getConfigVersion()) {
+            return false;
+        }
+
+        if (entries != this.entries && !entries.equals(this.entries)) {
+            return false;
+        }
+
+        for (int i = 0; i < pouches.length; i++) {
+            if (pouches[i].getCurrentLevel() != levels[i] ||
+                    plugin.getPlayerDataManager().getPlayerPouch(playerId, pouches[i].getId()) != pouches[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Get the pouch ID and slot entries this table was built from
+     *
+     * @return The inventory entries
+     */
+    public List<Map.Entry<String, Integer>> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Check if the player carries no usable pouch
+     *
+     * @return true if nothing can be routed
+     */
+    public boolean isEmpty() {
+        return pouches.length == 0;
+    }
+}